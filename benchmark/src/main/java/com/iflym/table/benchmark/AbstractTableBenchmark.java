@@ -0,0 +1,32 @@
+package com.iflym.table.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 测试的公共参数,包括table实现,形态以及写入顺序
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public abstract class AbstractTableBenchmark {
+    @Param({"ARRAY_TREE", "HASH", "TREE", "ARRAY"})
+    protected TableKind kind;
+
+    @Param({"DENSE", "SPARSE"})
+    protected Shape shape;
+
+    @Param({"SEQUENTIAL", "RANDOM"})
+    protected KeyOrder order;
+
+    protected Cells cells;
+
+    /** 生成测试数据,由子类在setup中调用 */
+    protected void createCells() {
+        cells = new Cells(shape, order);
+    }
+}
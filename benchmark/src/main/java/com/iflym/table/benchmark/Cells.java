@@ -0,0 +1,83 @@
+package com.iflym.table.benchmark;
+
+import com.google.common.collect.Table;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 预先生成的单元格数据,key和value均提前装箱,避免在测试中计算装箱的开销
+ * 使用固定的随机种子,以保证每次运行的数据一致
+ */
+@Getter
+public class Cells {
+    private static final long SEED = 20161017L;
+
+    /** 全部的行key(包括没有数据的行),ArrayTable需要 */
+    private final List<Integer> rowKeyList;
+    /** 全部的列key(包括没有数据的列),ArrayTable需要 */
+    private final List<Integer> columnKeyList;
+
+    /** 按写入顺序的单元格 */
+    private final Integer[] rowKeys;
+    private final Integer[] columnKeys;
+    private final Double[] values;
+
+    /** 打乱之后的单元格下标,用于查询和删除 */
+    private final int[] probes;
+
+    /** 实际有数据的行,列 */
+    private final Integer[] usedRowKeys;
+    private final Integer[] usedColumnKeys;
+
+    public Cells(Shape shape, KeyOrder order) {
+        Random random = new Random(SEED);
+
+        rowKeyList = IntStream.range(0, shape.getRows()).boxed().collect(Collectors.toList());
+        columnKeyList = IntStream.range(0, shape.getColumns()).boxed().collect(Collectors.toList());
+
+        List<long[]> cellList = new ArrayList<>();
+        for(int r = 0; r < shape.getRows(); r++) {
+            for(int c = 0; c < shape.getColumns(); c++) {
+                if(shape.getDensity() >= 1.0 || random.nextDouble() < shape.getDensity())
+                    cellList.add(new long[]{r, c});
+            }
+        }
+        if(order == KeyOrder.RANDOM)
+            Collections.shuffle(cellList, random);
+
+        int size = cellList.size();
+        rowKeys = new Integer[size];
+        columnKeys = new Integer[size];
+        values = new Double[size];
+        for(int i = 0; i < size; i++) {
+            long[] cell = cellList.get(i);
+            rowKeys[i] = rowKeyList.get((int) cell[0]);
+            columnKeys[i] = columnKeyList.get((int) cell[1]);
+            values[i] = cell[0] * 10000.0 + cell[1];
+        }
+
+        List<Integer> probeList = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        Collections.shuffle(probeList, random);
+        probes = probeList.stream().mapToInt(t -> t).toArray();
+
+        usedRowKeys = IntStream.range(0, size).mapToObj(t -> rowKeys[t]).distinct().sorted().toArray(Integer[]::new);
+        usedColumnKeys = IntStream.range(0, size).mapToObj(t -> columnKeys[t]).distinct().sorted().toArray(Integer[]::new);
+    }
+
+    /** 单元格数 */
+    public int size() {
+        return values.length;
+    }
+
+    /** 按写入顺序填充表格 */
+    public void fill(Table<Integer, Integer, Double> table) {
+        for(int i = 0; i < values.length; i++)
+            table.put(rowKeys[i], columnKeys[i], values[i]);
+    }
+}
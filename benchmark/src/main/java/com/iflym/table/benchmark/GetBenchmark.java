@@ -0,0 +1,28 @@
+package com.iflym.table.benchmark;
+
+import com.google.common.collect.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * get测试,按打乱的顺序查询全部单元格
+ */
+public class GetBenchmark extends AbstractTableBenchmark {
+    private Table<Integer, Integer, Double> table;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        createCells();
+        table = kind.createAndFill(cells);
+    }
+
+    @Benchmark
+    public void get(Blackhole bh) {
+        Integer[] rowKeys = cells.getRowKeys();
+        Integer[] columnKeys = cells.getColumnKeys();
+        for(int i : cells.getProbes())
+            bh.consume(table.get(rowKeys[i], columnKeys[i]));
+    }
+}
@@ -0,0 +1,70 @@
+package com.iflym.table.benchmark;
+
+import com.google.common.collect.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+
+/**
+ * 迭代及值查找测试
+ */
+public class IterationBenchmark extends AbstractTableBenchmark {
+    private Table<Integer, Integer, Double> table;
+    /** 一个肯定存在的值,位于打乱顺序的中间位置 */
+    private Double presentValue;
+    /** 一个肯定不存在的值,需要完整扫描 */
+    private Double missingValue = -1.0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        createCells();
+        table = kind.createAndFill(cells);
+        int[] probes = cells.getProbes();
+        presentValue = cells.getValues()[probes[probes.length / 2]];
+    }
+
+    /** 迭代全部单元格 */
+    @Benchmark
+    public void cellSet(Blackhole bh) {
+        for(Table.Cell<Integer, Integer, Double> cell : table.cellSet()) {
+            bh.consume(cell.getRowKey());
+            bh.consume(cell.getColumnKey());
+            bh.consume(cell.getValue());
+        }
+    }
+
+    /** 通过row()逐行迭代 */
+    @Benchmark
+    public void rowIteration(Blackhole bh) {
+        for(Integer rowKey : cells.getUsedRowKeys()) {
+            for(Map.Entry<Integer, Double> e : table.row(rowKey).entrySet()) {
+                bh.consume(e.getKey());
+                bh.consume(e.getValue());
+            }
+        }
+    }
+
+    /** 通过column()逐列迭代 */
+    @Benchmark
+    public void columnIteration(Blackhole bh) {
+        for(Integer columnKey : cells.getUsedColumnKeys()) {
+            for(Map.Entry<Integer, Double> e : table.column(columnKey).entrySet()) {
+                bh.consume(e.getKey());
+                bh.consume(e.getValue());
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean containsValue() {
+        return table.containsValue(presentValue);
+    }
+
+    @Benchmark
+    public boolean containsValueMissing() {
+        return table.containsValue(missingValue);
+    }
+}
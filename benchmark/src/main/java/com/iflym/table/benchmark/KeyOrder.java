@@ -0,0 +1,11 @@
+package com.iflym.table.benchmark;
+
+/**
+ * 写入时key的顺序
+ */
+public enum KeyOrder {
+    /** 按行,列从小到大顺序写入 */
+    SEQUENTIAL,
+    /** 随机打乱之后写入 */
+    RANDOM
+}
@@ -0,0 +1,32 @@
+package com.iflym.table.benchmark;
+
+import com.google.common.collect.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * put测试,分为从空表开始填充以及覆盖已有单元格
+ */
+public class PutBenchmark extends AbstractTableBenchmark {
+    private Table<Integer, Integer, Double> filled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        createCells();
+        filled = kind.createAndFill(cells);
+    }
+
+    /** 从空表开始写入全部单元格,包括行列的增长 */
+    @Benchmark
+    public Table<Integer, Integer, Double> put() {
+        return kind.createAndFill(cells);
+    }
+
+    /** 在已填满的表中重新写入全部单元格,只有值的替换 */
+    @Benchmark
+    public Table<Integer, Integer, Double> overwrite() {
+        cells.fill(filled);
+        return filled;
+    }
+}
@@ -0,0 +1,50 @@
+package com.iflym.table.benchmark;
+
+import com.google.common.collect.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 删除测试,每次调用前重新填充表格,然后删除全部数据
+ * 因为填充在setup中完成,因此不计入测试时间
+ */
+public class RemoveBenchmark extends AbstractTableBenchmark {
+    private Table<Integer, Integer, Double> table;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        createCells();
+    }
+
+    @Setup(Level.Invocation)
+    public void fill() {
+        table = kind.createAndFill(cells);
+    }
+
+    /** 按打乱的顺序逐个删除单元格 */
+    @Benchmark
+    public void remove(Blackhole bh) {
+        Integer[] rowKeys = cells.getRowKeys();
+        Integer[] columnKeys = cells.getColumnKeys();
+        for(int i : cells.getProbes())
+            bh.consume(kind.remove(table, rowKeys[i], columnKeys[i]));
+    }
+
+    /** 逐行删除 */
+    @Benchmark
+    public Table<Integer, Integer, Double> removeRow() {
+        for(Integer rowKey : cells.getUsedRowKeys())
+            kind.removeRow(table, rowKey);
+        return table;
+    }
+
+    /** 逐列删除 */
+    @Benchmark
+    public Table<Integer, Integer, Double> removeColumn() {
+        for(Integer columnKey : cells.getUsedColumnKeys())
+            kind.removeColumn(table, columnKey);
+        return table;
+    }
+}
@@ -0,0 +1,24 @@
+package com.iflym.table.benchmark;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 表格的形态,稠密或稀疏
+ * 两种形态的单元格数基本一致,以方便进行对比
+ */
+@Getter
+@RequiredArgsConstructor
+public enum Shape {
+    /** 200行 x 200列,全部填满 */
+    DENSE(200, 200, 1.0),
+    /** 2000行 x 2000列,只填充1% */
+    SPARSE(2000, 2000, 0.01);
+
+    /** 行数 */
+    private final int rows;
+    /** 列数 */
+    private final int columns;
+    /** 填充率 */
+    private final double density;
+}
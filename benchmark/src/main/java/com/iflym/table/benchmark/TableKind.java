@@ -0,0 +1,107 @@
+package com.iflym.table.benchmark;
+
+import com.google.common.collect.ArrayTable;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import com.google.common.collect.TreeBasedTable;
+import com.iflym.table.ArrayTreeTable;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 参与对比的table实现
+ * ArrayTable不支持remove,因此在相应的删除操作时使用erase进行置空
+ */
+public enum TableKind {
+    ARRAY_TREE {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Table<Integer, Integer, Double> create(List<Integer> rowKeys, List<Integer> columnKeys) {
+            ArrayTreeTable<Integer, Integer, Double> table = new ArrayTreeTable<>(Integer.class, Integer.class, Double.class,
+                    (Class) IntComparator.class, (Class) IntComparator.class);
+            table.init();
+            return table;
+        }
+    },
+    HASH {
+        @Override
+        public Table<Integer, Integer, Double> create(List<Integer> rowKeys, List<Integer> columnKeys) {
+            return HashBasedTable.create();
+        }
+    },
+    TREE {
+        @Override
+        public Table<Integer, Integer, Double> create(List<Integer> rowKeys, List<Integer> columnKeys) {
+            return TreeBasedTable.create();
+        }
+    },
+    ARRAY {
+        @Override
+        public Table<Integer, Integer, Double> create(List<Integer> rowKeys, List<Integer> columnKeys) {
+            return ArrayTable.create(rowKeys, columnKeys);
+        }
+
+        @Override
+        public Double remove(Table<Integer, Integer, Double> table, Integer rowKey, Integer columnKey) {
+            return ((ArrayTable<Integer, Integer, Double>) table).erase(rowKey, columnKey);
+        }
+
+        @Override
+        public void removeRow(Table<Integer, Integer, Double> table, Integer rowKey) {
+            ArrayTable<Integer, Integer, Double> arrayTable = (ArrayTable<Integer, Integer, Double>) table;
+            for(Integer columnKey : arrayTable.columnKeyList())
+                arrayTable.erase(rowKey, columnKey);
+        }
+
+        @Override
+        public void removeColumn(Table<Integer, Integer, Double> table, Integer columnKey) {
+            ArrayTable<Integer, Integer, Double> arrayTable = (ArrayTable<Integer, Integer, Double>) table;
+            for(Integer rowKey : arrayTable.rowKeyList())
+                arrayTable.erase(rowKey, columnKey);
+        }
+    };
+
+    /** 创建空表,ArrayTable需要提前确定全部的行,列 */
+    public abstract Table<Integer, Integer, Double> create(List<Integer> rowKeys, List<Integer> columnKeys);
+
+    /** 移除单元格 */
+    public Double remove(Table<Integer, Integer, Double> table, Integer rowKey, Integer columnKey) {
+        return table.remove(rowKey, columnKey);
+    }
+
+    /** 移除整行 */
+    public void removeRow(Table<Integer, Integer, Double> table, Integer rowKey) {
+        if(table instanceof ArrayTreeTable) {
+            ((ArrayTreeTable<Integer, Integer, Double>) table).removeRow(rowKey);
+            return;
+        }
+
+        table.row(rowKey).clear();
+    }
+
+    /** 移除整列 */
+    public void removeColumn(Table<Integer, Integer, Double> table, Integer columnKey) {
+        if(table instanceof ArrayTreeTable) {
+            ((ArrayTreeTable<Integer, Integer, Double>) table).removeColumn(columnKey);
+            return;
+        }
+
+        table.column(columnKey).clear();
+    }
+
+    /** 按指定的单元格创建并填充表 */
+    public Table<Integer, Integer, Double> createAndFill(Cells cells) {
+        Table<Integer, Integer, Double> table = create(cells.getRowKeyList(), cells.getColumnKeyList());
+        cells.fill(table);
+        return table;
+    }
+
+    /** ArrayTreeTable使用的比较器,需要有无参构建函数 */
+    public static class IntComparator implements Comparator<Integer> {
+        @Override
+        public int compare(Integer o1, Integer o2) {
+            return Integer.compare(o1, o2);
+        }
+    }
+}
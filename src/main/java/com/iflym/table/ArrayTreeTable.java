@@ -1,18 +1,29 @@
 package com.iflym.table;
 
 import com.alibaba.fastjson.annotation.JSONField;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+import com.iflym.table.util.ArrayUtils;
 import com.iflym.table.util.BitSetUtils;
 import com.iflym.table.util.ClassUtils;
+import com.iflym.table.util.ComparatorUtils;
 import lombok.*;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
 
 /**
  * tree化的表,支持按行,按列比较
@@ -25,11 +36,18 @@ import java.util.*;
 @Setter
 @NoArgsConstructor
 @RequiredArgsConstructor
-@EqualsAndHashCode
-@ToString(exclude = {"rowMap", "columnMap", "cellSet", "valueCollection"})
+@ToString(exclude = {"rowMap", "columnMap", "cellSet", "valueCollection", "rowSize", "columnSize", "rowCapacity", "columnCapacity", "emptyRow",
+        "rowBits", "cellSize", "rowKeys", "columnKeys", "rowOrdinals", "columnOrdinals", "readOnly", "sharedOuter", "sharedRows", "modCount",
+        "columnCounts", "emptyRows", "emptyColumns", "lazyCompaction", "valueIndex", "rowNatural", "columnNatural",
+        "rowDictionary", "columnDictionary"})
 @JsonPropertyOrder(value = {"columnClass", "rowClass", "valueClass", "rowComparatorClass", "columnComparatorClass"})
 @JsonDeserialize(using = com.iflym.table.jackson.ArrayTreeTableDeserializer.class)
 public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
+    /** 延迟整理时,墓碑数至少达到此数量才自动整理,避免小表频繁整理 */
+    private static final int LAZY_COMPACT_MIN = 16;
+    /** 数值汇总时,行数乘以列数超过此值才按行范围拆分为fork-join任务 */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
     //---------------------------- 相应的类型信息 start ------------------------------//
     @NonNull
     @JSONField(ordinal = 1)
@@ -58,17 +76,29 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
 
     //---------------------------- 实际存储 start ------------------------------//
 
-    /** 位置信息,存储当前下标 */
+    /**
+     * 位置信息,key到下标的映射
+     * 仅用于序列化和反序列化,在init时转换为有序的key数组,之后不再维护,下标由key数组二分查找得出
+     */
     @JSONField(ordinal = 6)
+    @Getter(AccessLevel.NONE)
     private TreeMap<R, Integer> rowIndex;
     @JSONField(ordinal = 7)
+    @Getter(AccessLevel.NONE)
     private TreeMap<C, Integer> columnIndex;
 
-    /** 实际存储的值 */
+    /**
+     * 实际存储的值
+     * 行数组的长度为行容量,只有前rowSize行有效,后面的行为null
+     * 每一行的长度为当前行的列容量,不一定与列数相同
+     */
     @JSONField(ordinal = 8)
     private V[][] innerV;
 
-    /** 存储的位置信息 */
+    /**
+     * 存储的位置信息,按 行下标 * 列数 + 列下标 排列
+     * 仅用于序列化和反序列化,在init时转换为每行的位图,之后不再维护
+     */
     @JSONField(ordinal = 9)
     private long[] bits;
 
@@ -77,7 +107,125 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
     //---------------------------- 引申对象 start ------------------------------//
     private transient Comparator<? super R> rowComparator;
     private transient Comparator<? super C> columnComparator;
-    private transient BitSet bitsSet;
+
+    /** 行,列比较器是否为自然顺序,是时查找下标直接使用key的compareTo,不经过比较器 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient boolean rowNatural;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient boolean columnNatural;
+
+    /** 共用的行,列key字典,绑定之后key均使用字典中的实例;只是运行时的绑定,不参与序列化 */
+    @Setter(AccessLevel.NONE)
+    @JsonIgnore
+    private transient AxisDictionary<R> rowDictionary;
+    @Setter(AccessLevel.NONE)
+    @JsonIgnore
+    private transient AxisDictionary<C> columnDictionary;
+
+    /** 每行的存在位,与innerV的行一一对应,行移动时整体移动,列增减时在行内移位 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient long[][] rowBits;
+
+    /**
+     * 按比较器有序排列的行,列key,与innerV的行,列一一对应
+     * key在数组中的位置即为其下标,由二分查找得出,增减行列时只需整体移动,不再需要逐个修改后面的下标
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient R[] rowKeys;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient C[] columnKeys;
+
+    /**
+     * 绑定字典之后,行,列key不再保存实例,只按同样的顺序保存其在字典中的序号,此时相应的key数组为null
+     * 字典的顺序与表的顺序一致,序号同样有序,查找时先在字典中找到序号,再在序号中二分查找
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient int[] rowOrdinals;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient int[] columnOrdinals;
+
+    /** 单元格数 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient int cellSize;
+
+    /** 实际的行数,列数 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient int rowSize;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient int columnSize;
+
+    /** 预分配的行,列容量,新建的行会直接按列容量分配 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient int rowCapacity;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient int columnCapacity;
+
+    /** 共享的空行,新增行时在没有列容量时使用 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient V[] emptyRow;
+
+    /** 每列的单元格数,与列key一一对应,用于O(1)判断列是否已空 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient int[] columnCounts;
+
+    /** 已经没有数据但仍保留位置的行,列数(墓碑),只在延迟整理时出现,各个视图均跳过这些行,列 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient int emptyRows;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient int emptyColumns;
+
+    /**
+     * 是否延迟整理,为true时最后一个单元格被移除的行,列先保留为墓碑,再次放入时不需要重新增长行列
+     * 墓碑超过行(列)数的1/4时自动整理,也可以调用compact整理
+     * 只是运行时的设置,不参与序列化
+     */
+    @Setter(AccessLevel.NONE)
+    @JsonIgnore
+    private transient boolean lazyCompaction;
+
+    /**
+     * 可选的值索引,值到所在位置(行,列key)的映射,同一个值有多个位置时为位置的列表
+     * 启用之后containsValue,cell,removeValue不再需要遍历所有的单元格
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Map<V, Object> valueIndex;
+
+    /** 结构性修改(增减单元格,行,列)的次数,用于迭代器快速失败 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient int modCount;
+
+    /** 是否为snapshot生成的只读快照 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient boolean readOnly;
+
+    /** 外层的innerV,rowBits以及行,列key数组是否与快照共享,共享时在下一次修改前整体复制 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient boolean sharedOuter;
+
+    /** 与快照共享的行,按行下标排列,共享的行在修改前先复制该行的值以及存在位,行增减时同步移位 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient long[] sharedRows;
     //---------------------------- 引申对象 end ------------------------------//
 
     //---------------------------- 过程中使用临时对象 start ------------------------------//
@@ -88,6 +236,28 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
 
     //---------------------------- 过程中使用临时对象 end ------------------------------//
 
+    /** 预分配容量的构建函数,在行,列数量可预知时使用,以避免增长时的重新分配 */
+    public ArrayTreeTable(@NonNull Class<R> rowClass, @NonNull Class<C> columnClass, @NonNull Class<V> valueClass,
+                          @NonNull Class<Comparator<R>> rowComparatorClass, @NonNull Class<Comparator<C>> columnComparatorClass,
+                          int rowCapacity, int columnCapacity) {
+        this(rowClass, columnClass, valueClass, rowComparatorClass, columnComparatorClass);
+        this.rowCapacity = rowCapacity;
+        this.columnCapacity = columnCapacity;
+    }
+
+    /**
+     * 直接使用比较器实例的构建函数,可以使用lambda以及Comparator.naturalOrder()等没有无参构造函数的比较器
+     * 比较器类型记录为实例的类型,序列化时只写出类名;lambda,方法引用以及Comparator.comparing等创建的比较器不能按类名重新创建,
+     * 使用这类比较器的表只能在内存中使用,不支持序列化,紧凑序列化以及MappedTableWriter写出时会直接报错
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayTreeTable(@NonNull Class<R> rowClass, @NonNull Class<C> columnClass, @NonNull Class<V> valueClass,
+                          @NonNull Comparator<? super R> rowComparator, @NonNull Comparator<? super C> columnComparator) {
+        this(rowClass, columnClass, valueClass, (Class<Comparator<R>>) rowComparator.getClass(), (Class<Comparator<C>>) columnComparator.getClass());
+        this.rowComparator = rowComparator;
+        this.columnComparator = columnComparator;
+    }
+
     /** 必要的初始化,在调用new或者反序列化之后,必须要调用的方法 */
     @SuppressWarnings("unchecked")
     public void init() {
@@ -96,20 +266,449 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
         columnClass = _boxClass(columnClass);
         valueClass = _boxClass(valueClass);
 
-        rowComparator = ClassUtils.newInstanceUseConstructor(rowComparatorClass);
-        columnComparator = ClassUtils.newInstanceUseConstructor(columnComparatorClass);
+        //已指定实例时直接使用,否则由全局缓存获取,不再每次反射创建
+        if(rowComparator == null)
+            rowComparator = ComparatorUtils.get(rowComparatorClass);
+        if(columnComparator == null)
+            columnComparator = ComparatorUtils.get(columnComparatorClass);
+        rowNatural = ComparatorUtils.isNaturalOrder(rowComparator);
+        columnNatural = ComparatorUtils.isNaturalOrder(columnComparator);
 
         //正向初始化
-        if(rowIndex == null)
-            rowIndex = Maps.newTreeMap(rowComparator);
-        if(columnIndex == null)
-            columnIndex = Maps.newTreeMap(columnComparator);
         if(innerV == null)
             innerV = (V[][]) Array.newInstance(valueClass, 0, 0);
+        emptyRow = (V[]) Array.newInstance(valueClass, 0);
+
+        //位置信息转换为有序的key数组,treeMap的key顺序即为下标顺序
+        //由load装载或重复init时已经存在key数组,直接使用
+        if(rowIndex != null) {
+            rowSize = rowIndex.size();
+            rowKeys = (R[]) Array.newInstance(rowClass, Math.max(innerV.length, rowSize));
+            rowIndex.keySet().toArray(rowKeys);
+        } else if(rowKeys == null && rowOrdinals == null) {
+            rowSize = 0;
+            rowKeys = (R[]) Array.newInstance(rowClass, innerV.length);
+        } else if(_rowKeyCapacity() < innerV.length)
+            _growRowKeys(innerV.length);
+        if(columnIndex != null) {
+            columnSize = columnIndex.size();
+            columnKeys = (C[]) Array.newInstance(columnClass, columnSize);
+            columnIndex.keySet().toArray(columnKeys);
+        } else if(columnKeys == null && columnOrdinals == null) {
+            columnSize = 0;
+            columnKeys = (C[]) Array.newInstance(columnClass, 0);
+        }
+        rowIndex = null;
+        columnIndex = null;
+        _initRowBits();
+        ensureCapacity(rowCapacity, columnCapacity);
+
+        //装载的数据中有空的行或列时直接整理掉
+        _countColumns();
+        emptyRows = 0;
+        for(int i = 0; i < rowSize; i++) {
+            if(_isRowEmpty(i))
+                emptyRows++;
+        }
+        if(emptyRows > 0 || emptyColumns > 0)
+            _compact();
+        if(valueIndex != null)
+            _rebuildValueIndex();
+        if(rowDictionary != null && rowKeys != null) {
+            _checkDictionary(rowDictionary, rowComparator);
+            rowOrdinals = _toOrdinals(rowKeys, rowSize, rowKeys.length, rowDictionary);
+            rowKeys = null;
+        }
+        if(columnDictionary != null && columnKeys != null) {
+            _checkDictionary(columnDictionary, columnComparator);
+            columnOrdinals = _toOrdinals(columnKeys, columnSize, columnKeys.length, columnDictionary);
+            columnKeys = null;
+        }
+    }
+
+    /**
+     * 绑定共用的行key字典,已有的行key转换为字典中的序号,之后只能放入字典中的行key,读取时返回字典中的实例
+     * 字典的比较器需要与表的行比较器一致,传入null时解除绑定,序号转换回key;在init之前设置时由init处理
+     */
+    public void setRowDictionary(@Nullable AxisDictionary<R> rowDictionary) {
+        if(rowBits != null) {
+            if(rowDictionary != null)
+                _checkDictionary(rowDictionary, rowComparator);
+            _beforeWrite();
+            //先由原来的存储得到key,全部转换成功之后再替换
+            R[] keys = _rowKeyArray(_rowKeyCapacity());
+            if(rowDictionary != null) {
+                rowOrdinals = _toOrdinals(keys, rowSize, keys.length, rowDictionary);
+                rowKeys = null;
+            } else {
+                rowKeys = keys;
+                rowOrdinals = null;
+            }
+        }
+        this.rowDictionary = rowDictionary;
+    }
+
+    /** 绑定共用的列key字典,参见setRowDictionary */
+    public void setColumnDictionary(@Nullable AxisDictionary<C> columnDictionary) {
+        if(rowBits != null) {
+            if(columnDictionary != null)
+                _checkDictionary(columnDictionary, columnComparator);
+            _beforeWrite();
+            C[] keys = _columnKeyArray(_columnKeyCapacity());
+            if(columnDictionary != null) {
+                columnOrdinals = _toOrdinals(keys, columnSize, keys.length, columnDictionary);
+                columnKeys = null;
+            } else {
+                columnKeys = keys;
+                columnOrdinals = null;
+            }
+        }
+        this.columnDictionary = columnDictionary;
+    }
+
+    private static void _checkDictionary(AxisDictionary<?> dictionary, Comparator<?> comparator) {
+        Comparator<?> used = dictionary.comparator();
+        if(!_sameOrder(used, comparator))
+            throw new IllegalArgumentException("字典的比较器与表的比较器不一致:" + used.getClass());
+    }
+
+    /** 将前size个key转换为字典中的序号,有不在字典中的key时抛出IllegalArgumentException */
+    private static <K> int[] _toOrdinals(K[] keys, int size, int capacity, AxisDictionary<K> dictionary) {
+        int[] ordinals = new int[capacity];
+        for(int i = 0; i < size; i++) {
+            int ordinal = dictionary.ordinal(keys[i]);
+            if(ordinal < 0)
+                throw new IllegalArgumentException("key不在字典中:" + keys[i]);
+            ordinals[i] = ordinal;
+        }
+
+        return ordinals;
+    }
+
+    /** 由字典中的序号得到前size个key,数组长度为指定的容量 */
+    @SuppressWarnings("unchecked")
+    private static <K> K[] _toKeys(int[] ordinals, int size, int capacity, Class<K> keyClass, AxisDictionary<K> dictionary) {
+        K[] keys = (K[]) Array.newInstance(keyClass, capacity);
+        for(int i = 0; i < size; i++)
+            keys[i] = dictionary.key(ordinals[i]);
+
+        return keys;
+    }
+
+    /** 在有序的序号中查找key的下标,不存在时返回 -(插入位置) - 1 */
+    private static int _ordinalIdx(int[] ordinals, int size, AxisDictionary<?> dictionary, Object key) {
+        int ordinal = dictionary._search(key);
+        if(ordinal >= 0)
+            return Arrays.binarySearch(ordinals, 0, size, ordinal);
+
+        //不在字典中时,插入位置即为第一个比key大的字典key在表中的插入位置
+        int idx = Arrays.binarySearch(ordinals, 0, size, -ordinal - 1);
+        return -(idx >= 0 ? idx : -idx - 1) - 1;
+    }
+
+    /** 行key存储的容量 */
+    private int _rowKeyCapacity() {
+        return rowOrdinals != null ? rowOrdinals.length : rowKeys.length;
+    }
+
+    /** 列key存储的容量 */
+    private int _columnKeyCapacity() {
+        return columnOrdinals != null ? columnOrdinals.length : columnKeys.length;
+    }
+
+    /** 将行key存储扩展到指定的容量 */
+    private void _growRowKeys(int capacity) {
+        if(rowOrdinals != null)
+            rowOrdinals = Arrays.copyOf(rowOrdinals, capacity);
+        else
+            rowKeys = Arrays.copyOf(rowKeys, capacity);
+    }
+
+    /** 将列key存储扩展到指定的容量 */
+    private void _growColumnKeys(int capacity) {
+        if(columnOrdinals != null)
+            columnOrdinals = Arrays.copyOf(columnOrdinals, capacity);
+        else
+            columnKeys = Arrays.copyOf(columnKeys, capacity);
+    }
+
+    /** 在指定位置空出一个行key,之后的整体后移,容量不够时按比例增长 */
+    private void _insertRowKey(int putIndex) {
+        if(rowOrdinals != null)
+            rowOrdinals = ArrayUtils.insert(rowOrdinals, rowSize, putIndex);
+        else
+            rowKeys = ArrayUtils.insert(rowKeys, rowSize, putIndex);
+    }
+
+    /** 在指定位置空出一个列key,参见_insertRowKey */
+    private void _insertColumnKey(int putIndex) {
+        if(columnOrdinals != null)
+            columnOrdinals = ArrayUtils.insert(columnOrdinals, columnSize, putIndex);
+        else
+            columnKeys = ArrayUtils.insert(columnKeys, columnSize, putIndex);
+    }
+
+    /** 在行key存储内整体移动,与System.arraycopy相同 */
+    private void _moveRowKeys(int from, int to, int length) {
+        if(rowOrdinals != null)
+            System.arraycopy(rowOrdinals, from, rowOrdinals, to, length);
+        else
+            System.arraycopy(rowKeys, from, rowKeys, to, length);
+    }
+
+    /** 在列key存储内整体移动,与System.arraycopy相同 */
+    private void _moveColumnKeys(int from, int to, int length) {
+        if(columnOrdinals != null)
+            System.arraycopy(columnOrdinals, from, columnOrdinals, to, length);
+        else
+            System.arraycopy(columnKeys, from, columnKeys, to, length);
+    }
+
+    /** 设置指定下标的行key,绑定字典时记录其序号,key需要已在字典中 */
+    private void _setRowKey(int rowIdx, R rowKey) {
+        if(rowOrdinals != null)
+            rowOrdinals[rowIdx] = rowDictionary.ordinal(rowKey);
+        else
+            rowKeys[rowIdx] = rowKey;
+    }
+
+    /** 设置指定下标的列key,参见_setRowKey */
+    private void _setColumnKey(int columnIdx, C columnKey) {
+        if(columnOrdinals != null)
+            columnOrdinals[columnIdx] = columnDictionary.ordinal(columnKey);
+        else
+            columnKeys[columnIdx] = columnKey;
+    }
+
+    /** 清除指定范围内的行key引用,序号不需要清除 */
+    private void _clearRowKeys(int from, int to) {
+        if(rowKeys != null)
+            Arrays.fill(rowKeys, from, to, null);
+    }
+
+    /** 清除指定范围内的列key引用,序号不需要清除 */
+    private void _clearColumnKeys(int from, int to) {
+        if(columnKeys != null)
+            Arrays.fill(columnKeys, from, to, null);
+    }
+
+    /** 前rowSize个行key组成的新数组,用于整体运算,数组长度为指定的容量 */
+    private R[] _rowKeyArray(int capacity) {
+        if(rowOrdinals != null)
+            return _toKeys(rowOrdinals, rowSize, capacity, rowClass, rowDictionary);
+        return Arrays.copyOf(rowKeys, capacity);
+    }
+
+    /** 前columnSize个列key组成的新数组,参见_rowKeyArray */
+    private C[] _columnKeyArray(int capacity) {
+        if(columnOrdinals != null)
+            return _toKeys(columnOrdinals, columnSize, capacity, columnClass, columnDictionary);
+        return Arrays.copyOf(columnKeys, capacity);
+    }
+
+    /** 由各行的存在位重新计算每列的单元格数以及空列数 */
+    private void _countColumns() {
+        columnCounts = new int[_columnKeyCapacity()];
+        for(int i = 0; i < rowSize; i++) {
+            long[] words = rowBits[i];
+            for(int k = BitSetUtils.nextSetBit(words, 0); k >= 0; k = BitSetUtils.nextSetBit(words, k + 1))
+                columnCounts[k]++;
+        }
+
+        emptyColumns = 0;
+        for(int k = 0; k < columnSize; k++) {
+            if(columnCounts[k] == 0)
+                emptyColumns++;
+        }
+    }
+
+    /** 设置是否延迟整理,关闭时立即整理已有的墓碑 */
+    public void setLazyCompaction(boolean lazyCompaction) {
+        this.lazyCompaction = lazyCompaction;
+        if(!lazyCompaction && rowBits != null)
+            compact();
+    }
+
+    /** 是否启用了值索引,只是运行时的设置,不参与序列化,两种格式读取之后均不启用 */
+    @JsonIgnore
+    @JSONField(serialize = false)
+    public boolean isValueIndexed() {
+        return valueIndex != null;
+    }
+
+    /**
+     * 启用或关闭值索引,启用时由当前数据建立索引,之后在修改时维护
+     * 适合经常按值查找单元格的场景,会额外占用每个单元格一个索引项
+     */
+    public void setValueIndexed(boolean valueIndexed) {
+        if(!valueIndexed)
+            valueIndex = null;
+        else if(valueIndex == null) {
+            valueIndex = new HashMap<>();
+            if(rowBits != null)
+                _rebuildValueIndex();
+        }
+    }
+
+    /** 移除没有数据的行,列(墓碑),只在延迟整理时需要 */
+    public void compact() {
+        _beforeWrite();
+        if(emptyRows > 0 || emptyColumns > 0)
+            _compact();
+    }
+
+    /**
+     * 直接装载有序的行,列key以及相应的值,由反序列化器使用,避免经由TreeMap以及V[][]的中转
+     * key数组需要已按比较器有序并且没有重复,长度可以大于实际的数量;值的行与行key一一对应,没有值的格子为null
+     * 存在位可以通过setBits一并设置,否则由值计算.装载之后仍需要调用init
+     */
+    public void load(R[] rowKeys, int rowSize, C[] columnKeys, int columnSize, V[][] innerV) {
+        this.rowKeys = rowKeys;
+        this.rowSize = rowSize;
+        this.columnKeys = columnKeys;
+        this.columnSize = columnSize;
+        this.rowOrdinals = null;
+        this.columnOrdinals = null;
+        this.innerV = innerV;
+        this.rowIndex = null;
+        this.columnIndex = null;
+    }
+
+    /** 将序列化的位置信息转换为每行的位图,没有位置信息时直接由值来计算 */
+    private void _initRowBits() {
+        rowBits = new long[innerV.length][];
+        for(int i = 0; i < rowSize; i++)
+            rowBits[i] = BitSetUtils.EMPTY;
+
+        cellSize = 0;
+        if(bits != null) {
+            for(int i = BitSetUtils.nextSetBit(bits, 0); i >= 0; i = BitSetUtils.nextSetBit(bits, i + 1)) {
+                int rowIdx = i / columnSize;
+                rowBits[rowIdx] = BitSetUtils.set(rowBits[rowIdx], i % columnSize);
+                cellSize++;
+            }
+        } else {
+            for(int i = 0; i < rowSize; i++) {
+                V[] vv = innerV[i];
+                for(int k = 0; k < vv.length; k++) {
+                    if(vv[k] != null) {
+                        rowBits[i] = BitSetUtils.set(rowBits[i], k);
+                        cellSize++;
+                    }
+                }
+            }
+        }
+
+        //之后位置信息由rowBits维护,只在序列化时重新生成
+        bits = null;
+    }
+
+    /**
+     * 保证在行数,列数分别达到指定值之前,新增行列时不再需要重新分配存储
+     * 已存在的行也会扩展到指定的列容量
+     */
+    public void ensureCapacity(int rows, int columns) {
+        _beforeWrite();
+        if(innerV.length < rows) {
+            innerV = Arrays.copyOf(innerV, rows);
+            rowBits = Arrays.copyOf(rowBits, rows);
+            _growRowKeys(rows);
+        }
+        if(_columnKeyCapacity() < columns) {
+            _growColumnKeys(columns);
+            if(columnCounts != null)
+                columnCounts = Arrays.copyOf(columnCounts, columns);
+        }
+        rowCapacity = Math.max(rowCapacity, rows);
+
+        if(columns > columnCapacity) {
+            columnCapacity = columns;
+            for(int i = 0; i < rowSize; i++) {
+                V[] vv = innerV[i];
+                if(vv.length < columns)
+                    innerV[i] = Arrays.copyOf(vv, columns);
+            }
+        }
+    }
+
+    /**
+     * 获取实际存储的值,用于序列化
+     * 内部存储带有预留的容量,这里返回按实际行数以及每行最后一个有效值截断之后的副本
+     */
+    @SuppressWarnings("unchecked")
+    public V[][] getInnerV() {
+        int[] columnMapping = _liveColumnMapping();
+        V[][] result = (V[][]) Array.newInstance(valueClass, rowSize - emptyRows, 0);
+        for(int i = 0, idx = 0; i < rowSize; i++) {
+            if(!_isRowLive(i))
+                continue;
+
+            V[] vv = innerV[i];
+            if(columnMapping != null) {
+                //跳过墓碑列,值按整理之后的列下标放置
+                V[] mapped = (V[]) Array.newInstance(valueClass, columnSize - emptyColumns);
+                for(int k = BitSetUtils.nextSetBit(rowBits[i], 0); k >= 0; k = BitSetUtils.nextSetBit(rowBits[i], k + 1))
+                    mapped[columnMapping[k]] = vv[k];
+                vv = mapped;
+            }
+            int length = Math.min(vv.length, columnSize - emptyColumns);
+            while(length > 0 && vv[length - 1] == null)
+                length--;
+            result[idx++] = Arrays.copyOf(vv, length);
+        }
+
+        return result;
+    }
+
+    /** 获取行位置信息,用于序列化,由有序的行key重新生成 */
+    public TreeMap<R, Integer> getRowIndex() {
+        if(rowBits == null)
+            return rowIndex;
+
+        TreeMap<R, Integer> result = Maps.newTreeMap(rowComparator);
+        for(int i = 0, idx = 0; i < rowSize; i++) {
+            if(_isRowLive(i))
+                result.put(_rKey(i), idx++);
+        }
+
+        return result;
+    }
+
+    /** 获取列位置信息,用于序列化,由有序的列key重新生成 */
+    public TreeMap<C, Integer> getColumnIndex() {
+        if(rowBits == null)
+            return columnIndex;
+
+        TreeMap<C, Integer> result = Maps.newTreeMap(columnComparator);
+        for(int i = 0, idx = 0; i < columnSize; i++) {
+            if(_isColumnLive(i))
+                result.put(_cKey(i), idx++);
+        }
+
+        return result;
+    }
+
+    /** 获取存在位,用于序列化,由每行的位图按 行下标 * 列数 + 列下标 重新生成 */
+    public long[] getBits() {
+        if(rowBits == null)
+            return bits;
+
+        int[] columnMapping = _liveColumnMapping();
+        int liveColumnSize = columnSize - emptyColumns;
+        long[] result = new long[BitSetUtils.wordsFor((rowSize - emptyRows) * liveColumnSize)];
+        for(int i = 0, rowIdx = 0; i < rowSize; i++) {
+            if(!_isRowLive(i))
+                continue;
 
-        if(bits == null)
-            bits = new long[1];
-        bitsSet = BitSet.valueOf(bits);
+            long[] words = rowBits[i];
+            int start = rowIdx++ * liveColumnSize;
+            for(int k = BitSetUtils.nextSetBit(words, 0); k >= 0; k = BitSetUtils.nextSetBit(words, k + 1)) {
+                int idx = start + (columnMapping == null ? k : columnMapping[k]);
+                result[idx >>> 6] |= 1L << idx;
+            }
+        }
+
+        return result;
     }
 
     //---------------------------- 内部各种方法 start ------------------------------//
@@ -156,151 +755,184 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
         return (V) value;
     }
 
-    /** 增长行,同时迁移之前相应的下标位 */
+    /** 创建新行,有列容量时直接按容量分配 */
     @SuppressWarnings("unchecked")
-    private Integer _incRow(R rowKey) {
-        int rowSize = rowIndex.size();
-        int columnSize = columnIndex.size();
-
-        NavigableMap<R, Integer> tailMap = rowIndex.tailMap(rowKey, false);
-        Integer putIndex = tailMap.isEmpty() ? rowSize : tailMap.firstEntry().getValue();
-
-        //后面相应的下标项+1,之前的数据进行移位,然后新放入的数据相应的下标就是最前一位的下标
+    private V[] _newRow() {
+        return columnCapacity == 0 ? emptyRow : (V[]) Array.newInstance(valueClass, columnCapacity);
+    }
 
-        //下标移位
-        tailMap.entrySet().forEach(t -> t.setValue(t.getValue() + 1));
+    /** 查找行下标,不存在时返回 -(插入位置) - 1,ConcurrentArrayTreeTable按行下标分段加锁时使用 */
+    int _rowIdx(R rowKey) {
+        if(rowOrdinals != null)
+            return _ordinalIdx(rowOrdinals, rowSize, rowDictionary, rowKey);
+        if(rowNatural)
+            return Arrays.binarySearch(rowKeys, 0, rowSize, rowKey);
+        return Arrays.binarySearch(rowKeys, 0, rowSize, rowKey, rowComparator);
+    }
 
-        //数据移位
-        int needMove = rowSize - putIndex;
-        @SuppressWarnings("unchecked")
-        V[][] newInnerV = (V[][]) Array.newInstance(valueClass, rowSize + 1, 0);
-        System.arraycopy(innerV, 0, newInnerV, 0, putIndex);
-        //需要移位,表示高位有数据要迁移,否则就不需要迁移(强行迁移反而会出错)
-        if(needMove > 0) {
-            System.arraycopy(innerV, putIndex, newInnerV, putIndex + 1, needMove);
+    /** 查找列下标,不存在时返回 -(插入位置) - 1 */
+    private int _columnIdx(C columnKey) {
+        if(columnOrdinals != null)
+            return _ordinalIdx(columnOrdinals, columnSize, columnDictionary, columnKey);
+        if(columnNatural)
+            return Arrays.binarySearch(columnKeys, 0, columnSize, columnKey);
+        return Arrays.binarySearch(columnKeys, 0, columnSize, columnKey, columnComparator);
+    }
 
-            //位置重新计算,上面的位置全部移到后面+列长度的位置上
-            int startIdx = putIndex * columnSize;
-            _resetRowBits(startIdx, columnSize, true);
-        }
-        innerV = newInnerV;
+    /** 在指定位置增长行,之后的行整体后移 */
+    private int _incRow(R rowKey, int putIndex) {
+        //数据,存在位及key在原数组上直接后移,容量不够时按比例增长,避免每次新增行都重新分配
+        innerV = ArrayUtils.insert(innerV, rowSize, putIndex);
+        rowBits = ArrayUtils.insert(rowBits, rowSize, putIndex);
+        _insertRowKey(putIndex);
+        rowSize++;
+        modCount++;
+        if(sharedRows != null)
+            sharedRows = BitSetUtils.insert(sharedRows, putIndex);
 
         //新数据放入
-        rowIndex.put(rowKey, putIndex);
-        innerV[putIndex] = (V[]) Array.newInstance(valueClass, 0);
+        _setRowKey(putIndex, rowKey);
+        innerV[putIndex] = _newRow();
+        rowBits[putIndex] = BitSetUtils.EMPTY;
 
         return putIndex;
     }
 
-    /** 减少行, 迁移相应的下标位 */
-    @SuppressWarnings("unchecked")
-    private void _decRow(R rowKey, int rowIdx) {
-        int rowSize = rowIndex.size();
-        int columnSize = columnIndex.size();
+    /** 减少行,之后的行整体前移 */
+    private void _decRow(int rowIdx) {
+        //数据,存在位及key在原数组上直接前移,并清除最后一行的引用
+        ArrayUtils.delete(innerV, rowSize, rowIdx);
+        ArrayUtils.delete(rowBits, rowSize, rowIdx);
+        ArrayUtils.delete(rowOrdinals != null ? rowOrdinals : rowKeys, rowSize, rowIdx);
+        rowSize--;
+        modCount++;
+        if(sharedRows != null)
+            BitSetUtils.delete(sharedRows, rowIdx);
+    }
 
-        NavigableMap<R, Integer> tailMap = rowIndex.tailMap(rowKey, false);
-        //下标移位
-        tailMap.entrySet().forEach(t -> t.setValue(t.getValue() - 1));
-        rowIndex.remove(rowKey);
+    /** 修改之前的处理,快照不允许修改;外层数组与快照共享时先整体复制,之后各行仍共享,在修改时按行复制 */
+    private void _beforeWrite() {
+        if(readOnly)
+            throw new UnsupportedOperationException("快照为只读");
+        if(sharedOuter) {
+            innerV = innerV.clone();
+            rowBits = rowBits.clone();
+            if(rowKeys != null)
+                rowKeys = rowKeys.clone();
+            else
+                rowOrdinals = rowOrdinals.clone();
+            if(columnKeys != null)
+                columnKeys = columnKeys.clone();
+            else
+                columnOrdinals = columnOrdinals.clone();
+            columnCounts = columnCounts.clone();
+            sharedOuter = false;
+        }
+    }
 
-        //数据移位
-        int newRowSize = rowSize - 1;
-        V[][] newInnerV = (V[][]) Array.newInstance(valueClass, newRowSize, 0);
-        System.arraycopy(innerV, 0, newInnerV, 0, rowIdx);
-        int needMove = newRowSize - rowIdx;
-        System.arraycopy(innerV, rowIdx + 1, newInnerV, rowIdx, needMove);
-        innerV = newInnerV;
+    /**
+     * 立即复制所有与快照共享的存储,之后的修改不再需要写时复制
+     * ConcurrentArrayTreeTable在包装时调用,因为其不同行的写入在读锁下并行,不能再各自复制外层数组
+     */
+    void _ownStorage() {
+        if(readOnly)
+            throw new IllegalArgumentException("快照为只读,不能再作为可修改的表使用");
+
+        _beforeWrite();
+        if(sharedRows != null) {
+            for(int i = BitSetUtils.nextSetBit(sharedRows, 0); i >= 0; i = BitSetUtils.nextSetBit(sharedRows, i + 1))
+                _ownRow(i);
+            sharedRows = null;
+        }
+    }
 
-        //标记位重建
-        int startIdx = (rowIdx + 1) * columnSize;
-        _resetRowBits(startIdx, columnSize, false);
+    /** 修改指定行之前的处理,该行与快照共享时先复制该行的值以及存在位 */
+    private void _ownRow(int rowIdx) {
+        if(sharedRows != null && BitSetUtils.get(sharedRows, rowIdx)) {
+            innerV[rowIdx] = innerV[rowIdx].clone();
+            rowBits[rowIdx] = rowBits[rowIdx].clone();
+            BitSetUtils.clear(sharedRows, rowIdx);
+        }
     }
 
-    /** 将指定的数组增长至指定位数 */
+    /** 将指定的数组按比例增长至至少指定位数 */
     private V[] _incArray(V[] vv, int size) {
-        @SuppressWarnings("unchecked")
-        V[] newVv = (V[]) Array.newInstance(valueClass, size);
-        System.arraycopy(vv, 0, newVv, 0, vv.length);
-        return newVv;
+        return Arrays.copyOf(vv, ArrayUtils.grow(vv.length, size));
     }
 
-    /** 增长列,同时迁移相应的下标位 */
-    @SuppressWarnings("unchecked")
-    private Integer _incColumn(C columnKey) {
-        int columnSize = columnIndex.size();
-
-        NavigableMap<C, Integer> tailMap = columnIndex.tailMap(columnKey, false);
-        Integer putIndex = tailMap.isEmpty() ? columnSize : tailMap.firstEntry().getValue();
-
-        //后面相应的下标项+1,之前的数据进行移位,然后新放入的数据相应的下标就是最前一位的下标
-
-        //下标移位
-        tailMap.entrySet().forEach(t -> t.setValue(t.getValue() + 1));
-
-        //数据移位
+    /** 在指定位置增长列,之后的列在每行内整体后移 */
+    private int _incColumn(C columnKey, int putIndex) {
+        //数据移位,新增的列在最后时不需要处理
         int needMove = columnSize - putIndex;
         if(needMove > 0) {
-            for(int i = 0; i < innerV.length; i++) {
+            for(int i = 0; i < rowSize; i++) {
                 V[] vv = innerV[i];
-                int currentMove = vv.length - putIndex;
                 //当前存储的列还不够应该放的长度,即表示不需要迁移,因为之前的数据都比要放的位置小
-                if(currentMove < 0)
+                if(vv.length <= putIndex)
                     continue;
 
-                @SuppressWarnings("unchecked")
-                V[] newVv = (V[]) Array.newInstance(valueClass, vv.length + 1);
-
-                System.arraycopy(vv, 0, newVv, 0, putIndex);
-                System.arraycopy(vv, putIndex, newVv, putIndex + 1, currentMove);
-                innerV[i] = newVv;
+                _ownRow(i);
+                vv = innerV[i];
+                //行内还有剩余容量时直接原地后移,否则按比例增长
+                int currentMove = Math.min(vv.length, columnSize) - putIndex;
+                if(vv.length <= columnSize)
+                    innerV[i] = vv = _incArray(vv, columnSize + 1);
+                System.arraycopy(vv, putIndex, vv, putIndex + 1, currentMove);
+                vv[putIndex] = null;
+
+                //存在位在行内后移
+                rowBits[i] = BitSetUtils.insert(rowBits[i], putIndex);
             }
         }
 
-        //重建索引位
-        _resetColumnBits(putIndex, putIndex, columnSize, true);
+        //key以及列单元格数移位
+        _insertColumnKey(putIndex);
+        columnCounts = ArrayUtils.insert(columnCounts, columnSize, putIndex);
+        columnSize++;
+        modCount++;
 
         //新数据放入
-        columnIndex.put(columnKey, putIndex);
+        _setColumnKey(putIndex, columnKey);
+        columnCounts[putIndex] = 0;
 
         return putIndex;
     }
 
-    /** 减少列,迁移下标位 */
-    private void _decColumn(C columnKey, int columnIdx) {
-        int columnSize = columnIndex.size();
-        NavigableMap<C, Integer> tailMap = columnIndex.tailMap(columnKey, false);
-        //下标移位
-        tailMap.entrySet().forEach(t -> t.setValue(t.getValue() - 1));
-        columnIndex.remove(columnKey);
-
-        //数据移位
-        for(int i = 0; i < innerV.length; i++) {
+    /** 减少列,之后的列在每行内整体前移 */
+    private void _decColumn(int columnIdx) {
+        //数据移位,在原行上直接前移,并清除最后一列的引用
+        for(int i = 0; i < rowSize; i++) {
             V[] vv = innerV[i];
-            int newColumnSize = vv.length - 1;
-            int currentMove = newColumnSize - columnIdx;
             //当前存储的列还不够应该放的长度,即表示不需要迁移,因为之前的数据都比要放的位置小
-            if(currentMove < 0)
+            if(vv.length <= columnIdx)
                 continue;
 
-            @SuppressWarnings("unchecked")
-            V[] newVv = (V[]) Array.newInstance(valueClass, newColumnSize);
-            System.arraycopy(vv, 0, newVv, 0, columnIdx);
-            System.arraycopy(vv, columnIdx + 1, newVv, columnIdx, currentMove);
-            innerV[i] = newVv;
+            _ownRow(i);
+            vv = innerV[i];
+            int used = Math.min(vv.length, columnSize);
+            System.arraycopy(vv, columnIdx + 1, vv, columnIdx, used - columnIdx - 1);
+            vv[used - 1] = null;
+
+            //存在位在行内前移
+            BitSetUtils.delete(rowBits[i], columnIdx);
         }
 
-        //重建索引位
-        _resetColumnBits(columnIdx, columnIdx, columnSize, false);
+        //key移位
+        ArrayUtils.delete(columnOrdinals != null ? columnOrdinals : columnKeys, columnSize, columnIdx);
+        ArrayUtils.delete(columnCounts, columnSize, columnIdx);
+        columnCounts[columnSize - 1] = 0;
+        columnSize--;
+        modCount++;
     }
 
     /** 移除单元格 */
     private V _remove(TableCell cell) {
         IdxV idxV = cell.idxV;
-        return _remove(cell.rowKey, idxV.rowIdx, cell.columnKey, idxV.columnIdx, true, true);
+        return _remove(idxV.rowIdx, idxV.columnIdx, true, true);
     }
 
     /** 移除单元格,并检查是否要减行,或减列 */
-    private V _remove(R rowKey, int rowIdx, C columnKey, int columnIdx, boolean checkDecRow, boolean checkDecColumn) {
+    private V _remove(int rowIdx, int columnIdx, boolean checkDecRow, boolean checkDecColumn) {
         V[] rows = innerV[rowIdx];
 
         //超过长度位,即当前行没数据
@@ -308,154 +940,314 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
             return null;
 
         val old = rows[columnIdx];
-        rows[columnIdx] = null;
+        if(old == null)
+            return null;
+        _beforeWrite();
+        _ownRow(rowIdx);
+        innerV[rowIdx][columnIdx] = null;
+        if(valueIndex != null)
+            _indexRemove(rowIdx, columnIdx, old);
 
         //清除存在位
         _clearExist(rowIdx, columnIdx);
 
-        //处理减行
-        if(checkDecRow && _isRowEmpty(rowIdx))
-            _decRow(rowKey, rowIdx);
+        //处理减行,延迟整理时只记为墓碑
+        if(checkDecRow && _isRowEmpty(rowIdx)) {
+            if(lazyCompaction)
+                emptyRows++;
+            else
+                _decRow(rowIdx);
+        }
 
         //处理减列
-        if(checkDecColumn && _isColumnEmpty(columnIdx))
-            _decColumn(columnKey, columnIdx);
+        if(checkDecColumn && _isColumnEmpty(columnIdx)) {
+            if(lazyCompaction)
+                emptyColumns++;
+            else
+                _decColumn(columnIdx);
+        }
 
         return old;
     }
 
     /** 移除行 */
     private void _remove(Row row) {
-        R rowKey = row.rowKey;
-        int rowIdx = rowIndex.get(rowKey);
-        for(C columnKey : row.keySet()) {
-            int columnIdx = columnIndex.get(columnKey);
-            _remove(rowKey, rowIdx, columnKey, columnIdx, false, true);
-        }
+        int rowIdx = _rowIdx(row.rowKey);
+        //先复制一份列key,因为减列会改变下标位,直接在视图上迭代会出错
+        for(C columnKey : new ArrayList<>(row.keySet()))
+            _remove(rowIdx, _columnIdx(columnKey), false, true);
 
         //删减整行
-        _decRow(rowKey, rowIdx);
+        _decRow(rowIdx);
     }
 
     /** 移除列 */
     private void _remove(Column column) {
-        C columnKey = column.columnKey;
-        int columnIdx = columnIndex.get(columnKey);
-        for(R rowKey : column.keySet()) {
-            int rowIdx = rowIndex.get(rowKey);
-            _remove(rowKey, rowIdx, columnKey, columnIdx, true, false);
-        }
+        int columnIdx = _columnIdx(column.columnKey);
+        //先复制一份行key,因为减行会改变下标位,直接在视图上迭代会出错
+        for(R rowKey : new ArrayList<>(column.keySet()))
+            _remove(_rowIdx(rowKey), columnIdx, true, false);
 
         //删除整列
-        _decColumn(columnKey, columnIdx);
+        _decColumn(columnIdx);
     }
 
-    /** 指定行是否已经空了(没有存放数据) */
-    private boolean _isRowEmpty(int rowIdx) {
+    /** 清除指定行中被标记的单元格,标记为与行内存在位相同排列的位图 */
+    private void _clearCells(int rowIdx, long[] marks) {
+        //没有要清除的单元格时不需要复制共享的行
+        long[] words = rowBits[rowIdx];
+        boolean hit = false;
+        for(int u = 0, n = Math.min(words.length, marks.length); u < n && !hit; u++)
+            hit = (words[u] & marks[u]) != 0;
+        if(!hit)
+            return;
+
+        _ownRow(rowIdx);
         V[] vv = innerV[rowIdx];
-        for(V v : vv) {
-            if(v != null)
-                return false;
+        words = rowBits[rowIdx];
+        for(int u = 0, n = Math.min(words.length, marks.length); u < n; u++) {
+            long removed = words[u] & marks[u];
+            words[u] &= ~removed;
+            cellSize -= Long.bitCount(removed);
+            for(; removed != 0; removed &= removed - 1) {
+                int k = (u << 6) + Long.numberOfTrailingZeros(removed);
+                vv[k] = null;
+                columnCounts[k]--;
+            }
         }
-
-        return true;
     }
 
-    /** 指定列是否已经空了(没有存放数据) */
-    private boolean _isColumnEmpty(int columnIdx) {
-        for(V[] vv : innerV) {
-            if(vv.length > columnIdx && vv[columnIdx] != null)
-                return false;
+    /**
+     * 在一次整理中移除已经没有数据的行以及列,行,列key,值,存在位以及共享标记一并前移
+     * 用于批量移除,避免逐个减行减列时的多次移位
+     */
+    private void _compact() {
+        //重新计算各列的单元格数,没有单元格的列被移除
+        _countColumns();
+        int newColumnSize = 0;
+        int[] columnMapping = new int[columnSize];
+        for(int k = 0; k < columnSize; k++) {
+            if(columnCounts[k] > 0) {
+                columnMapping[k] = newColumnSize;
+                columnCounts[newColumnSize] = columnCounts[k];
+                _moveColumnKeys(k, newColumnSize++, 1);
+            } else
+                columnMapping[k] = -1;
         }
+        _clearColumnKeys(newColumnSize, columnSize);
+        Arrays.fill(columnCounts, newColumnSize, columnSize, 0);
+        boolean columnRemoved = newColumnSize < columnSize;
+
+        //空行跳过,其余的行前移,同时在行内前移列
+        long[] newSharedRows = sharedRows == null ? null : new long[sharedRows.length];
+        int newRowSize = 0;
+        for(int i = 0; i < rowSize; i++) {
+            if(_isRowEmpty(i))
+                continue;
 
-        return true;
+            if(columnRemoved)
+                _compactRow(i, columnMapping);
+            if(newSharedRows != null && BitSetUtils.get(sharedRows, i))
+                newSharedRows[newRowSize >>> 6] |= 1L << newRowSize;
+            innerV[newRowSize] = innerV[i];
+            rowBits[newRowSize] = rowBits[i];
+            _moveRowKeys(i, newRowSize, 1);
+            newRowSize++;
+        }
+        Arrays.fill(innerV, newRowSize, rowSize, null);
+        Arrays.fill(rowBits, newRowSize, rowSize, null);
+        _clearRowKeys(newRowSize, rowSize);
+
+        rowSize = newRowSize;
+        columnSize = newColumnSize;
+        sharedRows = newSharedRows;
+        emptyRows = 0;
+        emptyColumns = 0;
+        modCount++;
     }
 
-    /** 变更行设置标记位 */
-    private void _resetRowBits(int startIdx, int columnSize, boolean inc) {
-        //如果是比如删除最后一行,则相应的startIdx会比当前长度更长,这里就直接返回,不再处理
-        if(startIdx > bitsSet.length())
+    /** 按列下标映射前移行内的值以及存在位,映射之后的下标不大于原下标 */
+    private void _compactRow(int rowIdx, int[] columnMapping) {
+        //之前的列没有被移除时不需要移动,也不需要复制共享的行
+        long[] words = rowBits[rowIdx];
+        int k = BitSetUtils.nextSetBit(words, 0);
+        while(k >= 0 && columnMapping[k] == k)
+            k = BitSetUtils.nextSetBit(words, k + 1);
+        if(k < 0)
             return;
 
-        //不是增长,则相应的步进往后跨一列长
-        if(!inc)
-            columnSize = -columnSize;
-
-        //clone一份,以进行判定,避免单对象上处理会出问题
-        BitSet cloned = (BitSet) bitsSet.clone();
-        bitsSet.clear(startIdx, bitsSet.length());//先清除相应的数据
-        for(int i = cloned.nextSetBit(startIdx); i >= 0; i = cloned.nextSetBit(i + 1)) {
-            bitsSet.set(i + columnSize);
+        _ownRow(rowIdx);
+        V[] vv = innerV[rowIdx];
+        words = rowBits[rowIdx];
+        for(; k >= 0; k = BitSetUtils.nextSetBit(words, k + 1)) {
+            int newK = columnMapping[k];
+            vv[newK] = vv[k];
+            vv[k] = null;
+            words[k >>> 6] &= ~(1L << k);
+            words[newK >>> 6] |= 1L << newK;
         }
-        bits = BitSetUtils.getLongArray(bitsSet);
     }
 
-    /** 变更列设置标记位 */
-    private void _resetColumnBits(int startIdx, int columnIdx, int columnSize, boolean inc) {
-        int afterColumnIdxStep = inc ? 1 : -1;
+    /** 指定行是否已经空了(没有存放数据) */
+    private boolean _isRowEmpty(int rowIdx) {
+        return BitSetUtils.isEmpty(rowBits[rowIdx]);
+    }
+
+    /** 指定列是否已经空了(没有存放数据) */
+    private boolean _isColumnEmpty(int columnIdx) {
+        return columnCounts[columnIdx] == 0;
+    }
+
+    /** 指定行是否有数据,即不是墓碑,没有墓碑时不需要检查 */
+    private boolean _isRowLive(int rowIdx) {
+        return emptyRows == 0 || !_isRowEmpty(rowIdx);
+    }
+
+    /** 指定列是否有数据,即不是墓碑 */
+    private boolean _isColumnLive(int columnIdx) {
+        return emptyColumns == 0 || !_isColumnEmpty(columnIdx);
+    }
 
-        //clone一份,以进行判定,避免单对象上处理会出问题
-        BitSet cloned = (BitSet) bitsSet.clone();
-        bitsSet.clear(startIdx, bitsSet.length());//先清除相应的数据
-        for(int i = cloned.nextSetBit(startIdx); i >= 0; i = cloned.nextSetBit(i + 1)) {
-            int changeSize = i / columnSize;
-            if(!inc)
-                changeSize = -changeSize;
+    /** 跳过墓碑列之后的列下标映射,没有墓碑列时返回null */
+    private int[] _liveColumnMapping() {
+        if(emptyColumns == 0)
+            return null;
 
-            int newIdx = i + changeSize;
-            if(i % columnSize >= columnIdx)
-                newIdx += afterColumnIdxStep;
+        int[] mapping = new int[columnSize];
+        for(int k = 0, idx = 0; k < columnSize; k++)
+            mapping[k] = _isColumnEmpty(k) ? -1 : idx++;
 
-            bitsSet.set(newIdx);
-        }
-        bits = BitSetUtils.getLongArray(bitsSet);
+        return mapping;
+    }
+
+    /** 延迟整理时,墓碑超过行(列)数的1/4后整理一次 */
+    private void _compactIfNeeded() {
+        if(emptyRows > LAZY_COMPACT_MIN && emptyRows > rowSize >> 2 || emptyColumns > LAZY_COMPACT_MIN && emptyColumns > columnSize >> 2)
+            _compact();
     }
 
     /** 设置存在位 */
     private void _setExist(int rowIdx, int columnIdx) {
-        bitsSet.set(rowIdx * columnIndex.size() + columnIdx);
-        bits = BitSetUtils.getLongArray(bitsSet);
+        rowBits[rowIdx] = BitSetUtils.set(rowBits[rowIdx], columnIdx);
+        columnCounts[columnIdx]++;
+        cellSize++;
+        modCount++;
     }
 
     /** 清除存在位 */
     private void _clearExist(int rowIdx, int columnIdx) {
-        bitsSet.clear(rowIdx * columnIndex.size() + columnIdx);
-        bits = BitSetUtils.getLongArray(bitsSet);
+        BitSetUtils.clear(rowBits[rowIdx], columnIdx);
+        columnCounts[columnIdx]--;
+        cellSize--;
+        modCount++;
     }
 
-    /** 通过绝对下标位定义元素,同时返回相应的行,列坐标 */
-    private IdxV _idxV(int index) {
-        int columnSize = columnIndex.size();
-        int rowIdx = index / columnSize;
-        int columnIdx = index % columnSize;
-        return new IdxV(rowIdx, columnIdx, innerV[rowIdx][columnIdx]);
+    /** 根据下标获取值,超过当前行的长度时为null */
+    private V _get(int rowIdx, int columnIdx) {
+        V[] vv = innerV[rowIdx];
+        return vv.length > columnIdx ? vv[columnIdx] : null;
     }
 
     /** 根据行数获取行值 */
-    @SuppressWarnings("unchecked")
     private R _rKey(int rowIdx) {
-        return rowIndex.keySet().toArray((R[]) Array.newInstance(rowClass, rowIndex.size()))[rowIdx];
+        return rowOrdinals != null ? rowDictionary.key(rowOrdinals[rowIdx]) : rowKeys[rowIdx];
     }
 
     /** 根据列数获取列值 */
-    @SuppressWarnings("unchecked")
     private C _cKey(int columnIdx) {
-        return columnIndex.keySet().toArray((C[]) Array.newInstance(columnClass, columnIndex.size()))[columnIdx];
+        return columnOrdinals != null ? columnDictionary.key(columnOrdinals[columnIdx]) : columnKeys[columnIdx];
+    }
+
+    /** 迭代过程中检查是否有其它的结构性修改 */
+    private void _checkModCount(int expectedModCount) {
+        if(modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /** 由当前数据重新建立值索引,用于批量修改之后 */
+    private void _rebuildValueIndex() {
+        valueIndex = new HashMap<>(Math.max(16, (int) (cellSize / .75f) + 1));
+        for(int i = 0; i < rowSize; i++) {
+            long[] words = rowBits[i];
+            V[] vv = innerV[i];
+            for(int k = BitSetUtils.nextSetBit(words, 0); k >= 0; k = BitSetUtils.nextSetBit(words, k + 1))
+                _indexAdd(i, k, vv[k]);
+        }
+    }
+
+    /** 在值索引中加入指定的位置 */
+    @SuppressWarnings("unchecked")
+    private void _indexAdd(int rowIdx, int columnIdx, V v) {
+        ValuePos<R, C> pos = new ValuePos<>(_rKey(rowIdx), _cKey(columnIdx));
+        Object existed = valueIndex.putIfAbsent(v, pos);
+        if(existed instanceof ValuePos) {
+            List<ValuePos<R, C>> list = new ArrayList<>(2);
+            list.add((ValuePos<R, C>) existed);
+            list.add(pos);
+            valueIndex.put(v, list);
+        } else if(existed != null)
+            ((List<ValuePos<R, C>>) existed).add(pos);
+    }
+
+    /** 从值索引中移除指定的位置 */
+    @SuppressWarnings("unchecked")
+    private void _indexRemove(int rowIdx, int columnIdx, V v) {
+        Object existed = valueIndex.get(v);
+        if(existed instanceof List) {
+            List<ValuePos<R, C>> list = (List<ValuePos<R, C>>) existed;
+            R rowKey = _rKey(rowIdx);
+            C columnKey = _cKey(columnIdx);
+            list.removeIf(pos -> rowComparator.compare(pos.rowKey, rowKey) == 0 && columnComparator.compare(pos.columnKey, columnKey) == 0);
+            if(list.size() == 1)
+                valueIndex.put(v, list.get(0));
+        } else if(existed != null)
+            valueIndex.remove(v);
+    }
+
+    /** 通过值索引找到单元格,有多个位置时与遍历一样返回按行,列排在最前面的 */
+    @SuppressWarnings("unchecked")
+    private TableCell _indexedCell(V _v) {
+        Object existed = valueIndex.get(_v);
+        if(existed == null)
+            return null;
+
+        int rowIdx;
+        int columnIdx;
+        if(existed instanceof ValuePos) {
+            ValuePos<R, C> pos = (ValuePos<R, C>) existed;
+            rowIdx = _rowIdx(pos.rowKey);
+            columnIdx = _columnIdx(pos.columnKey);
+        } else {
+            rowIdx = Integer.MAX_VALUE;
+            columnIdx = Integer.MAX_VALUE;
+            for(ValuePos<R, C> pos : (List<ValuePos<R, C>>) existed) {
+                int i = _rowIdx(pos.rowKey);
+                int k = _columnIdx(pos.columnKey);
+                if(i < rowIdx || i == rowIdx && k < columnIdx) {
+                    rowIdx = i;
+                    columnIdx = k;
+                }
+            }
+        }
+
+        return new TableCell(new IdxV(rowIdx, columnIdx, innerV[rowIdx][columnIdx]));
     }
 
     /** 找到单元格 */
     private TableCell _cell(V _v) {
         if(innerV == null)
             return null;
-
-        int columnSize = columnIndex.size();
-
-        for(int i = bitsSet.nextSetBit(0); i >= 0; i = bitsSet.nextSetBit(i + 1)) {
-            int rowIdx = i / columnSize;
-            int columnIdx = i % columnSize;
-            V v = innerV[rowIdx][columnIdx];
-            if(Objects.equals(v, _v)) {
-                return new TableCell(new IdxV(rowIdx, columnIdx, v));
+        if(valueIndex != null)
+            return _indexedCell(_v);
+
+        for(int rowIdx = 0; rowIdx < rowSize; rowIdx++) {
+            long[] words = rowBits[rowIdx];
+            V[] vv = innerV[rowIdx];
+            for(int columnIdx = BitSetUtils.nextSetBit(words, 0); columnIdx >= 0; columnIdx = BitSetUtils.nextSetBit(words, columnIdx + 1)) {
+                V v = vv[columnIdx];
+                if(Objects.equals(v, _v)) {
+                    return new TableCell(new IdxV(rowIdx, columnIdx, v));
+                }
             }
         }
 
@@ -478,8 +1270,155 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
         return new Column(columnKey);
     }
 
+    /** 数值汇总要求值类型为Number */
+    private void _checkNumeric() {
+        if(!Number.class.isAssignableFrom(valueClass))
+            throw new IllegalStateException("值类型不是数字,不能汇总:" + valueClass);
+    }
+
+    /** 指定行,列范围内所有值的和,按行内的存在位直接读取值,不创建单元格对象 */
+    private double _sum(int rowFrom, int rowTo, int columnFrom, int columnTo) {
+        double sum = 0;
+        for(int i = rowFrom; i < rowTo; i++) {
+            V[] vv = innerV[i];
+            long[] words = rowBits[i];
+            for(int k = BitSetUtils.nextSetBit(words, columnFrom); k >= 0 && k < columnTo; k = BitSetUtils.nextSetBit(words, k + 1))
+                sum += ((Number) vv[k]).doubleValue();
+        }
+
+        return sum;
+    }
+
+    private DoubleSummaryStatistics _summarize(int rowFrom, int rowTo, int columnFrom, int columnTo) {
+        DoubleSummaryStatistics statistics = new DoubleSummaryStatistics();
+        for(int i = rowFrom; i < rowTo; i++) {
+            V[] vv = innerV[i];
+            long[] words = rowBits[i];
+            for(int k = BitSetUtils.nextSetBit(words, columnFrom); k >= 0 && k < columnTo; k = BitSetUtils.nextSetBit(words, k + 1))
+                statistics.accept(((Number) vv[k]).doubleValue());
+        }
+
+        return statistics;
+    }
+
+    private double _sumColumn(int columnIdx) {
+        double sum = 0;
+        for(int i = 0; i < rowSize; i++) {
+            if(BitSetUtils.get(rowBits[i], columnIdx))
+                sum += ((Number) innerV[i][columnIdx]).doubleValue();
+        }
+
+        return sum;
+    }
+
+    private DoubleSummaryStatistics _summarizeColumn(int columnIdx) {
+        DoubleSummaryStatistics statistics = new DoubleSummaryStatistics();
+        for(int i = 0; i < rowSize; i++) {
+            if(BitSetUtils.get(rowBits[i], columnIdx))
+                statistics.accept(((Number) innerV[i][columnIdx]).doubleValue());
+        }
+
+        return statistics;
+    }
+
+    /** 按行累加各列的和,结果下标与列下标一致 */
+    private double[] _sumColumns(int rowFrom, int rowTo) {
+        double[] sums = new double[columnSize];
+        for(int i = rowFrom; i < rowTo; i++) {
+            V[] vv = innerV[i];
+            long[] words = rowBits[i];
+            for(int k = BitSetUtils.nextSetBit(words, 0); k >= 0; k = BitSetUtils.nextSetBit(words, k + 1))
+                sums[k] += ((Number) vv[k]).doubleValue();
+        }
+
+        return sums;
+    }
+
+    /** 在行范围上计算并合并结果,数据量超过阈值时拆分到公共的ForkJoinPool中执行 */
+    private <T> T _reduceRows(int rowFrom, int rowTo, int columns, RowsFunction<T> mapper, BinaryOperator<T> combiner) {
+        if((long) (rowTo - rowFrom) * columns <= PARALLEL_THRESHOLD)
+            return mapper.apply(rowFrom, rowTo);
+
+        return ForkJoinPool.commonPool().invoke(new RowsTask<>(rowFrom, rowTo, columns, mapper, combiner));
+    }
+
+    private static DoubleSummaryStatistics _combine(DoubleSummaryStatistics a, DoubleSummaryStatistics b) {
+        a.combine(b);
+        return a;
+    }
+
     //---------------------------- 内部各种方法 end ------------------------------//
 
+    /**
+     * 按行,列key的范围获取视图,与SortedMap.subMap相同,起始key包含,结束key不包含,为null时表示不限制
+     * 行,列key有序存放,因此范围对应连续的下标,视图只遍历范围内的行以及行内范围内的存在位,不复制数据
+     * 视图随当前表的修改而变化,可以通过视图放入以及移除范围内的数据
+     */
+    public RangeTable subTable(@Nullable R fromRow, @Nullable R toRow, @Nullable C fromColumn, @Nullable C toColumn) {
+        return new RangeTable(fromRow, true, toRow, false, fromColumn, true, toColumn, false);
+    }
+
+    /** 行key小于指定值的视图 */
+    public RangeTable headRows(@Nonnull R toRow) {
+        return subTable(null, toRow, null, null);
+    }
+
+    /** 行key不小于指定值的视图 */
+    public RangeTable tailRows(@Nonnull R fromRow) {
+        return subTable(fromRow, null, null, null);
+    }
+
+    /** 列key小于指定值的视图 */
+    public RangeTable headColumns(@Nonnull C toColumn) {
+        return subTable(null, null, null, toColumn);
+    }
+
+    /** 列key不小于指定值的视图 */
+    public RangeTable tailColumns(@Nonnull C fromColumn) {
+        return subTable(null, null, fromColumn, null);
+    }
+
+    /**
+     * 获取当前数据的只读快照,不复制任何数据
+     * 快照与当前表共享各行的存储,之后当前表在修改时先复制外层数组,再按行复制被修改的行,快照中的数据不受影响
+     * 快照可以在当前表继续修改的同时被其它线程读取及迭代
+     */
+    public ArrayTreeTable<R, C, V> snapshot() {
+        if(readOnly)
+            return this;
+
+        ArrayTreeTable<R, C, V> snapshot = new ArrayTreeTable<>(rowClass, columnClass, valueClass, rowComparatorClass, columnComparatorClass);
+        snapshot.rowComparator = rowComparator;
+        snapshot.columnComparator = columnComparator;
+        snapshot.rowNatural = rowNatural;
+        snapshot.columnNatural = columnNatural;
+        snapshot.rowDictionary = rowDictionary;
+        snapshot.columnDictionary = columnDictionary;
+        snapshot.innerV = innerV;
+        snapshot.rowBits = rowBits;
+        snapshot.rowKeys = rowKeys;
+        snapshot.columnKeys = columnKeys;
+        snapshot.rowOrdinals = rowOrdinals;
+        snapshot.columnOrdinals = columnOrdinals;
+        snapshot.rowSize = rowSize;
+        snapshot.columnSize = columnSize;
+        snapshot.cellSize = cellSize;
+        snapshot.columnCounts = columnCounts;
+        snapshot.emptyRows = emptyRows;
+        snapshot.emptyColumns = emptyColumns;
+        snapshot.emptyRow = emptyRow;
+        snapshot.readOnly = true;
+
+        sharedOuter = true;
+        long[] shared = new long[BitSetUtils.wordsFor(rowSize)];
+        Arrays.fill(shared, -1L);
+        if((rowSize & 63) != 0)
+            shared[shared.length - 1] = (1L << rowSize) - 1;
+        sharedRows = shared;
+
+        return snapshot;
+    }
+
     /** 移除整行 */
     public Map<C, V> removeRow(Object rowKey) {
         Row row = _row(_r(rowKey));
@@ -501,13 +1440,269 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
     /** 移除特定格 */
     public V removeValue(Object value) {
         TableCell cell = _cell(_v(value));
+        if(cell == null)
+            return null;
+
+        V old = _remove(cell);
+        if(lazyCompaction)
+            _compactIfNeeded();
 
-        return cell == null ? null : _remove(cell);
+        return old;
     }
 
-    /** 找到相应的单元格 */
-    public Cell<R, C, V> cell(Object value) {
-        return _cell(_v(value));
+    /**
+     * 移除满足条件的行,返回是否有行被移除
+     * 先标记所有要移除的行,再在一次整理中移除这些行以及因此变空的列,不会像逐个removeRow那样每次都整体移位
+     */
+    public boolean removeRowsIf(@Nonnull Predicate<? super R> filter) {
+        long[] marks = BitSetUtils.EMPTY;
+        for(int i = 0; i < rowSize; i++) {
+            if(filter.test(_rKey(i)))
+                marks = BitSetUtils.set(marks, i);
+        }
+        if(BitSetUtils.isEmpty(marks))
+            return false;
+
+        //被移除的行直接替换为空行,共享的行也不需要复制
+        _beforeWrite();
+        for(int i = BitSetUtils.nextSetBit(marks, 0); i >= 0; i = BitSetUtils.nextSetBit(marks, i + 1)) {
+            cellSize -= BitSetUtils.cardinality(rowBits[i]);
+            innerV[i] = emptyRow;
+            rowBits[i] = BitSetUtils.EMPTY;
+        }
+        _compact();
+        if(valueIndex != null)
+            _rebuildValueIndex();
+
+        return true;
+    }
+
+    /** 移除满足条件的列,以及因此变空的行,返回是否有列被移除 */
+    public boolean removeColumnsIf(@Nonnull Predicate<? super C> filter) {
+        long[] marks = BitSetUtils.EMPTY;
+        for(int k = 0; k < columnSize; k++) {
+            if(filter.test(_cKey(k)))
+                marks = BitSetUtils.set(marks, k);
+        }
+        if(BitSetUtils.isEmpty(marks))
+            return false;
+
+        _beforeWrite();
+        for(int i = 0; i < rowSize; i++)
+            _clearCells(i, marks);
+        _compact();
+        if(valueIndex != null)
+            _rebuildValueIndex();
+
+        return true;
+    }
+
+    /** 移除满足条件的单元格,以及因此变空的行,列,返回是否有单元格被移除 */
+    public boolean removeCellsIf(@Nonnull Predicate<? super Cell<R, C, V>> filter) {
+        //按行记录要移除的单元格,全部判断完之后再修改
+        long[][] marks = null;
+        for(int i = 0; i < rowSize; i++) {
+            V[] vv = innerV[i];
+            long[] words = rowBits[i];
+            for(int k = BitSetUtils.nextSetBit(words, 0); k >= 0; k = BitSetUtils.nextSetBit(words, k + 1)) {
+                if(filter.test(Tables.immutableCell(_rKey(i), _cKey(k), vv[k]))) {
+                    if(marks == null)
+                        marks = new long[rowSize][];
+                    marks[i] = BitSetUtils.set(marks[i] == null ? BitSetUtils.EMPTY : marks[i], k);
+                }
+            }
+        }
+        if(marks == null)
+            return false;
+
+        _beforeWrite();
+        for(int i = 0; i < rowSize; i++) {
+            if(marks[i] != null)
+                _clearCells(i, marks[i]);
+        }
+        _compact();
+        if(valueIndex != null)
+            _rebuildValueIndex();
+
+        return true;
+    }
+
+    /** 只保留指定的行,返回是否有行被移除;指定的行先按行比较器放入TreeSet,与查找行时的比较方式一致 */
+    public boolean retainRows(@Nonnull Collection<?> keepRows) {
+        TreeSet<R> keep = new TreeSet<>(rowComparator);
+        for(Object rowKey : keepRows) {
+            if(rowKey != null)
+                keep.add(_r(rowKey));
+        }
+
+        return removeRowsIf(rowKey -> !keep.contains(rowKey));
+    }
+
+    /** 只保留指定的列,返回是否有列被移除;指定的列先按列比较器放入TreeSet,与查找列时的比较方式一致 */
+    public boolean retainColumns(@Nonnull Collection<?> keepColumns) {
+        TreeSet<C> keep = new TreeSet<>(columnComparator);
+        for(Object columnKey : keepColumns) {
+            if(columnKey != null)
+                keep.add(_c(columnKey));
+        }
+
+        return removeColumnsIf(columnKey -> !keep.contains(columnKey));
+    }
+
+    /** 找到相应的单元格 */
+    public Cell<R, C, V> cell(Object value) {
+        return _cell(_v(value));
+    }
+
+    //---------------------------- 数值汇总 start ------------------------------//
+    //以下方法要求值类型为Number,直接按存在位读取各行的值,不经过Map.Entry等视图对象
+
+    /** 行内所有值的和,行不存在时为0 */
+    public double sumRow(Object rowKey) {
+        _checkNumeric();
+        int rowIdx = _rowIdx(_r(rowKey));
+        return rowIdx < 0 ? 0 : _sum(rowIdx, rowIdx + 1, 0, columnSize);
+    }
+
+    /** 列内所有值的和,列不存在时为0 */
+    public double sumColumn(Object columnKey) {
+        _checkNumeric();
+        int columnIdx = _columnIdx(_c(columnKey));
+        return columnIdx < 0 ? 0 : _sumColumn(columnIdx);
+    }
+
+    /** 行内值的个数,和,最小,最大以及平均值 */
+    public DoubleSummaryStatistics summarizeRow(Object rowKey) {
+        _checkNumeric();
+        int rowIdx = _rowIdx(_r(rowKey));
+        return rowIdx < 0 ? new DoubleSummaryStatistics() : _summarize(rowIdx, rowIdx + 1, 0, columnSize);
+    }
+
+    /** 列内值的个数,和,最小,最大以及平均值 */
+    public DoubleSummaryStatistics summarizeColumn(Object columnKey) {
+        _checkNumeric();
+        int columnIdx = _columnIdx(_c(columnKey));
+        return columnIdx < 0 ? new DoubleSummaryStatistics() : _summarizeColumn(columnIdx);
+    }
+
+    /** 所有值的和,大表按行范围并行计算 */
+    public double sum() {
+        _checkNumeric();
+        return _reduceRows(0, rowSize, columnSize, (from, to) -> _sum(from, to, 0, columnSize), Double::sum);
+    }
+
+    /** 所有值的统计信息,大表按行范围并行计算 */
+    public DoubleSummaryStatistics summarize() {
+        _checkNumeric();
+        return _reduceRows(0, rowSize, columnSize, (from, to) -> _summarize(from, to, 0, columnSize), ArrayTreeTable::_combine);
+    }
+
+    /** 各行值的和,按行key的顺序返回,只包含有数据的行 */
+    public Map<R, Double> sumByRow() {
+        _checkNumeric();
+        double[] sums = new double[rowSize];
+        _reduceRows(0, rowSize, columnSize, (from, to) -> {
+            for(int i = from; i < to; i++)
+                sums[i] = _sum(i, i + 1, 0, columnSize);
+            return null;
+        }, (a, b) -> null);
+
+        Map<R, Double> result = new LinkedHashMap<>();
+        for(int i = 0; i < rowSize; i++) {
+            if(_isRowLive(i))
+                result.put(_rKey(i), sums[i]);
+        }
+
+        return result;
+    }
+
+    /** 各列值的和,按列key的顺序返回,只包含有数据的列;仍然按行遍历,各行范围的结果再按列相加 */
+    public Map<C, Double> sumByColumn() {
+        _checkNumeric();
+        double[] sums = _reduceRows(0, rowSize, columnSize, this::_sumColumns, (a, b) -> {
+            for(int k = 0; k < a.length; k++)
+                a[k] += b[k];
+            return a;
+        });
+
+        Map<C, Double> result = new LinkedHashMap<>();
+        for(int k = 0; k < columnSize; k++) {
+            if(!_isColumnEmpty(k))
+                result.put(_cKey(k), sums[k]);
+        }
+
+        return result;
+    }
+
+    //---------------------------- 数值汇总 end ------------------------------//
+
+    /**
+     * 按行,列的顺序遍历所有单元格,直接读取存在位以及值,不为每个单元格创建IdxV,Cell等对象
+     * 遍历期间不能修改表,否则抛出ConcurrentModificationException
+     */
+    public void forEachCell(@Nonnull CellConsumer<? super R, ? super C, ? super V> action) {
+        int expectedModCount = modCount;
+        for(int i = 0; i < rowSize; i++) {
+            R rowKey = _rKey(i);
+            V[] vv = innerV[i];
+            long[] words = rowBits[i];
+            for(int k = BitSetUtils.nextSetBit(words, 0); k >= 0; k = BitSetUtils.nextSetBit(words, k + 1))
+                action.accept(rowKey, _cKey(k), vv[k]);
+            _checkModCount(expectedModCount);
+        }
+    }
+
+    /**
+     * 按行,列的顺序遍历所有单元格,传入的是行,列在rowKeySet,columnKeySet中的序号(不计墓碑),而不是key
+     * 遍历期间不能修改表,否则抛出ConcurrentModificationException
+     */
+    public void forEachCellIndex(@Nonnull CellIndexConsumer<? super V> action) {
+        int expectedModCount = modCount;
+        int[] columnMapping = _liveColumnMapping();
+        for(int i = 0, rowIdx = 0; i < rowSize; i++) {
+            if(!_isRowLive(i))
+                continue;
+
+            V[] vv = innerV[i];
+            long[] words = rowBits[i];
+            for(int k = BitSetUtils.nextSetBit(words, 0); k >= 0; k = BitSetUtils.nextSetBit(words, k + 1))
+                action.accept(rowIdx, columnMapping == null ? k : columnMapping[k], vv[k]);
+            rowIdx++;
+            _checkModCount(expectedModCount);
+        }
+    }
+
+    /** 按列的顺序遍历指定行中的单元格,行不存在时不做任何处理 */
+    public void forEachInRow(Object rowKey, @Nonnull BiConsumer<? super C, ? super V> action) {
+        int rowIdx = _rowIdx(_r(rowKey));
+        if(rowIdx < 0)
+            return;
+
+        int expectedModCount = modCount;
+        V[] vv = innerV[rowIdx];
+        long[] words = rowBits[rowIdx];
+        for(int k = BitSetUtils.nextSetBit(words, 0); k >= 0; k = BitSetUtils.nextSetBit(words, k + 1))
+            action.accept(_cKey(k), vv[k]);
+        _checkModCount(expectedModCount);
+    }
+
+    /** 按行的顺序遍历指定列中的单元格,列不存在时不做任何处理 */
+    public void forEachInColumn(Object columnKey, @Nonnull BiConsumer<? super R, ? super V> action) {
+        int columnIdx = _columnIdx(_c(columnKey));
+        if(columnIdx < 0)
+            return;
+
+        int expectedModCount = modCount;
+        for(int i = 0; i < rowSize; i++) {
+            if(BitSetUtils.get(rowBits[i], columnIdx))
+                action.accept(_rKey(i), innerV[i][columnIdx]);
+        }
+        _checkModCount(expectedModCount);
+    }
+
+    /** 创建一个按行,列顺序遍历所有单元格的游标,游标本身可重复使用,遍历过程中不创建其它对象 */
+    public Cursor cursor() {
+        return new Cursor();
     }
 
     @Override
@@ -517,12 +1712,14 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
 
     @Override
     public boolean containsRow(@NonNull @Nullable Object rowKey) {
-        return rowIndex.containsKey(_r(rowKey));
+        int rowIdx = _rowIdx(_r(rowKey));
+        return rowIdx >= 0 && _isRowLive(rowIdx);
     }
 
     @Override
     public boolean containsColumn(@NonNull @Nullable Object columnKey) {
-        return columnIndex.containsKey(_c(columnKey));
+        int columnIdx = _columnIdx(_c(columnKey));
+        return columnIdx >= 0 && _isColumnLive(columnIdx);
     }
 
     @Override
@@ -532,50 +1729,71 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
 
     @Override
     public V get(@Nullable Object rowKey, @Nullable Object columnKey) {
-        val rowIdx = rowIndex.get(_r(rowKey));
-        if(rowIdx == null)
+        int rowIdx = _rowIdx(_r(rowKey));
+        if(rowIdx < 0)
             return null;
 
-        val columnIdx = columnIndex.get(_c(columnKey));
-        if(columnIdx == null)
+        int columnIdx = _columnIdx(_c(columnKey));
+        if(columnIdx < 0)
             return null;
 
-        V[] rows = innerV[rowIdx];
-        return rows.length > columnIdx ? rows[columnIdx] : null;
+        return _get(rowIdx, columnIdx);
     }
 
     @Override
     public boolean isEmpty() {
-        return rowIndex.isEmpty();
+        return cellSize == 0;
     }
 
     @Override
     public int size() {
-        if(isEmpty())
-            return 0;
-
-        return bitsSet.cardinality();
+        return cellSize;
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void clear() {
-        rowIndex.clear();
-        columnIndex.clear();
-        innerV = (V[][]) Array.newInstance(valueClass, 0, 0);
-        bitsSet.clear();
+        _beforeWrite();
+        sharedRows = null;
+        //保留已分配的行容量,只清除行引用
+        Arrays.fill(innerV, 0, rowSize, null);
+        Arrays.fill(rowBits, 0, rowSize, null);
+        _clearRowKeys(0, rowSize);
+        _clearColumnKeys(0, columnSize);
+        columnCounts = new int[_columnKeyCapacity()];
+        rowSize = 0;
+        columnSize = 0;
+        cellSize = 0;
+        emptyRows = 0;
+        emptyColumns = 0;
+        if(valueIndex != null)
+            valueIndex.clear();
+        modCount++;
     }
 
     @Override
     public V put(@Nonnull R rowKey, @Nonnull C columnKey, @Nonnull V value) {
-        Integer rowIdx = rowIndex.get(rowKey);
-        if(rowIdx == null)
-            rowIdx = _incRow(rowKey);
-
-        Integer columnIdx = columnIndex.get(columnKey);
-        if(columnIdx == null)
-            columnIdx = _incColumn(columnKey);
-
+        _beforeWrite();
+        //不存在时,查找结果即为插入位置
+        //墓碑行,列重新放入数据时直接复用
+        int rowIdx = _rowIdx(rowKey);
+        int columnIdx = _columnIdx(columnKey);
+        //有字典时新的key使用字典中的实例,不在字典中时在修改之前抛出异常
+        if(rowIdx < 0 && rowDictionary != null)
+            rowKey = rowDictionary.intern(rowKey);
+        if(columnIdx < 0 && columnDictionary != null)
+            columnKey = columnDictionary.intern(columnKey);
+
+        if(rowIdx < 0)
+            rowIdx = _incRow(rowKey, -rowIdx - 1);
+        else if(emptyRows > 0 && _isRowEmpty(rowIdx))
+            emptyRows--;
+
+        if(columnIdx < 0)
+            columnIdx = _incColumn(columnKey, -columnIdx - 1);
+        else if(_isColumnEmpty(columnIdx))
+            emptyColumns--;
+
+        _ownRow(rowIdx);
         V[] vv = innerV[rowIdx];//这里肯定有值,因此前面已经增长过了
         if(vv.length <= columnIdx) {
             innerV[rowIdx] = vv = _incArray(vv, columnIdx + 1);
@@ -585,14 +1803,31 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
         vv[columnIdx] = value;
 
         //标记位处理
-        _setExist(rowIdx, columnIdx);
+        if(old == null)
+            _setExist(rowIdx, columnIdx);
+        if(valueIndex != null) {
+            if(old != null)
+                _indexRemove(rowIdx, columnIdx, old);
+            _indexAdd(rowIdx, columnIdx, value);
+        }
 
         return old;
     }
 
-    /** 插入一个表格,不支持null */
+    /** 插入一个表格,不支持null;插入的数据不少于当前数据时按mergeWith或putAllBulk整体重建 */
     @Override
+    @SuppressWarnings("unchecked")
     public void putAll(@Nonnull Table<? extends R, ? extends C, ? extends V> table) {
+        if(table.size() >= cellSize) {
+            //同样顺序的ArrayTreeTable直接按有序的key归并
+            if(table instanceof ArrayTreeTable && _sameOrder(rowComparator, ((ArrayTreeTable<?, ?, ?>) table).rowComparator)
+                    && _sameOrder(columnComparator, ((ArrayTreeTable<?, ?, ?>) table).columnComparator))
+                mergeWith((ArrayTreeTable<R, C, V>) table, (a, b) -> b);
+            else
+                putAllBulk(table.cellSet());
+            return;
+        }
+
         for(Cell<? extends R, ? extends C, ? extends V> cell : table.cellSet()) {
             R rowKey = cell.getRowKey();
             C columnKey = cell.getColumnKey();
@@ -604,19 +1839,434 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
         }
     }
 
+    /**
+     * 批量插入无序的单元格,key或值为null的单元格被忽略,相同位置的单元格后面的覆盖前面的
+     * 与逐个put不同,这里先为每个key分配临时编号(按比较器去重),收集完之后行,列各排序一次得到最终下标,
+     * 再按最终的大小一次性分配存储并放入各个值,避免每个新key都引起行,列的整体移位,n个单元格的总耗时为O(n log n)
+     * 已有的数据一并参与重建,之后所有的行均不再与快照共享
+     */
+    @SuppressWarnings("unchecked")
+    public void putAllBulk(@Nonnull Iterable<? extends Cell<? extends R, ? extends C, ? extends V>> cells) {
+        _beforeWrite();
+        //墓碑不参与重建
+        if(emptyRows > 0 || emptyColumns > 0)
+            _compact();
+
+        //已有的key使用原下标作为编号,新的key按出现顺序编号
+        KeyIds<R> rowIds = new KeyIds<>(_rowKeyArray(rowSize), rowSize, rowComparator);
+        KeyIds<C> columnIds = new KeyIds<>(_columnKeyArray(columnSize), columnSize, columnComparator);
+
+        //收集新的单元格,只记录行,列的编号以及值
+        int initial = cells instanceof Collection ? ((Collection<?>) cells).size() : 16;
+        int[] cellRows = new int[initial];
+        int[] cellColumns = new int[initial];
+        V[] newValues = (V[]) Array.newInstance(valueClass, initial);
+        int n = 0;
+        for(Cell<? extends R, ? extends C, ? extends V> cell : cells) {
+            R rowKey = cell.getRowKey();
+            C columnKey = cell.getColumnKey();
+            V value = cell.getValue();
+            if(rowKey == null || columnKey == null || value == null)
+                continue;
+
+            if(n == newValues.length) {
+                int newCapacity = ArrayUtils.grow(n, n + 1);
+                cellRows = Arrays.copyOf(cellRows, newCapacity);
+                cellColumns = Arrays.copyOf(cellColumns, newCapacity);
+                newValues = Arrays.copyOf(newValues, newCapacity);
+            }
+            cellRows[n] = rowIds.id(rowDictionary == null ? rowKey : rowDictionary.intern(rowKey));
+            cellColumns[n] = columnIds.id(columnDictionary == null ? columnKey : columnDictionary.intern(columnKey));
+            newValues[n] = value;
+            n++;
+        }
+        if(n == 0)
+            return;
+
+        //编号到最终下标的映射
+        int newRowSize = rowIds.ids.size();
+        int newColumnSize = columnIds.ids.size();
+        int newRowCapacity = Math.max(newRowSize, rowCapacity);
+        R[] newRowKeys = (R[]) Array.newInstance(rowClass, newRowCapacity);
+        C[] newColumnKeys = (C[]) Array.newInstance(columnClass, Math.max(newColumnSize, columnCapacity));
+        int[] rowMapping = rowIds.mapping(newRowKeys);
+        int[] columnMapping = columnIds.mapping(newColumnKeys);
+
+        //每行需要的长度(最后一个有值的列下标 + 1)
+        int[] rowLength = new int[newRowSize];
+        for(int j = 0; j < n; j++) {
+            int rowIdx = cellRows[j] = rowMapping[cellRows[j]];
+            int columnIdx = cellColumns[j] = columnMapping[cellColumns[j]];
+            rowLength[rowIdx] = Math.max(rowLength[rowIdx], columnIdx + 1);
+        }
+        for(int i = 0; i < rowSize; i++) {
+            long[] words = rowBits[i];
+            for(int k = BitSetUtils.nextSetBit(words, 0); k >= 0; k = BitSetUtils.nextSetBit(words, k + 1))
+                rowLength[rowMapping[i]] = Math.max(rowLength[rowMapping[i]], columnMapping[k] + 1);
+        }
+
+        //按最终大小一次性分配
+        V[][] newV = (V[][]) Array.newInstance(emptyRow.getClass(), newRowCapacity);
+        long[][] newBits = new long[newRowCapacity][];
+        for(int i = 0; i < newRowSize; i++) {
+            int length = Math.max(rowLength[i], columnCapacity);
+            newV[i] = length == 0 ? emptyRow : (V[]) Array.newInstance(valueClass, length);
+            newBits[i] = rowLength[i] == 0 ? BitSetUtils.EMPTY : new long[BitSetUtils.wordsFor(rowLength[i])];
+        }
+
+        //先放入原有的值,再放入新的值,相同位置时新的值覆盖
+        int newCellSize = 0;
+        for(int i = 0; i < rowSize; i++) {
+            int rowIdx = rowMapping[i];
+            V[] vv = innerV[i];
+            long[] words = rowBits[i];
+            for(int k = BitSetUtils.nextSetBit(words, 0); k >= 0; k = BitSetUtils.nextSetBit(words, k + 1)) {
+                int columnIdx = columnMapping[k];
+                newV[rowIdx][columnIdx] = vv[k];
+                newBits[rowIdx][columnIdx >>> 6] |= 1L << columnIdx;
+                newCellSize++;
+            }
+        }
+        for(int j = 0; j < n; j++) {
+            int rowIdx = cellRows[j];
+            int columnIdx = cellColumns[j];
+            long[] words = newBits[rowIdx];
+            if((words[columnIdx >>> 6] & (1L << columnIdx)) == 0) {
+                words[columnIdx >>> 6] |= 1L << columnIdx;
+                newCellSize++;
+            }
+            newV[rowIdx][columnIdx] = newValues[j];
+        }
+
+        _setStorage(newV, newBits, newRowKeys, newRowSize, newColumnKeys, newColumnSize, newCellSize);
+    }
+
+    /**
+     * 整体替换为新建的存储,新的行均不与快照共享;其中有空的行,列时直接整理掉
+     * 新的key需要已在绑定的字典中,此时转换为序号保存
+     */
+    private void _setStorage(V[][] newV, long[][] newBits, R[] newRowKeys, int newRowSize, C[] newColumnKeys, int newColumnSize, int newCellSize) {
+        innerV = newV;
+        rowBits = newBits;
+        if(rowDictionary != null) {
+            rowOrdinals = _toOrdinals(newRowKeys, newRowSize, newRowKeys.length, rowDictionary);
+            rowKeys = null;
+        } else
+            rowKeys = newRowKeys;
+        if(columnDictionary != null) {
+            columnOrdinals = _toOrdinals(newColumnKeys, newColumnSize, newColumnKeys.length, columnDictionary);
+            columnKeys = null;
+        } else
+            columnKeys = newColumnKeys;
+        rowSize = newRowSize;
+        columnSize = newColumnSize;
+        cellSize = newCellSize;
+        sharedRows = null;
+        _countColumns();
+        modCount++;
+
+        boolean hasEmptyRow = false;
+        for(int i = 0; i < rowSize && !hasEmptyRow; i++)
+            hasEmptyRow = _isRowEmpty(i);
+        if(hasEmptyRow || emptyColumns > 0)
+            _compact();
+        if(valueIndex != null)
+            _rebuildValueIndex();
+    }
+
+    //---------------------------- 表运算 start ------------------------------//
+
+    /**
+     * 转置,返回行,列互换的新表,行列key以及比较器一并互换
+     * 直接按存在位将值放入新的存储,不经过逐个put
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayTreeTable<C, R, V> transpose() {
+        ArrayTreeTable<C, R, V> result = new ArrayTreeTable<>(columnClass, rowClass, valueClass, columnComparatorClass, rowComparatorClass);
+        result.rowComparator = columnComparator;
+        result.columnComparator = rowComparator;
+        result.rowDictionary = columnDictionary;
+        result.columnDictionary = rowDictionary;
+        result.init();
+
+        int[] rows = _liveRows();
+        int[] columns = _liveColumns();
+        C[] newRowKeys = (C[]) Array.newInstance(columnClass, columns.length);
+        //原列下标到新行下标
+        int[] columnMapping = new int[columnSize];
+        for(int j = 0; j < columns.length; j++) {
+            newRowKeys[j] = _cKey(columns[j]);
+            columnMapping[columns[j]] = j;
+        }
+        R[] newColumnKeys = (R[]) Array.newInstance(rowClass, rows.length);
+        for(int i = 0; i < rows.length; i++)
+            newColumnKeys[i] = _rKey(rows[i]);
+
+        //新的每行只需要到最后一个有值的列,即原列中最后一个有值的行
+        int[] rowLength = new int[columns.length];
+        for(int i = 0; i < rows.length; i++) {
+            long[] words = rowBits[rows[i]];
+            for(int k = BitSetUtils.nextSetBit(words, 0); k >= 0; k = BitSetUtils.nextSetBit(words, k + 1))
+                rowLength[columnMapping[k]] = i + 1;
+        }
+        V[][] newV = (V[][]) Array.newInstance(emptyRow.getClass(), columns.length);
+        long[][] newBits = new long[columns.length][];
+        for(int j = 0; j < columns.length; j++) {
+            newV[j] = (V[]) Array.newInstance(valueClass, Math.max(rowLength[j], result.columnCapacity));
+            newBits[j] = new long[BitSetUtils.wordsFor(rowLength[j])];
+        }
+        for(int i = 0; i < rows.length; i++) {
+            V[] vv = innerV[rows[i]];
+            long[] words = rowBits[rows[i]];
+            for(int k = BitSetUtils.nextSetBit(words, 0); k >= 0; k = BitSetUtils.nextSetBit(words, k + 1)) {
+                int newRowIdx = columnMapping[k];
+                newV[newRowIdx][i] = vv[k];
+                newBits[newRowIdx][i >>> 6] |= 1L << i;
+            }
+        }
+        result._setStorage(newV, newBits, newRowKeys, columns.length, newColumnKeys, rows.length, cellSize);
+
+        return result;
+    }
+
+    /**
+     * 将另一个表的数据合并到当前表,两边都有的单元格由merger(当前值,另一个表的值)合并,与Map.merge相同,返回null时移除此单元格
+     * 两个表的行,列key各自有序,按归并得到新的行,列,只重建一次存储;当前表的列没有增加时,各行的值以及存在位整体复制
+     * 不会像逐个put那样每个新key都引起行,列的整体移位;两个表需要使用同一个比较器实例(或均为自然顺序)
+     */
+    public void mergeWith(@Nonnull ArrayTreeTable<R, C, V> other, @Nonnull BinaryOperator<V> merger) {
+        _beforeWrite();
+        if(emptyRows > 0 || emptyColumns > 0)
+            _compact();
+        _combine(this, other, merger, false);
+    }
+
+    /**
+     * 按行连接,返回只包含两个表都有的行的新表,列为两个表的列
+     * 两边都有的单元格由merger(当前值,另一个表的值)合并,返回null时不保留此单元格
+     */
+    public ArrayTreeTable<R, C, V> joinOnRows(@Nonnull ArrayTreeTable<R, C, V> other, @Nonnull BinaryOperator<V> merger) {
+        ArrayTreeTable<R, C, V> result = new ArrayTreeTable<>(rowClass, columnClass, valueClass, rowComparatorClass, columnComparatorClass);
+        result.rowComparator = rowComparator;
+        result.columnComparator = columnComparator;
+        result.rowDictionary = rowDictionary;
+        result.columnDictionary = columnDictionary;
+        result.init();
+        _combine(result, other, merger, true);
+
+        return result;
+    }
+
+    /** 按行连接,两边都有的单元格使用另一个表的值 */
+    public ArrayTreeTable<R, C, V> joinOnRows(@Nonnull ArrayTreeTable<R, C, V> other) {
+        return joinOnRows(other, (a, b) -> b);
+    }
+
+    /**
+     * 两个比较器是否给出相同的顺序,只认同一个实例,自然顺序的不同实现视为相同
+     * 不能按类判断,由同一处lambda或Comparator.comparing创建的比较器类相同,顺序却可以不同
+     */
+    private static boolean _sameOrder(Comparator<?> a, Comparator<?> b) {
+        return a == b || (ComparatorUtils.isNaturalOrder(a) && ComparatorUtils.isNaturalOrder(b));
+    }
+
+    /**
+     * 将当前表与另一个表合并到目标表中,目标表可以为当前表
+     * 只读取两边不是墓碑的行,列;rowsInBoth时只保留两边都有的行
+     */
+    @SuppressWarnings("unchecked")
+    private void _combine(ArrayTreeTable<R, C, V> target, ArrayTreeTable<R, C, V> other, BinaryOperator<V> merger, boolean rowsInBoth) {
+        if(!_sameOrder(rowComparator, other.rowComparator) || !_sameOrder(columnComparator, other.columnComparator))
+            throw new IllegalArgumentException("两个表的比较器不一致");
+
+        int[] aRows = _liveRows();
+        int[] bRows = other._liveRows();
+        int[] aColumns = _liveColumns();
+        int[] bColumns = other._liveColumns();
+
+        //归并行,列key,记录新下标对应的两边下标,目标表有字典时另一个表的key在修改之前先转换
+        R[] newRowKeys = (R[]) Array.newInstance(rowClass, aRows.length + bRows.length);
+        int[] aOfRow = new int[newRowKeys.length];
+        int[] bOfRow = new int[newRowKeys.length];
+        int newRowSize = _mergeKeys(_rowKeyArray(rowSize), aRows, other._rowKeyArray(other.rowSize), bRows, rowComparator, rowsInBoth, target.rowDictionary,
+                newRowKeys, aOfRow, bOfRow);
+        C[] newColumnKeys = (C[]) Array.newInstance(columnClass, aColumns.length + bColumns.length);
+        int[] aOfColumn = new int[newColumnKeys.length];
+        int[] bOfColumn = new int[newColumnKeys.length];
+        int newColumnSize = _mergeKeys(_columnKeyArray(columnSize), aColumns, other._columnKeyArray(other.columnSize), bColumns, columnComparator, false, target.columnDictionary,
+                newColumnKeys, aOfColumn, bOfColumn);
+
+        //两边原列下标到新列下标
+        int[] aColumnMapping = new int[columnSize];
+        int[] bColumnMapping = new int[other.columnSize];
+        for(int n = 0; n < newColumnSize; n++) {
+            if(aOfColumn[n] >= 0)
+                aColumnMapping[aOfColumn[n]] = n;
+            if(bOfColumn[n] >= 0)
+                bColumnMapping[bOfColumn[n]] = n;
+        }
+        //当前表的列均保留并且没有新增的列时,新列下标与原下标相同,可以整行复制
+        boolean sameColumns = newColumnSize == columnSize && aColumns.length == columnSize;
+
+        V[][] newV = (V[][]) Array.newInstance(target.emptyRow.getClass(), newRowSize);
+        long[][] newBits = new long[newRowSize][];
+        int newCellSize = 0;
+        for(int i = 0; i < newRowSize; i++) {
+            //每行只分配到两边最后一个有值的列,列的映射保持顺序,因此由两边各自最后的存在位得出
+            int a = aOfRow[i];
+            int b = bOfRow[i];
+            int length = 0;
+            if(a >= 0) {
+                int last = BitSetUtils.lastSetBit(rowBits[a]);
+                if(last >= 0)
+                    length = aColumnMapping[last] + 1;
+            }
+            if(b >= 0) {
+                int last = BitSetUtils.lastSetBit(other.rowBits[b]);
+                if(last >= 0)
+                    length = Math.max(length, bColumnMapping[last] + 1);
+            }
+            int capacity = Math.max(length, target.columnCapacity);
+            V[] vv = capacity == 0 ? target.emptyRow : (V[]) Array.newInstance(valueClass, capacity);
+            long[] bits = length == 0 ? BitSetUtils.EMPTY : new long[BitSetUtils.wordsFor(length)];
+            if(a >= 0) {
+                V[] src = innerV[a];
+                long[] srcBits = rowBits[a];
+                if(sameColumns) {
+                    System.arraycopy(src, 0, vv, 0, Math.min(src.length, length));
+                    System.arraycopy(srcBits, 0, bits, 0, Math.min(srcBits.length, bits.length));
+                } else {
+                    for(int k = BitSetUtils.nextSetBit(srcBits, 0); k >= 0; k = BitSetUtils.nextSetBit(srcBits, k + 1)) {
+                        int n = aColumnMapping[k];
+                        vv[n] = src[k];
+                        bits[n >>> 6] |= 1L << n;
+                    }
+                }
+            }
+
+            if(b >= 0) {
+                V[] src = other.innerV[b];
+                long[] srcBits = other.rowBits[b];
+                for(int k = BitSetUtils.nextSetBit(srcBits, 0); k >= 0; k = BitSetUtils.nextSetBit(srcBits, k + 1)) {
+                    int n = bColumnMapping[k];
+                    V value = BitSetUtils.get(bits, n) ? merger.apply(vv[n], src[k]) : src[k];
+                    vv[n] = value;
+                    if(value != null)
+                        bits[n >>> 6] |= 1L << n;
+                    else
+                        BitSetUtils.clear(bits, n);
+                }
+            }
+
+            newCellSize += BitSetUtils.cardinality(bits);
+            newV[i] = vv;
+            newBits[i] = bits;
+        }
+
+        target._setStorage(newV, newBits, newRowKeys, newRowSize, newColumnKeys, newColumnSize, newCellSize);
+    }
+
+    /**
+     * 归并两个有序的key序列(只取指定的下标),返回合并后的数量,新下标对应的两边下标写入aOf,bOf,没有时为-1
+     * 两边为同一个key实例时(如共用字典)不再调用比较器;intersect时只保留两边都有的key
+     */
+    private static <K> int _mergeKeys(K[] a, int[] aIdx, K[] b, int[] bIdx, Comparator<? super K> comparator, boolean intersect,
+                                      AxisDictionary<K> dictionary, K[] out, int[] aOf, int[] bOf) {
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while(i < aIdx.length || j < bIdx.length) {
+            int cmp;
+            if(i == aIdx.length)
+                cmp = 1;
+            else if(j == bIdx.length)
+                cmp = -1;
+            else {
+                K x = a[aIdx[i]];
+                K y = b[bIdx[j]];
+                cmp = x == y ? 0 : comparator.compare(x, y);
+            }
+
+            if(intersect && cmp != 0) {
+                if(cmp < 0)
+                    i++;
+                else
+                    j++;
+                continue;
+            }
+
+            if(cmp <= 0) {
+                out[n] = a[aIdx[i]];
+                aOf[n] = aIdx[i++];
+            } else
+                aOf[n] = -1;
+            if(cmp >= 0) {
+                K key = b[bIdx[j]];
+                if(cmp > 0)
+                    out[n] = dictionary == null ? key : dictionary.intern(key);
+                bOf[n] = bIdx[j++];
+            } else
+                bOf[n] = -1;
+            n++;
+        }
+
+        return n;
+    }
+
+    //---------------------------- 表运算 end ------------------------------//
+
+    /**
+     * 批量插入时为key分配编号,按比较器去重
+     * 输入数据通常按行聚集,因此与上一个key相同时直接使用上一个编号,不再查找
+     */
+    private static class KeyIds<K> {
+        private final TreeMap<K, Integer> ids;
+        private K lastKey;
+        private int lastId = -1;
+
+        KeyIds(K[] keys, int size, Comparator<? super K> comparator) {
+            ids = new TreeMap<>(comparator);
+            for(int i = 0; i < size; i++)
+                ids.put(keys[i], i);
+        }
+
+        int id(K key) {
+            if(lastId >= 0 && ids.comparator().compare(lastKey, key) == 0)
+                return lastId;
+
+            Integer id = ids.putIfAbsent(key, ids.size());
+            lastKey = key;
+            return lastId = id == null ? ids.size() - 1 : id;
+        }
+
+        /** 按比较器顺序将key放入数组,返回编号到最终下标的映射 */
+        int[] mapping(K[] sortedKeys) {
+            int[] mapping = new int[ids.size()];
+            int idx = 0;
+            for(Map.Entry<K, Integer> entry : ids.entrySet()) {
+                sortedKeys[idx] = entry.getKey();
+                mapping[entry.getValue()] = idx++;
+            }
+
+            return mapping;
+        }
+    }
+
     @Override
     public V remove(@Nullable Object rowKey, @Nullable Object columnKey) {
-        R _rKey = _r(rowKey);
-        val rowIdx = rowIndex.get(_rKey);
-        if(rowIdx == null)
+        int rowIdx = _rowIdx(_r(rowKey));
+        if(rowIdx < 0)
             return null;
 
-        C _cKey = _c(columnKey);
-        val columnIdx = columnIndex.get(_cKey);
-        if(columnIdx == null)
+        int columnIdx = _columnIdx(_c(columnKey));
+        if(columnIdx < 0)
             return null;
 
-        return _remove(_rKey, rowIdx, _cKey, columnIdx, true, true);
+        V old = _remove(rowIdx, columnIdx, true, true);
+        if(lazyCompaction)
+            _compactIfNeeded();
+
+        return old;
     }
 
     @Override
@@ -632,6 +2282,86 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
         return new Column(columnKey);
     }
 
+    /** 比较类型信息以及实际存储的数据,内部的预留容量不参与比较 */
+    @Override
+    public boolean equals(Object o) {
+        if(this == o)
+            return true;
+        if(!(o instanceof ArrayTreeTable))
+            return false;
+
+        ArrayTreeTable<?, ?, ?> that = (ArrayTreeTable<?, ?, ?>) o;
+        if(!Objects.equals(rowClass, that.rowClass) || !Objects.equals(columnClass, that.columnClass)
+                || !Objects.equals(valueClass, that.valueClass)
+                || !Objects.equals(rowComparatorClass, that.rowComparatorClass)
+                || !Objects.equals(columnComparatorClass, that.columnComparatorClass))
+            return false;
+
+        //墓碑行,列不参与比较
+        int[] rows = _liveRows();
+        int[] columns = _liveColumns();
+        int[] thatRows = that._liveRows();
+        int[] thatColumns = that._liveColumns();
+        if(rows.length != thatRows.length || columns.length != thatColumns.length)
+            return false;
+        for(int i = 0; i < rows.length; i++) {
+            if(!Objects.equals(_rKey(rows[i]), that._rKey(thatRows[i])))
+                return false;
+        }
+        for(int k = 0; k < columns.length; k++) {
+            if(!Objects.equals(_cKey(columns[k]), that._cKey(thatColumns[k])))
+                return false;
+        }
+
+        for(int i = 0; i < rows.length; i++) {
+            for(int k = 0; k < columns.length; k++) {
+                if(!Objects.equals(_get(rows[i], columns[k]), that._get(thatRows[i], thatColumns[k])))
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int[] rows = _liveRows();
+        int[] columns = _liveColumns();
+        int result = Objects.hash(rowClass, columnClass, valueClass, rowComparatorClass, columnComparatorClass);
+        for(int i : rows)
+            result = result * 31 + Objects.hashCode(_rKey(i));
+        for(int k : columns)
+            result = result * 31 + Objects.hashCode(_cKey(k));
+        for(int i : rows) {
+            for(int k : columns)
+                result = result * 31 + Objects.hashCode(_get(i, k));
+        }
+
+        return result;
+    }
+
+    /** 不是墓碑的行下标 */
+    private int[] _liveRows() {
+        int[] result = new int[rowSize - emptyRows];
+        for(int i = 0, idx = 0; i < rowSize; i++) {
+            if(_isRowLive(i))
+                result[idx++] = i;
+        }
+
+        return result;
+    }
+
+    /** 不是墓碑的列下标 */
+    private int[] _liveColumns() {
+        int[] result = new int[columnSize - emptyColumns];
+        for(int k = 0, idx = 0; k < columnSize; k++) {
+            if(_isColumnLive(k))
+                result[idx++] = k;
+        }
+
+        return result;
+    }
+
     @Override
     public Set<Cell<R, C, V>> cellSet() {
         if(cellSet == null)
@@ -680,14 +2410,9 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
 
         private transient RowEntrySet entrySet;
 
-        /** 相应在索引中具体有效的起始位置 */
-        private int _bitStart() {
-            return rowIndex.get(rowKey) * columnIndex.size();
-        }
-
-        /** 在索引中有效的结束位置 */
-        private int _bitEnd() {
-            return _bitStart() + columnIndex.size();
+        /** 当前行的下标 */
+        private int _rowIdx() {
+            return ArrayTreeTable.this._rowIdx(rowKey);
         }
 
         @Override
@@ -744,13 +2469,7 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
                     return 0;
 
                 //位计算
-                int start = _bitStart();
-                int end = _bitEnd();
-                int count = 0;
-                for(int k = bitsSet.nextSetBit(start); k >= 0 && k < end; k = bitsSet.nextSetBit(k + 1))
-                    count++;
-
-                return count;
+                return BitSetUtils.cardinality(rowBits[_rowIdx()]);
             }
 
             @Override
@@ -771,18 +2490,28 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
                 }
 
                 return new Iterator<Entry<C, V>>() {
-                    private int start = _bitStart();
-                    private int end = _bitEnd();
-                    /** 当前行中相应的列的下标位 */
-                    private List<C> cList = new ArrayList<>(columnIndex.keySet());
+                    private final int rowIdx = _rowIdx();
 
-                    private transient int index = start;
+                    /** 下一次开始查找的列下标 */
+                    private int index = 0;
+                    /** 已经定位到的下一个列下标,没有时为-1,在located为true时有效 */
+                    private int found;
+                    private boolean located;
+                    /** 当前行已经通过迭代器移除,迭代结束 */
+                    private boolean rowRemoved;
 
-                    private transient Entry<C, V> next;
+                    /** 上一次返回的列下标,用于移除 */
+                    private int lastIdx = -1;
+                    private int expectedModCount = modCount;
 
                     private int _nextValidIdx() {
-                        int k = bitsSet.nextSetBit(index);
-                        return k >= 0 && k < end ? k : -1;
+                        _checkModCount(expectedModCount);
+                        if(!located) {
+                            found = rowRemoved ? -1 : BitSetUtils.nextSetBit(rowBits[rowIdx], index);
+                            located = true;
+                        }
+
+                        return found;
                     }
 
                     @Override
@@ -796,21 +2525,31 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
                         if(idx == -1)
                             throw new NoSuchElementException();
 
-                        IdxV idxV = _idxV(idx);
-                        next = new MapEntry<>(cList.get(idxV.columnIdx), idxV);
+                        located = false;
                         index = idx + 1;//索引往后移,以保证不会重新拿到当前对象
+                        lastIdx = idx;
 
-                        return next;
+                        return new MapEntry<>(_cKey(idx), new IdxV(rowIdx, idx, innerV[rowIdx][idx]));
                     }
 
                     @Override
                     public void remove() {
-                        if(next == null) {
+                        if(lastIdx == -1) {
                             throw new RuntimeException("不正确的移除,请先调用next");
                         }
-
-                        Row.this.remove(next.getKey());
-                        next = null;//保证不会重复移除
+                        _checkModCount(expectedModCount);
+
+                        int oldRowSize = rowSize;
+                        int oldColumnSize = columnSize;
+                        _remove(rowIdx, lastIdx, true, true);
+                        if(rowSize < oldRowSize)
+                            rowRemoved = true;
+                        else if(columnSize < oldColumnSize)
+                            index = lastIdx;//当前列已移除,后面的列前移一位
+
+                        lastIdx = -1;//保证不会重复移除
+                        located = false;
+                        expectedModCount = modCount;
                     }
                 };
             }
@@ -842,7 +2581,7 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
 
         @Override
         public int size() {
-            return rowIndex.size();
+            return rowSize - emptyRows;
         }
 
         @Override
@@ -862,17 +2601,32 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
                     return Collections.emptyIterator();
 
                 return new Iterator<Entry<R, Map<C, V>>>() {
-                    private Iterator<R> rIterator = rowIndex.keySet().iterator();
+                    /** 下一个行下标 */
+                    private int index = 0;
                     private transient Entry<R, Map<C, V>> next;
+                    private int expectedModCount = modCount;
+
+                    /** 跳过墓碑行 */
+                    private void _skipEmpty() {
+                        while(index < rowSize && !_isRowLive(index))
+                            index++;
+                    }
 
                     @Override
                     public boolean hasNext() {
-                        return rIterator.hasNext();
+                        _checkModCount(expectedModCount);
+                        _skipEmpty();
+                        return index < rowSize;
                     }
 
                     @Override
                     public Entry<R, Map<C, V>> next() {
-                        R rowKey = rIterator.next();
+                        _checkModCount(expectedModCount);
+                        _skipEmpty();
+                        if(index >= rowSize)
+                            throw new NoSuchElementException();
+
+                        R rowKey = _rKey(index++);
                         Map<C, V> row = RowMap.this.get(rowKey);
                         next = new MapMapEntry<>(rowKey, row);
                         return next;
@@ -884,8 +2638,11 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
                             throw new RuntimeException("不正确的移除,请先调用next");
                         }
 
+                        _checkModCount(expectedModCount);
                         RowMap.this.remove(next.getKey());
+                        index--;//当前行已移除,后面的行前移一位
                         next = null;//保证不会重复移除
+                        expectedModCount = modCount;
                     }
                 };
             }
@@ -894,6 +2651,18 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
             public int size() {
                 return RowMap.this.size();
             }
+
+            @Override
+            public Spliterator<Entry<R, Map<C, V>>> spliterator() {
+                //有墓碑行时不能按下标范围准确拆分
+                if(emptyRows > 0)
+                    return super.spliterator();
+
+                return new IndexSpliterator<>(0, rowSize, rowIdx -> {
+                    R rowKey = _rKey(rowIdx);
+                    return new MapMapEntry<>(rowKey, RowMap.this.get(rowKey));
+                }, modCount);
+            }
         }
     }
 
@@ -956,17 +2725,8 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
                 if(isEmpty())
                     return 0;
 
-                //这里直接采用数组计算,以快速定位到指定位置
-                int columnIdx = columnIndex.get(columnKey);
-                int rowSize = rowIndex.size();
-                int cnt = 0;
-                for(int rowIdx = 0; rowIdx < rowSize; rowIdx++) {
-                    V[] vv = innerV[rowIdx];
-                    if(vv.length > columnIdx && vv[columnIdx] != null)
-                        cnt++;
-                }
-
-                return cnt;
+                //直接使用列的单元格数
+                return columnCounts[_columnIdx(columnKey)];
             }
 
             @Override
@@ -987,58 +2747,72 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
                 }
 
                 return new Iterator<Entry<R, V>>() {
+                    private final int columnIdx = _columnIdx(columnKey);
+
+                    /** 下一次开始查找的行下标 */
                     private int rowIdx = 0;
-                    private int rowSize = rowIndex.size();
-                    private int columnIdx = columnIndex.get(columnKey);
-
-                    private transient List<R> rList = new ArrayList<>(rowIndex.keySet());
-                    private transient int foundRowIdx = -1;
-                    private transient Entry<R, V> next;
-
-                    private boolean _toNextValid() {
-                        while(rowIdx < rowSize) {
-                            V[] vv = innerV[rowIdx];
-                            if(vv.length > columnIdx && vv[columnIdx] != null) {
-                                foundRowIdx = rowIdx;
-                                return true;
+                    /** 已经定位到的下一个行下标,没有时为-1,在located为true时有效 */
+                    private int found;
+                    private boolean located;
+                    /** 当前列已经通过迭代器移除,迭代结束 */
+                    private boolean columnRemoved;
+
+                    /** 上一次返回的行下标,用于移除 */
+                    private int lastIdx = -1;
+                    private int expectedModCount = modCount;
+
+                    private int _nextValidIdx() {
+                        _checkModCount(expectedModCount);
+                        if(!located) {
+                            found = -1;
+                            for(int i = rowIdx; !columnRemoved && i < rowSize; i++) {
+                                if(BitSetUtils.get(rowBits[i], columnIdx)) {
+                                    found = i;
+                                    break;
+                                }
                             }
-                            rowIdx++;
+                            located = true;
                         }
 
-                        return false;
+                        return found;
                     }
 
-                    @SuppressWarnings("SimplifiableIfStatement")
                     @Override
                     public boolean hasNext() {
-                        //之前已经检测过,则直接返回
-                        if(foundRowIdx != -1)
-                            return true;
-
-                        return _toNextValid();
+                        return _nextValidIdx() != -1;
                     }
 
                     @Override
                     public Entry<R, V> next() {
-                        if(foundRowIdx == -1 && !_toNextValid())
+                        int idx = _nextValidIdx();
+                        if(idx == -1)
                             throw new NoSuchElementException();
 
-                        V v = innerV[foundRowIdx][columnIdx];
-                        next = new MapEntry<>(rList.get(foundRowIdx), new IdxV(foundRowIdx, columnIdx, v));
-                        foundRowIdx = -1;//重置标记位
-                        rowIdx++;//推到下一行
+                        located = false;
+                        rowIdx = idx + 1;//推到下一行
+                        lastIdx = idx;
 
-                        return next;
+                        return new MapEntry<>(_rKey(idx), new IdxV(idx, columnIdx, innerV[idx][columnIdx]));
                     }
 
                     @Override
                     public void remove() {
-                        if(next == null) {
+                        if(lastIdx == -1) {
                             throw new RuntimeException("不正确的移除,请先调用next");
                         }
-
-                        Column.this.remove(next.getKey());
-                        next = null;//保证不会重复移除
+                        _checkModCount(expectedModCount);
+
+                        int oldRowSize = rowSize;
+                        int oldColumnSize = columnSize;
+                        _remove(lastIdx, columnIdx, true, true);
+                        if(columnSize < oldColumnSize)
+                            columnRemoved = true;
+                        else if(rowSize < oldRowSize)
+                            rowIdx = lastIdx;//当前行已移除,后面的行前移一位
+
+                        lastIdx = -1;//保证不会重复移除
+                        located = false;
+                        expectedModCount = modCount;
                     }
                 };
             }
@@ -1070,7 +2844,7 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
 
         @Override
         public int size() {
-            return columnIndex.size();
+            return columnSize - emptyColumns;
         }
 
         @Override
@@ -1090,17 +2864,32 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
                     return Collections.emptyIterator();
 
                 return new Iterator<Entry<C, Map<R, V>>>() {
-                    private Iterator<C> cIterator = columnIndex.keySet().iterator();
+                    /** 下一个列下标 */
+                    private int index = 0;
                     private transient Entry<C, Map<R, V>> next;
+                    private int expectedModCount = modCount;
+
+                    /** 跳过墓碑列 */
+                    private void _skipEmpty() {
+                        while(index < columnSize && !_isColumnLive(index))
+                            index++;
+                    }
 
                     @Override
                     public boolean hasNext() {
-                        return cIterator.hasNext();
+                        _checkModCount(expectedModCount);
+                        _skipEmpty();
+                        return index < columnSize;
                     }
 
                     @Override
                     public Entry<C, Map<R, V>> next() {
-                        C columnKey = cIterator.next();
+                        _checkModCount(expectedModCount);
+                        _skipEmpty();
+                        if(index >= columnSize)
+                            throw new NoSuchElementException();
+
+                        C columnKey = _cKey(index++);
                         Map<R, V> column = ColumnMap.this.get(columnKey);
                         next = new MapMapEntry<>(columnKey, column);
                         return next;
@@ -1112,8 +2901,11 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
                             throw new RuntimeException("不正确的移除,请先调用next");
                         }
 
+                        _checkModCount(expectedModCount);
                         ColumnMap.this.remove(next.getKey());
+                        index--;//当前列已移除,后面的列前移一位
                         next = null;//保证不会重复移除
+                        expectedModCount = modCount;
                     }
                 };
             }
@@ -1122,103 +2914,292 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
             public int size() {
                 return ColumnMap.this.size();
             }
+
+            @Override
+            public Spliterator<Entry<C, Map<R, V>>> spliterator() {
+                //有墓碑列时不能按下标范围准确拆分
+                if(emptyColumns > 0)
+                    return super.spliterator();
+
+                return new IndexSpliterator<>(0, columnSize, columnIdx -> {
+                    C columnKey = _cKey(columnIdx);
+                    return new MapMapEntry<>(columnKey, ColumnMap.this.get(columnKey));
+                }, modCount);
+            }
         }
     }
 
-    private class CellSet extends AbstractSet<Cell<R, C, V>> {
-        @Override
-        @Nonnull
-        public Iterator<Cell<R, C, V>> iterator() {
-            return new Iterator<Cell<R, C, V>>() {
-                private List<R> rList = new ArrayList<>(rowIndex.keySet());
-                private List<C> cList = new ArrayList<>(columnIndex.keySet());
-                private int index = 0;
-
-                private transient TableCell next;
-
-                private int _nextValidIndex() {
-                    return bitsSet.nextSetBit(index);
-                }
+    /**
+     * 按行依次遍历所有的单元格
+     * 有其它的结构性修改时快速失败,通过迭代器移除时按行,列的减少修正下一次查找的位置
+     */
+    private abstract class CellIterator<T> implements Iterator<T> {
+        private int rowIdx = 0;
+        /** 当前行中下一次开始查找的列下标 */
+        private int index = 0;
+        /** 已经定位到的下一个单元格的列下标,没有时为-1,在located为true时有效 */
+        private int found;
+        private boolean located;
+
+        /** 上一次返回的单元格,用于移除 */
+        private int lastRowIdx = -1;
+        private int lastColumnIdx;
+        private int expectedModCount = modCount;
+
+        abstract T _make(int rowIdx, int columnIdx);
+
+        /** 定位到下一个有值的单元格,同时移动行下标,返回列下标,没有时返回-1 */
+        private int _nextValidIndex() {
+            _checkModCount(expectedModCount);
+            if(!located) {
+                found = -1;
+                while(rowIdx < rowSize) {
+                    int k = BitSetUtils.nextSetBit(rowBits[rowIdx], index);
+                    if(k >= 0) {
+                        found = k;
+                        break;
+                    }
 
-                @Override
-                public boolean hasNext() {
-                    return _nextValidIndex() != -1;
+                    rowIdx++;
+                    index = 0;
                 }
+                located = true;
+            }
 
-                @Override
-                public Cell<R, C, V> next() {
-                    int idx = _nextValidIndex();
-                    if(idx == -1)
-                        throw new NoSuchElementException();
+            return found;
+        }
 
-                    IdxV idxV = _idxV(idx);
-                    next = new TableCell(rList.get(idxV.rowIdx), cList.get(idxV.columnIdx), idxV);
-                    index++;//索引往后走,避免反复处理当前格
+        @Override
+        public boolean hasNext() {
+            return _nextValidIndex() != -1;
+        }
 
-                    return next;
-                }
+        @Override
+        public T next() {
+            int idx = _nextValidIndex();
+            if(idx == -1)
+                throw new NoSuchElementException();
 
-                @Override
-                public void remove() {
-                    if(next == null)
-                        throw new RuntimeException("必须先调用next");
+            located = false;
+            index = idx + 1;//索引往后走,避免反复处理当前格
+            lastRowIdx = rowIdx;
+            lastColumnIdx = idx;
 
-                    ArrayTreeTable.this.remove(next.rowKey, next.columnKey);
-                    next = null;
-                }
-            };
+            return _make(rowIdx, idx);
         }
 
         @Override
-        public int size() {
-            return ArrayTreeTable.this.size();
+        public void remove() {
+            if(lastRowIdx == -1)
+                throw new RuntimeException("必须先调用next");
+            _checkModCount(expectedModCount);
+
+            int oldRowSize = rowSize;
+            int oldColumnSize = columnSize;
+            _remove(lastRowIdx, lastColumnIdx, true, true);
+            //hasNext可能已经移到了后面的行,后面的行在当前行移除之后前移一位
+            if(rowSize < oldRowSize) {
+                if(rowIdx > lastRowIdx)
+                    rowIdx--;
+                else
+                    index = 0;
+            } else if(columnSize < oldColumnSize && rowIdx == lastRowIdx)
+                index = lastColumnIdx;
+
+            lastRowIdx = -1;
+            located = false;
+            expectedModCount = modCount;
         }
     }
 
-    private class ValueCollection extends AbstractCollection<V> {
-        @Override
-        @Nonnull
-        public Iterator<V> iterator() {
-            return new Iterator<V>() {
-                private int index = 0;
-                private List<R> rList = new ArrayList<>(rowIndex.keySet());
-                private List<C> cList = new ArrayList<>(columnIndex.keySet());
+    /** 根据行,列下标创建相应的对象 */
+    private interface IdxMaker<T> {
+        T make(int rowIdx, int columnIdx);
+    }
 
-                private transient TableCell next;
+    /**
+     * 按行范围拆分的单元格spliterator,拆分时按行对半分
+     * 拆分时计算后半部分行的单元格数,因此拆分之后的大小仍是准确的(SIZED,SUBSIZED)
+     * 只在遍历结束时检查结构性修改,与ArrayList的spliterator一致
+     */
+    private class CellSpliterator<T> implements Spliterator<T> {
+        private int rowIdx;
+        /** 当前行中下一次开始查找的列下标 */
+        private int index;
+        private final int toRow;
+        /** 剩余的单元格数 */
+        private long size;
+        private final int characteristics;
+        private final IdxMaker<T> maker;
+        private final int expectedModCount;
+
+        CellSpliterator(int fromRow, int index, int toRow, long size, int characteristics, IdxMaker<T> maker, int expectedModCount) {
+            this.rowIdx = fromRow;
+            this.index = index;
+            this.toRow = toRow;
+            this.size = size;
+            this.characteristics = characteristics;
+            this.maker = maker;
+            this.expectedModCount = expectedModCount;
+        }
 
-                private int _nextValidIndex() {
-                    return bitsSet.nextSetBit(index);
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while(rowIdx < toRow) {
+                int k = BitSetUtils.nextSetBit(rowBits[rowIdx], index);
+                if(k >= 0) {
+                    index = k + 1;
+                    size--;
+                    action.accept(maker.make(rowIdx, k));
+                    _checkModCount(expectedModCount);
+                    return true;
                 }
 
-                @Override
-                public boolean hasNext() {
-                    return _nextValidIndex() != -1;
-                }
+                rowIdx++;
+                index = 0;
+            }
 
-                @Override
-                public V next() {
-                    int idx = _nextValidIndex();
-                    if(idx == -1)
-                        throw new NoSuchElementException();
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            for(; rowIdx < toRow; rowIdx++, index = 0) {
+                long[] words = rowBits[rowIdx];
+                for(int k = BitSetUtils.nextSetBit(words, index); k >= 0; k = BitSetUtils.nextSetBit(words, k + 1))
+                    action.accept(maker.make(rowIdx, k));
+            }
+            size = 0;
+            _checkModCount(expectedModCount);
+        }
+
+        /** 返回前半部分的行,当前对象保留后半部分的行 */
+        @Override
+        public Spliterator<T> trySplit() {
+            int mid = (rowIdx + toRow) >>> 1;
+            if(mid <= rowIdx)
+                return null;
 
-                    IdxV idxV = _idxV(idx);
-                    next = new TableCell(rList.get(idxV.rowIdx), cList.get(idxV.columnIdx), idxV);
-                    index++;//增长查询下标,避免重复定位
+            long suffixSize = 0;
+            for(int i = mid; i < toRow; i++)
+                suffixSize += BitSetUtils.cardinality(rowBits[i]);
 
-                    return next.getValue();
-                }
+            Spliterator<T> prefix = new CellSpliterator<>(rowIdx, index, mid, size - suffixSize, characteristics, maker, expectedModCount);
+            rowIdx = mid;
+            index = 0;
+            size = suffixSize;
+
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+    }
+
+    /** 按行(列)下标范围拆分的spliterator,用于rowMap,columnMap */
+    private class IndexSpliterator<T> implements Spliterator<T> {
+        private int index;
+        private final int to;
+        private final IntFunction<T> maker;
+        private final int expectedModCount;
+
+        IndexSpliterator(int from, int to, IntFunction<T> maker, int expectedModCount) {
+            this.index = from;
+            this.to = to;
+            this.maker = maker;
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if(index >= to)
+                return false;
+
+            action.accept(maker.apply(index++));
+            _checkModCount(expectedModCount);
+            return true;
+        }
 
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            for(; index < to; index++)
+                action.accept(maker.apply(index));
+            _checkModCount(expectedModCount);
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int mid = (index + to) >>> 1;
+            if(mid <= index)
+                return null;
+
+            Spliterator<T> prefix = new IndexSpliterator<>(index, mid, maker, expectedModCount);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | DISTINCT;
+        }
+    }
+
+    private class CellSet extends AbstractSet<Cell<R, C, V>> {
+        @Override
+        @Nonnull
+        public Iterator<Cell<R, C, V>> iterator() {
+            return new CellIterator<Cell<R, C, V>>() {
                 @Override
-                public void remove() {
-                    if(next == null)
-                        throw new RuntimeException("请先调用next");
+                Cell<R, C, V> _make(int rowIdx, int columnIdx) {
+                    return new TableCell(_rKey(rowIdx), _cKey(columnIdx), new IdxV(rowIdx, columnIdx, innerV[rowIdx][columnIdx]));
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<Cell<R, C, V>> spliterator() {
+            return new CellSpliterator<>(0, 0, rowSize, cellSize, Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED
+                    | Spliterator.NONNULL | Spliterator.DISTINCT,
+                    (rowIdx, columnIdx) -> new TableCell(_rKey(rowIdx), _cKey(columnIdx), new IdxV(rowIdx, columnIdx, innerV[rowIdx][columnIdx])),
+                    modCount);
+        }
+
+        @Override
+        public int size() {
+            return ArrayTreeTable.this.size();
+        }
+    }
 
-                    ArrayTreeTable.this._remove(next);
-                    next = null;
+    private class ValueCollection extends AbstractCollection<V> {
+        @Override
+        @Nonnull
+        public Iterator<V> iterator() {
+            return new CellIterator<V>() {
+                @Override
+                V _make(int rowIdx, int columnIdx) {
+                    return innerV[rowIdx][columnIdx];
                 }
             };
         }
 
+        @Override
+        public Spliterator<V> spliterator() {
+            return new CellSpliterator<>(0, 0, rowSize, cellSize, Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL,
+                    (rowIdx, columnIdx) -> innerV[rowIdx][columnIdx], modCount);
+        }
+
         @Override
         public int size() {
             return ArrayTreeTable.this.size();
@@ -1263,6 +3244,984 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
         }
     }
 
+    /**
+     * 按行,列key范围的视图,每次访问时由key二分查找得到下标范围,因此当前表增减行列之后视图仍然正确
+     * 行,列key集合为NavigableSet,rowMap,columnMap为NavigableMap;只包含范围内有数据的行,列
+     * 由subTable等创建时起始包含,结束不包含;由key集合的subSet等导航方法创建时,边界是否包含由参数决定
+     */
+    public class RangeTable implements Table<R, C, V> {
+        private final R fromRow;
+        private final boolean fromRowInclusive;
+        private final R toRow;
+        private final boolean toRowInclusive;
+        private final C fromColumn;
+        private final boolean fromColumnInclusive;
+        private final C toColumn;
+        private final boolean toColumnInclusive;
+
+        private RangeTable(R fromRow, boolean fromRowInclusive, R toRow, boolean toRowInclusive,
+                           C fromColumn, boolean fromColumnInclusive, C toColumn, boolean toColumnInclusive) {
+            this.fromRow = fromRow;
+            this.fromRowInclusive = fromRowInclusive;
+            this.toRow = toRow;
+            this.toRowInclusive = toRowInclusive;
+            this.fromColumn = fromColumn;
+            this.fromColumnInclusive = fromColumnInclusive;
+            this.toColumn = toColumn;
+            this.toColumnInclusive = toColumnInclusive;
+        }
+
+        //---------------------------- 范围计算 start ------------------------------//
+
+        /** 由二分查找的结果得到起始下标,key存在并且不包含时从下一个开始 */
+        private int _from(int idx, boolean inclusive) {
+            return idx >= 0 ? (inclusive ? idx : idx + 1) : -idx - 1;
+        }
+
+        /** 由二分查找的结果得到结束下标(不包含),key存在并且包含时到下一个为止 */
+        private int _to(int idx, boolean inclusive) {
+            return idx >= 0 ? (inclusive ? idx + 1 : idx) : -idx - 1;
+        }
+
+        private int _rowFrom() {
+            return fromRow == null ? 0 : _from(_rowIdx(fromRow), fromRowInclusive);
+        }
+
+        private int _rowTo() {
+            return toRow == null ? rowSize : _to(_rowIdx(toRow), toRowInclusive);
+        }
+
+        private int _columnFrom() {
+            return fromColumn == null ? 0 : _from(_columnIdx(fromColumn), fromColumnInclusive);
+        }
+
+        private int _columnTo() {
+            return toColumn == null ? columnSize : _to(_columnIdx(toColumn), toColumnInclusive);
+        }
+
+        private boolean _rowInRange(Object rowKey) {
+            R r = _r(rowKey);
+            return _inRange(rowComparator, r, fromRow, fromRowInclusive, toRow, toRowInclusive);
+        }
+
+        private boolean _columnInRange(Object columnKey) {
+            C c = _c(columnKey);
+            return _inRange(columnComparator, c, fromColumn, fromColumnInclusive, toColumn, toColumnInclusive);
+        }
+
+        /** 指定行在列范围内是否有数据 */
+        private boolean _rowHasCells(int rowIdx) {
+            int k = BitSetUtils.nextSetBit(rowBits[rowIdx], _columnFrom());
+            return k >= 0 && k < _columnTo();
+        }
+
+        /** 指定列在行范围内是否有数据,行范围为整个表时直接使用列的单元格数 */
+        private boolean _columnHasCells(int columnIdx) {
+            if(fromRow == null && toRow == null)
+                return !_isColumnEmpty(columnIdx);
+
+            for(int i = _rowFrom(), to = _rowTo(); i < to; i++) {
+                if(BitSetUtils.get(rowBits[i], columnIdx))
+                    return true;
+            }
+
+            return false;
+        }
+
+        /** 在当前范围内再取子范围,与当前范围取交集,新的边界更严格时才替换原边界 */
+        private RangeTable _sub(R fromRow, boolean fromRowInclusive, R toRow, boolean toRowInclusive,
+                                C fromColumn, boolean fromColumnInclusive, C toColumn, boolean toColumnInclusive) {
+            boolean fr = _tighterFrom(rowComparator, this.fromRow, this.fromRowInclusive, fromRow, fromRowInclusive);
+            boolean tr = _tighterTo(rowComparator, this.toRow, this.toRowInclusive, toRow, toRowInclusive);
+            boolean fc = _tighterFrom(columnComparator, this.fromColumn, this.fromColumnInclusive, fromColumn, fromColumnInclusive);
+            boolean tc = _tighterTo(columnComparator, this.toColumn, this.toColumnInclusive, toColumn, toColumnInclusive);
+
+            return new RangeTable(fr ? fromRow : this.fromRow, fr ? fromRowInclusive : this.fromRowInclusive,
+                    tr ? toRow : this.toRow, tr ? toRowInclusive : this.toRowInclusive,
+                    fc ? fromColumn : this.fromColumn, fc ? fromColumnInclusive : this.fromColumnInclusive,
+                    tc ? toColumn : this.toColumn, tc ? toColumnInclusive : this.toColumnInclusive);
+        }
+
+        private NavigableSet<R> _subRows(R from, boolean fromInclusive, R to, boolean toInclusive) {
+            return _sub(from, fromInclusive, to, toInclusive, null, true, null, false).rowKeySet();
+        }
+
+        private NavigableSet<C> _subColumns(C from, boolean fromInclusive, C to, boolean toInclusive) {
+            return _sub(null, true, null, false, from, fromInclusive, to, toInclusive).columnKeySet();
+        }
+
+        //---------------------------- 范围计算 end ------------------------------//
+
+        /** 在当前范围内再取子范围,与当前范围取交集 */
+        public RangeTable subTable(@Nullable R fromRow, @Nullable R toRow, @Nullable C fromColumn, @Nullable C toColumn) {
+            return _sub(fromRow, true, toRow, false, fromColumn, true, toColumn, false);
+        }
+
+        /** 范围内所有值的和,值类型需要为Number */
+        public double sum() {
+            _checkNumeric();
+            int columnFrom = _columnFrom();
+            int columnTo = _columnTo();
+            return _reduceRows(_rowFrom(), _rowTo(), columnTo - columnFrom, (from, to) -> _sum(from, to, columnFrom, columnTo), Double::sum);
+        }
+
+        /** 范围内所有值的统计信息,值类型需要为Number */
+        public DoubleSummaryStatistics summarize() {
+            _checkNumeric();
+            int columnFrom = _columnFrom();
+            int columnTo = _columnTo();
+            return _reduceRows(_rowFrom(), _rowTo(), columnTo - columnFrom, (from, to) -> _summarize(from, to, columnFrom, columnTo),
+                    ArrayTreeTable::_combine);
+        }
+
+        @Override
+        public boolean contains(@Nullable Object rowKey, @Nullable Object columnKey) {
+            return get(rowKey, columnKey) != null;
+        }
+
+        @Override
+        public boolean containsRow(@Nullable Object rowKey) {
+            if(!_rowInRange(rowKey))
+                return false;
+
+            int rowIdx = _rowIdx(_r(rowKey));
+            return rowIdx >= 0 && _rowHasCells(rowIdx);
+        }
+
+        @Override
+        public boolean containsColumn(@Nullable Object columnKey) {
+            if(!_columnInRange(columnKey))
+                return false;
+
+            int columnIdx = _columnIdx(_c(columnKey));
+            return columnIdx >= 0 && _columnHasCells(columnIdx);
+        }
+
+        @Override
+        public boolean containsValue(@Nullable Object value) {
+            return values().contains(value);
+        }
+
+        @Override
+        public V get(@Nullable Object rowKey, @Nullable Object columnKey) {
+            if(!_rowInRange(rowKey) || !_columnInRange(columnKey))
+                return null;
+
+            return ArrayTreeTable.this.get(rowKey, columnKey);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !cellSet().iterator().hasNext();
+        }
+
+        /** 按行累加列范围内的存在位 */
+        @Override
+        public int size() {
+            int columnFrom = _columnFrom();
+            int columnTo = _columnTo();
+            int count = 0;
+            for(int i = _rowFrom(), to = _rowTo(); i < to; i++)
+                count += BitSetUtils.cardinality(rowBits[i], columnFrom, columnTo);
+
+            return count;
+        }
+
+        /** 只在范围内的行中清除范围内的列,不遍历范围以外的单元格 */
+        @Override
+        public void clear() {
+            int rowFrom = _rowFrom();
+            int rowTo = _rowTo();
+            int columnFrom = _columnFrom();
+            int columnTo = _columnTo();
+            if(size() == 0)
+                return;
+
+            long[] marks = BitSetUtils.EMPTY;
+            for(int k = columnFrom; k < columnTo; k++)
+                marks = BitSetUtils.set(marks, k);
+
+            _beforeWrite();
+            for(int i = rowFrom; i < rowTo; i++)
+                _clearCells(i, marks);
+            _compact();
+            if(valueIndex != null)
+                _rebuildValueIndex();
+        }
+
+        /** 只能放入范围内的数据 */
+        @Override
+        public V put(@Nonnull R rowKey, @Nonnull C columnKey, @Nonnull V value) {
+            if(!_rowInRange(rowKey) || !_columnInRange(columnKey))
+                throw new IllegalArgumentException("key超出视图的范围:" + rowKey + "," + columnKey);
+
+            return ArrayTreeTable.this.put(rowKey, columnKey, value);
+        }
+
+        @Override
+        public void putAll(@Nonnull Table<? extends R, ? extends C, ? extends V> table) {
+            for(Cell<? extends R, ? extends C, ? extends V> cell : table.cellSet())
+                put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+        }
+
+        @Override
+        public V remove(@Nullable Object rowKey, @Nullable Object columnKey) {
+            if(!_rowInRange(rowKey) || !_columnInRange(columnKey))
+                return null;
+
+            return ArrayTreeTable.this.remove(rowKey, columnKey);
+        }
+
+        /** 行在范围内的列,行在范围内没有数据时与ArrayTreeTable.row相同返回null */
+        @Override
+        public Map<C, V> row(@Nonnull R rowKey) {
+            if(!containsRow(rowKey))
+                return null;
+
+            return Maps.filterKeys(ArrayTreeTable.this.row(rowKey), this::_columnInRange);
+        }
+
+        @Override
+        public Map<R, V> column(@Nonnull C columnKey) {
+            if(!containsColumn(columnKey))
+                return null;
+
+            return Maps.filterKeys(ArrayTreeTable.this.column(columnKey), this::_rowInRange);
+        }
+
+        @Override
+        public Set<Cell<R, C, V>> cellSet() {
+            return new AbstractSet<Cell<R, C, V>>() {
+                @Override
+                @Nonnull
+                public Iterator<Cell<R, C, V>> iterator() {
+                    return new RangeCellIterator<Cell<R, C, V>>() {
+                        @Override
+                        Cell<R, C, V> _make(int rowIdx, int columnIdx) {
+                            return Tables.immutableCell(_rKey(rowIdx), _cKey(columnIdx), innerV[rowIdx][columnIdx]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return RangeTable.this.size();
+                }
+            };
+        }
+
+        @Override
+        public NavigableSet<R> rowKeySet() {
+            return new RangeKeySet<R>(rowComparator) {
+                @Override
+                int _from() {
+                    return _rowFrom();
+                }
+
+                @Override
+                int _to() {
+                    return _rowTo();
+                }
+
+                @Override
+                boolean _has(int idx) {
+                    return _rowHasCells(idx);
+                }
+
+                @Override
+                R _key(int idx) {
+                    return _rKey(idx);
+                }
+
+                @Override
+                int _idx(R key) {
+                    return _rowIdx(key);
+                }
+
+                @Override
+                NavigableSet<R> _sub(R from, boolean fromInclusive, R to, boolean toInclusive) {
+                    return _subRows(from, fromInclusive, to, toInclusive);
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsRow(o);
+                }
+            };
+        }
+
+        @Override
+        public NavigableSet<C> columnKeySet() {
+            return new RangeKeySet<C>(columnComparator) {
+                @Override
+                int _from() {
+                    return _columnFrom();
+                }
+
+                @Override
+                int _to() {
+                    return _columnTo();
+                }
+
+                @Override
+                boolean _has(int idx) {
+                    return _columnHasCells(idx);
+                }
+
+                @Override
+                C _key(int idx) {
+                    return _cKey(idx);
+                }
+
+                @Override
+                int _idx(C key) {
+                    return _columnIdx(key);
+                }
+
+                @Override
+                NavigableSet<C> _sub(C from, boolean fromInclusive, C to, boolean toInclusive) {
+                    return _subColumns(from, fromInclusive, to, toInclusive);
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsColumn(o);
+                }
+            };
+        }
+
+        @Override
+        public Collection<V> values() {
+            return new AbstractCollection<V>() {
+                @Override
+                @Nonnull
+                public Iterator<V> iterator() {
+                    return new RangeCellIterator<V>() {
+                        @Override
+                        V _make(int rowIdx, int columnIdx) {
+                            return innerV[rowIdx][columnIdx];
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return RangeTable.this.size();
+                }
+            };
+        }
+
+        /** 由行key集合导航,lowerKey,floorKey等以及descendingMap,subMap均通过二分查找得出 */
+        @Override
+        public NavigableMap<R, Map<C, V>> rowMap() {
+            return Maps.asMap(rowKeySet(), this::row);
+        }
+
+        /** 由列key集合导航,lowerKey,floorKey等以及descendingMap,subMap均通过二分查找得出 */
+        @Override
+        public NavigableMap<C, Map<R, V>> columnMap() {
+            return Maps.asMap(columnKeySet(), this::column);
+        }
+
+        /** 与Table约定一致,单元格集合相同即相等 */
+        @Override
+        public boolean equals(Object o) {
+            if(this == o)
+                return true;
+            if(!(o instanceof Table))
+                return false;
+
+            return cellSet().equals(((Table<?, ?, ?>) o).cellSet());
+        }
+
+        @Override
+        public int hashCode() {
+            return cellSet().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return rowMap().toString();
+        }
+
+        /**
+         * 只遍历范围内的行以及行内范围内的存在位
+         * 通过迭代器移除之后,由上一次返回的行,列key重新定位,因此移除时引起的行列减少或整理不影响后续的遍历
+         */
+        private abstract class RangeCellIterator<T> implements Iterator<T> {
+            private int rowTo;
+            private int columnFrom;
+            private int columnTo;
+            private int rowIdx;
+            /** 当前行中下一次开始查找的列下标 */
+            private int index;
+            private int found;
+            private boolean located;
+
+            /** 上一次返回的行,列key,用于移除 */
+            private R lastRowKey;
+            private C lastColumnKey;
+            private int expectedModCount = modCount;
+
+            RangeCellIterator() {
+                _bounds();
+                rowIdx = _rowFrom();
+                index = columnFrom;
+            }
+
+            abstract T _make(int rowIdx, int columnIdx);
+
+            private void _bounds() {
+                rowTo = _rowTo();
+                columnFrom = _columnFrom();
+                columnTo = _columnTo();
+            }
+
+            private int _locate() {
+                _checkModCount(expectedModCount);
+                if(!located) {
+                    found = -1;
+                    for(; rowIdx < rowTo; rowIdx++, index = columnFrom) {
+                        int k = BitSetUtils.nextSetBit(rowBits[rowIdx], index);
+                        if(k >= 0 && k < columnTo) {
+                            found = k;
+                            break;
+                        }
+                    }
+                    located = true;
+                }
+
+                return found;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return _locate() >= 0;
+            }
+
+            @Override
+            public T next() {
+                int k = _locate();
+                if(k < 0)
+                    throw new NoSuchElementException();
+
+                located = false;
+                index = k + 1;
+                lastRowKey = _rKey(rowIdx);
+                lastColumnKey = _cKey(k);
+
+                return _make(rowIdx, k);
+            }
+
+            @Override
+            public void remove() {
+                if(lastRowKey == null)
+                    throw new IllegalStateException("不正确的移除,请先调用next");
+                _checkModCount(expectedModCount);
+
+                ArrayTreeTable.this.remove(lastRowKey, lastColumnKey);
+                _bounds();
+                int r = _rowIdx(lastRowKey);
+                if(r >= 0) {
+                    rowIdx = r;
+                    index = _from(_columnIdx(lastColumnKey), true);
+                } else {
+                    rowIdx = -r - 1;
+                    index = columnFrom;
+                }
+
+                lastRowKey = null;
+                located = false;
+                expectedModCount = modCount;
+            }
+        }
+    }
+
+    /** key是否在指定的范围内,边界为null时表示不限制 */
+    private static <K> boolean _inRange(Comparator<? super K> comparator, K key, K from, boolean fromInclusive, K to, boolean toInclusive) {
+        if(from != null) {
+            int c = comparator.compare(key, from);
+            if(c < 0 || c == 0 && !fromInclusive)
+                return false;
+        }
+        if(to != null) {
+            int c = comparator.compare(key, to);
+            if(c > 0 || c == 0 && !toInclusive)
+                return false;
+        }
+
+        return true;
+    }
+
+    /** 新的下界是否比当前下界更严格 */
+    private static <K> boolean _tighterFrom(Comparator<? super K> comparator, K current, boolean currentInclusive, K from, boolean fromInclusive) {
+        if(from == null)
+            return false;
+        if(current == null)
+            return true;
+
+        int c = comparator.compare(current, from);
+        return c < 0 || c == 0 && currentInclusive && !fromInclusive;
+    }
+
+    /** 新的上界是否比当前上界更严格 */
+    private static <K> boolean _tighterTo(Comparator<? super K> comparator, K current, boolean currentInclusive, K to, boolean toInclusive) {
+        if(to == null)
+            return false;
+        if(current == null)
+            return true;
+
+        int c = comparator.compare(current, to);
+        return c > 0 || c == 0 && currentInclusive && !toInclusive;
+    }
+
+    /**
+     * 范围视图中的行(列)key集合,按下标范围遍历,子集合由更小的范围视图得到
+     * lower,floor,ceiling,higher先由二分查找定位下标,再跳过范围内没有数据的行(列)
+     * 集合为视图,不支持通过集合移除,因此pollFirst,pollLast不支持
+     */
+    private abstract class RangeKeySet<K> extends AbstractSet<K> implements NavigableSet<K> {
+        private final Comparator<? super K> comparator;
+
+        RangeKeySet(Comparator<? super K> comparator) {
+            this.comparator = comparator;
+        }
+
+        abstract int _from();
+
+        abstract int _to();
+
+        /** 指定下标在范围内是否有数据 */
+        abstract boolean _has(int idx);
+
+        abstract K _key(int idx);
+
+        /** 二分查找key的下标,不存在时返回 -(插入位置) - 1 */
+        abstract int _idx(K key);
+
+        abstract NavigableSet<K> _sub(K from, boolean fromInclusive, K to, boolean toInclusive);
+
+        /** 从指定下标开始向后找到第一个有数据的下标,没有时返回-1 */
+        private int _forward(int idx) {
+            for(int i = Math.max(idx, _from()), to = _to(); i < to; i++) {
+                if(_has(i))
+                    return i;
+            }
+
+            return -1;
+        }
+
+        /** 从指定下标开始向前找到第一个有数据的下标,没有时返回-1 */
+        private int _backward(int idx) {
+            for(int i = Math.min(idx, _to() - 1), from = _from(); i >= from; i--) {
+                if(_has(i))
+                    return i;
+            }
+
+            return -1;
+        }
+
+        private K _keyOrNull(int idx) {
+            return idx < 0 ? null : _key(idx);
+        }
+
+        @Override
+        @Nonnull
+        public Iterator<K> iterator() {
+            return new Iterator<K>() {
+                private int index = _from();
+                private final int to = _to();
+                private final int expectedModCount = modCount;
+
+                @Override
+                public boolean hasNext() {
+                    _checkModCount(expectedModCount);
+                    while(index < to && !_has(index))
+                        index++;
+
+                    return index < to;
+                }
+
+                @Override
+                public K next() {
+                    if(!hasNext())
+                        throw new NoSuchElementException();
+
+                    return _key(index++);
+                }
+            };
+        }
+
+        @Override
+        @Nonnull
+        public Iterator<K> descendingIterator() {
+            return new Iterator<K>() {
+                private int index = _to() - 1;
+                private final int from = _from();
+                private final int expectedModCount = modCount;
+
+                @Override
+                public boolean hasNext() {
+                    _checkModCount(expectedModCount);
+                    while(index >= from && !_has(index))
+                        index--;
+
+                    return index >= from;
+                }
+
+                @Override
+                public K next() {
+                    if(!hasNext())
+                        throw new NoSuchElementException();
+
+                    return _key(index--);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            int count = 0;
+            for(int i = _from(), to = _to(); i < to; i++) {
+                if(_has(i))
+                    count++;
+            }
+
+            return count;
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return comparator;
+        }
+
+        @Override
+        public K lower(K k) {
+            int idx = _idx(k);
+            return _keyOrNull(_backward(idx >= 0 ? idx - 1 : -idx - 2));
+        }
+
+        @Override
+        public K floor(K k) {
+            int idx = _idx(k);
+            return _keyOrNull(_backward(idx >= 0 ? idx : -idx - 2));
+        }
+
+        @Override
+        public K ceiling(K k) {
+            int idx = _idx(k);
+            return _keyOrNull(_forward(idx >= 0 ? idx : -idx - 1));
+        }
+
+        @Override
+        public K higher(K k) {
+            int idx = _idx(k);
+            return _keyOrNull(_forward(idx >= 0 ? idx + 1 : -idx - 1));
+        }
+
+        @Override
+        public K pollFirst() {
+            throw new UnsupportedOperationException("范围视图的key集合不支持移除");
+        }
+
+        @Override
+        public K pollLast() {
+            throw new UnsupportedOperationException("范围视图的key集合不支持移除");
+        }
+
+        @Override
+        @Nonnull
+        public NavigableSet<K> descendingSet() {
+            return new DescendingKeySet<>(this);
+        }
+
+        @Override
+        @Nonnull
+        public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+            if(comparator.compare(fromElement, toElement) > 0)
+                throw new IllegalArgumentException("起始key大于结束key:" + fromElement + "," + toElement);
+
+            return _sub(fromElement, fromInclusive, toElement, toInclusive);
+        }
+
+        @Override
+        @Nonnull
+        public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+            return _sub(null, true, toElement, inclusive);
+        }
+
+        @Override
+        @Nonnull
+        public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+            return _sub(fromElement, inclusive, null, false);
+        }
+
+        @Override
+        @Nonnull
+        public SortedSet<K> subSet(K fromElement, K toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        @Nonnull
+        public SortedSet<K> headSet(K toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        @Nonnull
+        public SortedSet<K> tailSet(K fromElement) {
+            return tailSet(fromElement, true);
+        }
+
+        @Override
+        public K first() {
+            int idx = _forward(_from());
+            if(idx < 0)
+                throw new NoSuchElementException();
+
+            return _key(idx);
+        }
+
+        @Override
+        public K last() {
+            int idx = _backward(_to() - 1);
+            if(idx < 0)
+                throw new NoSuchElementException();
+
+            return _key(idx);
+        }
+    }
+
+    /** 逆序的key集合视图,各个导航方法均转换为原集合上相反方向的调用 */
+    private static class DescendingKeySet<K> extends AbstractSet<K> implements NavigableSet<K> {
+        private final NavigableSet<K> set;
+
+        DescendingKeySet(NavigableSet<K> set) {
+            this.set = set;
+        }
+
+        @Override
+        @Nonnull
+        public Iterator<K> iterator() {
+            return set.descendingIterator();
+        }
+
+        @Override
+        @Nonnull
+        public Iterator<K> descendingIterator() {
+            return set.iterator();
+        }
+
+        @Override
+        public int size() {
+            return set.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return set.contains(o);
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return Collections.reverseOrder(set.comparator());
+        }
+
+        @Override
+        public K lower(K k) {
+            return set.higher(k);
+        }
+
+        @Override
+        public K floor(K k) {
+            return set.ceiling(k);
+        }
+
+        @Override
+        public K ceiling(K k) {
+            return set.floor(k);
+        }
+
+        @Override
+        public K higher(K k) {
+            return set.lower(k);
+        }
+
+        @Override
+        public K pollFirst() {
+            return set.pollLast();
+        }
+
+        @Override
+        public K pollLast() {
+            return set.pollFirst();
+        }
+
+        @Override
+        @Nonnull
+        public NavigableSet<K> descendingSet() {
+            return set;
+        }
+
+        @Override
+        @Nonnull
+        public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+            return set.subSet(toElement, toInclusive, fromElement, fromInclusive).descendingSet();
+        }
+
+        @Override
+        @Nonnull
+        public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+            return set.tailSet(toElement, inclusive).descendingSet();
+        }
+
+        @Override
+        @Nonnull
+        public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+            return set.headSet(fromElement, inclusive).descendingSet();
+        }
+
+        @Override
+        @Nonnull
+        public SortedSet<K> subSet(K fromElement, K toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        @Nonnull
+        public SortedSet<K> headSet(K toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        @Nonnull
+        public SortedSet<K> tailSet(K fromElement) {
+            return tailSet(fromElement, true);
+        }
+
+        @Override
+        public K first() {
+            return set.last();
+        }
+
+        @Override
+        public K last() {
+            return set.first();
+        }
+    }
+
+    /**
+     * 可变的单元格游标,每次next移动到下一个单元格,之后通过rowKey,columnKey,value读取当前单元格
+     * 可以通过setValue修改当前单元格的值;遍历期间有增减单元格等结构性修改时抛出ConcurrentModificationException
+     */
+    public class Cursor {
+        private int rowIdx;
+        private int columnIdx = -1;
+        /** 是否位于某个单元格上 */
+        private boolean positioned;
+        private int expectedModCount = modCount;
+
+        /** 移动到下一个单元格,没有更多单元格时返回false */
+        public boolean next() {
+            _checkModCount(expectedModCount);
+            for(; rowIdx < rowSize; rowIdx++, columnIdx = -1) {
+                int k = BitSetUtils.nextSetBit(rowBits[rowIdx], columnIdx + 1);
+                if(k >= 0) {
+                    columnIdx = k;
+                    return positioned = true;
+                }
+            }
+
+            return positioned = false;
+        }
+
+        private void _checkPositioned() {
+            if(!positioned)
+                throw new IllegalStateException("游标不在单元格上,请先调用next");
+            _checkModCount(expectedModCount);
+        }
+
+        public R rowKey() {
+            _checkPositioned();
+            return _rKey(rowIdx);
+        }
+
+        public C columnKey() {
+            _checkPositioned();
+            return _cKey(columnIdx);
+        }
+
+        public V value() {
+            _checkPositioned();
+            return innerV[rowIdx][columnIdx];
+        }
+
+        /** 修改当前单元格的值,返回原来的值 */
+        public V setValue(@NonNull V value) {
+            _checkPositioned();
+            _beforeWrite();
+            _ownRow(rowIdx);
+            V old = innerV[rowIdx][columnIdx];
+            innerV[rowIdx][columnIdx] = value;
+            if(valueIndex != null) {
+                _indexRemove(rowIdx, columnIdx, old);
+                _indexAdd(rowIdx, columnIdx, value);
+            }
+
+            return old;
+        }
+
+        /** 回到第一个单元格之前,以便再次遍历 */
+        public void reset() {
+            rowIdx = 0;
+            columnIdx = -1;
+            positioned = false;
+            expectedModCount = modCount;
+        }
+    }
+
+    /** 在行范围[from, to)上的计算 */
+    private interface RowsFunction<T> {
+        T apply(int from, int to);
+    }
+
+    /** 按行范围对半拆分的fork-join任务,行数乘以列数不超过阈值时直接计算 */
+    private static class RowsTask<T> extends RecursiveTask<T> {
+        private final int from;
+        private final int to;
+        private final int columns;
+        private final RowsFunction<T> mapper;
+        private final BinaryOperator<T> combiner;
+
+        RowsTask(int from, int to, int columns, RowsFunction<T> mapper, BinaryOperator<T> combiner) {
+            this.from = from;
+            this.to = to;
+            this.columns = columns;
+            this.mapper = mapper;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected T compute() {
+            if(to - from < 2 || (long) (to - from) * columns <= PARALLEL_THRESHOLD)
+                return mapper.apply(from, to);
+
+            int mid = (from + to) >>> 1;
+            RowsTask<T> left = new RowsTask<>(from, mid, columns, mapper, combiner);
+            left.fork();
+            T right = new RowsTask<>(mid, to, columns, mapper, combiner).compute();
+            return combiner.apply(left.join(), right);
+        }
+    }
+
+    /** 值索引中记录的位置,使用行,列key而不是下标,因为下标会随行列的增减而变化 */
+    @RequiredArgsConstructor
+    private static class ValuePos<R, C> {
+        private final R rowKey;
+        private final C columnKey;
+    }
+
     @RequiredArgsConstructor
     @ToString
     private class IdxV {
@@ -1273,11 +4232,20 @@ public class ArrayTreeTable<R, C, V> implements Table<R, C, V> {
         /** 具体的值 */
         @NonNull
         private V v;
+        /** 创建时的修改次数,之后有结构性修改时下标可能已不再对应 */
+        private final int expectedModCount = modCount;
 
         /** 修改相应的值 */
         public V change(V newV) {
+            _checkModCount(expectedModCount);
+            _beforeWrite();
+            _ownRow(rowIdx);
             V old = v;
             innerV[rowIdx][columnIdx] = this.v = newV;
+            if(valueIndex != null) {
+                _indexRemove(rowIdx, columnIdx, old);
+                _indexAdd(rowIdx, columnIdx, newV);
+            }
 
             return old;
         }
@@ -0,0 +1,80 @@
+package com.iflym.table;
+
+import com.iflym.table.util.ComparatorUtils;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+
+/**
+ * 不可变的行(列)key字典,多个表可以共用同一个字典作为行或列
+ * 表绑定字典之后,存放的key均替换为字典中的实例,相同的key在各个表之间只保留一份对象;不在字典中的key不能放入
+ * 字典中的key按比较器有序,下标即为key的序号;绑定的表只保存key的序号,读取时再由字典得到key的实例
+ */
+public class AxisDictionary<K> {
+    /** 有序并且没有重复的key */
+    private final K[] keys;
+    private final Comparator<? super K> comparator;
+    /** 比较器为自然顺序时,查找直接使用compareTo */
+    private final boolean natural;
+
+    /** 由指定的key创建字典,key按比较器排序并去重 */
+    @SuppressWarnings("unchecked")
+    public AxisDictionary(@Nonnull Collection<? extends K> keys, @Nonnull Comparator<? super K> comparator) {
+        K[] sorted = (K[]) keys.toArray();
+        Arrays.sort(sorted, comparator);
+        int size = 0;
+        for(K key : sorted) {
+            if(key == null)
+                throw new IllegalArgumentException("字典中的key不能为null");
+            if(size == 0 || comparator.compare(sorted[size - 1], key) != 0)
+                sorted[size++] = key;
+        }
+
+        this.keys = Arrays.copyOf(sorted, size);
+        this.comparator = comparator;
+        this.natural = ComparatorUtils.isNaturalOrder(comparator);
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /** 指定序号的key */
+    public K key(int ordinal) {
+        return keys[ordinal];
+    }
+
+    /** key的序号,不在字典中时返回-1 */
+    public int ordinal(Object key) {
+        int idx = _search(key);
+        return idx < 0 ? -1 : idx;
+    }
+
+    /** 二分查找key,不在字典中时返回 -(插入位置) - 1,表按序号查找下标时使用 */
+    @SuppressWarnings("unchecked")
+    int _search(Object key) {
+        return natural ? Arrays.binarySearch(keys, key) : Arrays.binarySearch(keys, (K) key, comparator);
+    }
+
+    public boolean contains(Object key) {
+        return ordinal(key) >= 0;
+    }
+
+    /** 返回字典中相同的key实例,不在字典中时抛出IllegalArgumentException */
+    public K intern(K key) {
+        int ordinal = ordinal(key);
+        if(ordinal < 0)
+            throw new IllegalArgumentException("key不在字典中:" + key);
+
+        return keys[ordinal];
+    }
+
+    /** 有序的key列表,只读 */
+    public List<K> keys() {
+        return Collections.unmodifiableList(Arrays.asList(keys));
+    }
+}
@@ -0,0 +1,10 @@
+package com.iflym.table;
+
+/**
+ * 按单元格遍历时的回调,行key,列key以及值直接作为参数传入,不需要为每个单元格创建Cell对象
+ */
+@FunctionalInterface
+public interface CellConsumer<R, C, V> {
+
+    void accept(R rowKey, C columnKey, V value);
+}
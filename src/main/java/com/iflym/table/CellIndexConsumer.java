@@ -0,0 +1,11 @@
+package com.iflym.table;
+
+/**
+ * 按单元格遍历时的回调,传入单元格所在行,列在rowKeySet,columnKeySet中的序号以及值
+ * 用于紧凑序列化等只需要下标而不需要key的场景
+ */
+@FunctionalInterface
+public interface CellIndexConsumer<V> {
+
+    void accept(int rowIdx, int columnIdx, V value);
+}
@@ -0,0 +1,158 @@
+package com.iflym.table;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ForwardingTable;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.DoubleSummaryStatistics;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
+
+/**
+ * 按列优先存储的ArrayTreeTable,内部以列为行存放在一个转置的ArrayTreeTable中
+ * 按列遍历,统计列大小,移除整列时只访问连续的存储;相应的,按行遍历时需要跨列访问
+ * 适合按列查询为主的场景,在创建时选择,之后不能切换
+ * values()按列的顺序返回
+ */
+public class ColumnMajorArrayTreeTable<R, C, V> extends ForwardingTable<R, C, V> {
+    /** 实际存储的转置表,行为当前表的列 */
+    private final ArrayTreeTable<C, R, V> table;
+    private final Table<R, C, V> view;
+
+    public ColumnMajorArrayTreeTable(Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                     Class<Comparator<R>> rowComparatorClass, Class<Comparator<C>> columnComparatorClass) {
+        this(new ArrayTreeTable<>(columnClass, rowClass, valueClass, columnComparatorClass, rowComparatorClass));
+        table.init();
+    }
+
+    /** 直接使用比较器实例,参见ArrayTreeTable的相应构建函数 */
+    public ColumnMajorArrayTreeTable(Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                     Comparator<? super R> rowComparator, Comparator<? super C> columnComparator) {
+        this(new ArrayTreeTable<>(columnClass, rowClass, valueClass, columnComparator, rowComparator));
+        table.init();
+    }
+
+    /** 包装一个已经存在的转置表,如反序列化得到的表 */
+    public ColumnMajorArrayTreeTable(ArrayTreeTable<C, R, V> table) {
+        this.table = table;
+        this.view = Tables.transpose(table);
+    }
+
+    @Override
+    protected Table<R, C, V> delegate() {
+        return view;
+    }
+
+    /** 获取实际存储的转置表,用于序列化 */
+    public ArrayTreeTable<C, R, V> getTable() {
+        return table;
+    }
+
+    /** 与ArrayTreeTable.snapshot相同,返回只读的快照 */
+    public ColumnMajorArrayTreeTable<R, C, V> snapshot() {
+        return new ColumnMajorArrayTreeTable<>(table.snapshot());
+    }
+
+    /** 插入一个表格,按ArrayTreeTable.putAll的方式处理 */
+    @Override
+    public void putAll(@Nonnull Table<? extends R, ? extends C, ? extends V> table) {
+        this.table.putAll(Tables.transpose(table));
+    }
+
+    /** 批量插入无序的单元格,参见ArrayTreeTable.putAllBulk */
+    public void putAllBulk(@Nonnull Iterable<? extends Cell<? extends R, ? extends C, ? extends V>> cells) {
+        Function<Cell<? extends R, ? extends C, ? extends V>, Cell<C, R, V>> transpose =
+                cell -> Tables.immutableCell(cell.getColumnKey(), cell.getRowKey(), cell.getValue());
+        //集合时保留大小,以便一次分配
+        if(cells instanceof Collection)
+            table.putAllBulk(Collections2.transform((Collection<? extends Cell<? extends R, ? extends C, ? extends V>>) cells, transpose));
+        else
+            table.putAllBulk(Iterables.transform(cells, transpose));
+    }
+
+    /** 合并另一个列优先表,参见ArrayTreeTable.mergeWith */
+    public void mergeWith(@Nonnull ColumnMajorArrayTreeTable<R, C, V> other, @Nonnull BinaryOperator<V> merger) {
+        table.mergeWith(other.table, merger);
+    }
+
+    public boolean removeRowsIf(@Nonnull Predicate<? super R> filter) {
+        return table.removeColumnsIf(filter);
+    }
+
+    public boolean removeColumnsIf(@Nonnull Predicate<? super C> filter) {
+        return table.removeRowsIf(filter);
+    }
+
+    public boolean retainRows(@Nonnull Collection<?> rowKeys) {
+        return table.retainColumns(rowKeys);
+    }
+
+    public boolean retainColumns(@Nonnull Collection<?> columnKeys) {
+        return table.retainRows(columnKeys);
+    }
+
+    public void compact() {
+        table.compact();
+    }
+
+    public void setRowDictionary(AxisDictionary<R> rowDictionary) {
+        table.setColumnDictionary(rowDictionary);
+    }
+
+    public void setColumnDictionary(AxisDictionary<C> columnDictionary) {
+        table.setRowDictionary(columnDictionary);
+    }
+
+    /** 按列,行的顺序遍历所有单元格,参见ArrayTreeTable.forEachCell */
+    public void forEachCell(@Nonnull CellConsumer<? super R, ? super C, ? super V> action) {
+        table.forEachCell((columnKey, rowKey, value) -> action.accept(rowKey, columnKey, value));
+    }
+
+    public void forEachInRow(Object rowKey, @Nonnull BiConsumer<? super C, ? super V> action) {
+        table.forEachInColumn(rowKey, action);
+    }
+
+    public void forEachInColumn(Object columnKey, @Nonnull BiConsumer<? super R, ? super V> action) {
+        table.forEachInRow(columnKey, action);
+    }
+
+    public double sumRow(Object rowKey) {
+        return table.sumColumn(rowKey);
+    }
+
+    public double sumColumn(Object columnKey) {
+        return table.sumRow(columnKey);
+    }
+
+    public DoubleSummaryStatistics summarizeRow(Object rowKey) {
+        return table.summarizeColumn(rowKey);
+    }
+
+    public DoubleSummaryStatistics summarizeColumn(Object columnKey) {
+        return table.summarizeRow(columnKey);
+    }
+
+    public double sum() {
+        return table.sum();
+    }
+
+    public DoubleSummaryStatistics summarize() {
+        return table.summarize();
+    }
+
+    public Map<R, Double> sumByRow() {
+        return table.sumByColumn();
+    }
+
+    public Map<C, Double> sumByColumn() {
+        return table.sumByRow();
+    }
+}
@@ -0,0 +1,345 @@
+package com.iflym.table;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Table;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * 线程安全的ArrayTreeTable
+ * 新增或删除行,列等结构性修改使用StampedLock的写锁,修改已存在格子的值时只持有读锁以及按行下标分段的锁,不同行的写入可以并行
+ * 读取先使用乐观读,期间没有结构性修改时不需要加锁;值的写入通过分段上的volatile版本号对读取方可见
+ * 行,列,单元格等视图均为调用时的只读快照,不支持通过视图修改
+ * 其中rowKeySet,columnKeySet只复制key;cellSet,values,rowMap,columnMap每次调用都会复制整个表,需要多次访问时应先调用snapshot()
+ */
+public class ConcurrentArrayTreeTable<R, C, V> implements Table<R, C, V> {
+    /** 默认的分段数 */
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final ArrayTreeTable<R, C, V> table;
+    private final StampedLock lock = new StampedLock();
+    private final Stripe[] stripes;
+
+    /** 按行下标分段的写锁,版本号在每次写入值之后增加,用于将写入发布给乐观读取方 */
+    private static class Stripe {
+        private volatile int version;
+    }
+
+    public ConcurrentArrayTreeTable(Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                    Class<Comparator<R>> rowComparatorClass, Class<Comparator<C>> columnComparatorClass) {
+        this(new ArrayTreeTable<>(rowClass, columnClass, valueClass, rowComparatorClass, columnComparatorClass), DEFAULT_STRIPES);
+        table.init();
+    }
+
+    /** 直接使用比较器实例,参见ArrayTreeTable的相应构建函数 */
+    public ConcurrentArrayTreeTable(Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                    Comparator<? super R> rowComparator, Comparator<? super C> columnComparator) {
+        this(new ArrayTreeTable<>(rowClass, columnClass, valueClass, rowComparator, columnComparator), DEFAULT_STRIPES);
+        table.init();
+    }
+
+    /**
+     * 包装一个已经初始化的表,之后只能通过当前对象访问此表
+     * 表与之前的快照共享的存储会在这里先复制,表本身为快照时抛出IllegalArgumentException
+     * 分段数会调整为2的幂
+     */
+    public ConcurrentArrayTreeTable(ArrayTreeTable<R, C, V> table, int stripeCount) {
+        table._ownStorage();
+        this.table = table;
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+        stripes = new Stripe[size];
+        for(int i = 0; i < size; i++)
+            stripes[i] = new Stripe();
+    }
+
+    //---------------------------- 内部各种方法 start ------------------------------//
+
+    @SuppressWarnings("unchecked")
+    private R _r(Object rowKey) {
+        return (R) rowKey;
+    }
+
+    @SuppressWarnings("unchecked")
+    private C _c(Object columnKey) {
+        return (C) columnKey;
+    }
+
+    private Stripe _stripe(int rowIdx) {
+        return stripes[rowIdx & (stripes.length - 1)];
+    }
+
+    /**
+     * 读取分段的volatile版本号,返回值本身不使用
+     * 该读取与写入方在写值之后的version++构成happens-before,使此分段上之前写入的值对当前线程可见,因此必须在读取值之前调用
+     */
+    private int _acquire(int rowIdx) {
+        return _stripe(rowIdx).version;
+    }
+
+    /** 先乐观读取,读取期间有结构性修改或因结构变化出现异常时,再在读锁下重新读取 */
+    private <T> T _read(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if(stamp != 0) {
+            try{
+                T result = reader.get();
+                if(lock.validate(stamp))
+                    return result;
+            } catch(RuntimeException ignore) {
+                //并发的结构性修改可能导致下标越界等异常,在读锁下重新读取
+            }
+        }
+
+        stamp = lock.readLock();
+        try{
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <T> T _write(Supplier<T> writer) {
+        long stamp = lock.writeLock();
+        try{
+            return writer.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** 在读锁下构建有序的只读快照 */
+    private ImmutableTable<R, C, V> _snapshot() {
+        long stamp = lock.readLock();
+        try{
+            ImmutableTable.Builder<R, C, V> builder = ImmutableTable.builder();
+            builder.orderRowsBy(table.getRowComparator());
+            builder.orderColumnsBy(table.getColumnComparator());
+            for(Cell<R, C, V> cell : table.cellSet())
+                builder.put(cell);
+
+            return builder.build();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    //---------------------------- 内部各种方法 end ------------------------------//
+
+    /** 获取当前数据的只读快照 */
+    public ImmutableTable<R, C, V> snapshot() {
+        return _snapshot();
+    }
+
+    /** 移除整行,返回被移除的数据 */
+    public Map<C, V> removeRow(Object rowKey) {
+        return _write(() -> {
+            Map<C, V> row = table.containsRow(rowKey) ? ImmutableMap.copyOf(table.row(_r(rowKey))) : null;
+            if(row != null)
+                table.removeRow(rowKey);
+
+            return row;
+        });
+    }
+
+    /** 移除整列,返回被移除的数据 */
+    public Map<R, V> removeColumn(Object columnKey) {
+        return _write(() -> {
+            Map<R, V> column = table.containsColumn(columnKey) ? ImmutableMap.copyOf(table.column(_c(columnKey))) : null;
+            if(column != null)
+                table.removeColumn(columnKey);
+
+            return column;
+        });
+    }
+
+    @Override
+    public boolean contains(@Nullable Object rowKey, @Nullable Object columnKey) {
+        return _read(() -> table.contains(rowKey, columnKey));
+    }
+
+    @Override
+    public boolean containsRow(@Nullable Object rowKey) {
+        return _read(() -> table.containsRow(rowKey));
+    }
+
+    @Override
+    public boolean containsColumn(@Nullable Object columnKey) {
+        return _read(() -> table.containsColumn(columnKey));
+    }
+
+    @Override
+    public boolean containsValue(@Nullable Object value) {
+        return _read(() -> table.containsValue(value));
+    }
+
+    @Override
+    public V get(@Nullable Object rowKey, @Nullable Object columnKey) {
+        long stamp = lock.tryOptimisticRead();
+        if(stamp != 0) {
+            try{
+                int rowIdx = table._rowIdx(_r(rowKey));
+                V value = null;
+                if(rowIdx >= 0) {
+                    _acquire(rowIdx);
+                    value = table.get(rowKey, columnKey);
+                }
+                if(lock.validate(stamp))
+                    return value;
+            } catch(RuntimeException ignore) {
+                //并发的结构性修改可能导致下标越界等异常,在读锁下重新读取
+            }
+        }
+
+        stamp = lock.readLock();
+        try{
+            return table.get(rowKey, columnKey);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return _read(table::isEmpty);
+    }
+
+    @Override
+    public int size() {
+        return _read(table::size);
+    }
+
+    @Override
+    public void clear() {
+        _write(() -> {
+            table.clear();
+            return null;
+        });
+    }
+
+    /**
+     * 格子已存在时只替换值,持有读锁以及行分段锁;否则需要新增行列,使用写锁
+     * 启用了值索引时,不同行的替换也会修改同一个索引,因此均使用写锁
+     */
+    @Override
+    public V put(@Nonnull R rowKey, @Nonnull C columnKey, @Nonnull V value) {
+        if(table.isValueIndexed())
+            return _write(() -> table.put(rowKey, columnKey, value));
+
+        long stamp = lock.readLock();
+        try{
+            int rowIdx = table._rowIdx(rowKey);
+            if(rowIdx >= 0) {
+                Stripe stripe = _stripe(rowIdx);
+                synchronized(stripe) {
+                    //格子的有无只会在写锁下改变,因此这里判断之后可以直接替换
+                    if(table.get(rowKey, columnKey) != null) {
+                        V old = table.put(rowKey, columnKey, value);
+                        stripe.version++;
+                        return old;
+                    }
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        return _write(() -> table.put(rowKey, columnKey, value));
+    }
+
+    @Override
+    public void putAll(@Nonnull Table<? extends R, ? extends C, ? extends V> table) {
+        _write(() -> {
+            this.table.putAll(table);
+            return null;
+        });
+    }
+
+    @Override
+    public V remove(@Nullable Object rowKey, @Nullable Object columnKey) {
+        return _write(() -> table.remove(rowKey, columnKey));
+    }
+
+    /** 行的只读快照,行不存在时返回空 */
+    @Override
+    public Map<C, V> row(@Nonnull R rowKey) {
+        return _read(() -> {
+            Map<C, V> row = table.row(rowKey);
+            return row == null ? ImmutableMap.of() : ImmutableMap.copyOf(row);
+        });
+    }
+
+    /** 列的只读快照,列不存在时返回空 */
+    @Override
+    public Map<R, V> column(@Nonnull C columnKey) {
+        return _read(() -> {
+            Map<R, V> column = table.column(columnKey);
+            return column == null ? ImmutableMap.of() : ImmutableMap.copyOf(column);
+        });
+    }
+
+    /** 每次调用均复制整个表 */
+    @Override
+    public Set<Cell<R, C, V>> cellSet() {
+        return _snapshot().cellSet();
+    }
+
+    /** 行key的有序只读快照,只复制key */
+    @Override
+    public Set<R> rowKeySet() {
+        return _read(() -> ImmutableSortedSet.copyOf(table.getRowComparator(), table.rowKeySet()));
+    }
+
+    /** 列key的有序只读快照,只复制key */
+    @Override
+    public Set<C> columnKeySet() {
+        return _read(() -> ImmutableSortedSet.copyOf(table.getColumnComparator(), table.columnKeySet()));
+    }
+
+    /** 每次调用均复制所有的值 */
+    @Override
+    public Collection<V> values() {
+        return _read(() -> ImmutableList.copyOf(table.values()));
+    }
+
+    /** 每次调用均复制整个表 */
+    @Override
+    public Map<R, Map<C, V>> rowMap() {
+        return _snapshot().rowMap();
+    }
+
+    /** 每次调用均复制整个表 */
+    @Override
+    public Map<C, Map<R, V>> columnMap() {
+        return _snapshot().columnMap();
+    }
+
+    /** 与Table约定一致,单元格集合相同即相等 */
+    @Override
+    public boolean equals(Object o) {
+        if(this == o)
+            return true;
+        if(!(o instanceof Table))
+            return false;
+
+        return cellSet().equals(((Table<?, ?, ?>) o).cellSet());
+    }
+
+    @Override
+    public int hashCode() {
+        return cellSet().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return rowMap().toString();
+    }
+}
@@ -2,7 +2,7 @@ package com.iflym.table.fastjson;
 
 import com.alibaba.fastjson.parser.DefaultJSONParser;
 import com.alibaba.fastjson.parser.deserializer.MapDeserializer;
-import com.iflym.table.util.ClassUtils;
+import com.iflym.table.util.ComparatorUtils;
 
 import java.lang.reflect.Type;
 import java.util.Comparator;
@@ -25,7 +25,7 @@ public class IndexMapDeserializer extends MapDeserializer {
     @Override
     @SuppressWarnings("unchecked")
     protected Map<Object, Object> createMap(Type type) {
-        return new TreeMap<>((Comparator) ClassUtils.newInstanceUseConstructor(comparatorClass));
+        return new TreeMap<>((Comparator) ComparatorUtils.get(comparatorClass));
     }
 
     @SuppressWarnings("unchecked")
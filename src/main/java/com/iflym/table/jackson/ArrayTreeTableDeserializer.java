@@ -5,26 +5,27 @@ import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.deser.DefaultDeserializationContext;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
-import com.fasterxml.jackson.databind.type.MapType;
 import com.google.common.collect.Maps;
+import com.google.common.primitives.Primitives;
 import com.iflym.table.ArrayTreeTable;
 import com.iflym.table.util.ClassUtils;
 
 import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.TreeMap;
 
 /**
  * 用于实现在jackson环境下ArrayTreeTable的反序列化
+ * 同时支持按bean写出的rowIndex,columnIndex,innerV,bits格式以及由ArrayTreeTableSerializer写出的rowKeys,columnKeys,cells紧凑格式
+ * 两种格式均直接按token读取,key及值直接放入按下标排列的数组中,再由ArrayTreeTable.load装载,不再经由TreeMap以及V[][]的反序列化器中转
  * Created by flym on 6/13/2016.
  */
 public class ArrayTreeTableDeserializer extends StdDeserializer<ArrayTreeTable> {
-    /** 用于创建indexMap的处理器 */
-    private static Map<Class, JsonDeserializer> indexDeserializerMap = Maps.newHashMap();
-    /** 用于处理innerV的处理器 */
-    private static Map<Class, JsonDeserializer> valueDeserializerMap = Maps.newHashMap();
-    /** 用于处理bits位的处理器 */
-    private static JsonDeserializer bitsDeserializer;
+    /** 用于处理rowIndex,columnIndex中key的处理器 */
+    private static Map<Class, KeyDeserializer> keyDeserializerMap = Maps.newConcurrentMap();
+    /** 用于处理单个值以及紧凑格式中key的处理器 */
+    private static Map<Class, JsonDeserializer> valueDeserializerMap = Maps.newConcurrentMap();
 
     /** 当前使用的mapper处理器 */
     private static ObjectMapper objectMapper;
@@ -40,30 +41,24 @@ public class ArrayTreeTableDeserializer extends StdDeserializer<ArrayTreeTable>
         ArrayTreeTableDeserializer.objectMapper = objectMapper;
         DefaultDeserializationContext context = (DefaultDeserializationContext) objectMapper.getDeserializationContext();
         usedContext = context.createInstance(objectMapper.getDeserializationConfig(), null, objectMapper.getInjectableValues());
-
-        bitsDeserializer = createBitsDeserializer();
+        keyDeserializerMap.clear();
+        valueDeserializerMap.clear();
     }
 
-    private static JsonDeserializer _create(JavaType javaType) {
+    private static KeyDeserializer createKeyDeserializer(Class<?> keyClass) {
         try{
-            return usedContext.findRootValueDeserializer(javaType);
+            return usedContext.findKeyDeserializer(objectMapper.getTypeFactory().constructType(keyClass), null);
         } catch(JsonMappingException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
     }
 
-    private static JsonDeserializer createIndexMapDeserializer(Class<?> keyClass) {
-        MapType javaType = objectMapper.getTypeFactory().constructMapType(TreeMap.class, keyClass, Integer.class);
-        return _create(javaType);
-    }
-
     private static JsonDeserializer createValueDeserializer(Class<?> valueClass) {
-        Class vClass = ClassUtils.forName("[[L" + valueClass.getName() + ";");
-        return _create(objectMapper.getTypeFactory().constructType(vClass));
-    }
-
-    private static JsonDeserializer createBitsDeserializer() {
-        return _create(objectMapper.getTypeFactory().constructArrayType(long.class));
+        try{
+            return usedContext.findRootValueDeserializer(objectMapper.getTypeFactory().constructType(valueClass));
+        } catch(JsonMappingException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
     }
 
     public ArrayTreeTableDeserializer() {
@@ -74,7 +69,10 @@ public class ArrayTreeTableDeserializer extends StdDeserializer<ArrayTreeTable>
     @SuppressWarnings("unchecked")
     public ArrayTreeTable<?, ?, Object> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
         p.nextToken();
-        ArrayTreeTable<?, ?, Object> table = new ArrayTreeTable();
+        ArrayTreeTable<Object, Object, Object> table = new ArrayTreeTable();
+        Keys rowKeys = null;
+        Keys columnKeys = null;
+        Object[][] innerV = null;
 
         for(JsonToken t = p.getCurrentToken(); t != JsonToken.END_OBJECT; t = p.nextToken()) {
             if(t != JsonToken.FIELD_NAME)
@@ -98,39 +96,171 @@ public class ArrayTreeTableDeserializer extends StdDeserializer<ArrayTreeTable>
                 case "columnComparatorClass":
                     table.setColumnComparatorClass(ClassUtils.forName(p.getText()));
                     break;
-                case "rowIndex": {
-                    TreeMap<?, Integer> rowIndexMap = Maps.newTreeMap(ClassUtils.newInstanceUseConstructor(table.getRowComparatorClass()));
-                    table.setRowIndex((TreeMap) rowIndexMap);
-                    JsonDeserializer rowDeserializer = indexDeserializerMap.computeIfAbsent(table.getRowClass(),
-                            ArrayTreeTableDeserializer::createIndexMapDeserializer);
-                    rowDeserializer.deserialize(p, ctxt, rowIndexMap);
-                }
-                break;
-                case "columnIndex": {
-                    TreeMap<?, Integer> columnIndexMap = Maps.newTreeMap(ClassUtils.newInstanceUseConstructor(table.getColumnComparatorClass()));
-                    table.setColumnIndex((TreeMap) columnIndexMap);
-                    JsonDeserializer columnDeserializer = indexDeserializerMap.computeIfAbsent(table.getColumnClass(),
-                            ArrayTreeTableDeserializer::createIndexMapDeserializer);
-                    columnDeserializer.deserialize(p, ctxt, columnIndexMap);
-                }
-                break;
-                case "innerV": {
-                    JsonDeserializer valueDeserializer = valueDeserializerMap.computeIfAbsent(table.getValueClass(),
-                            ArrayTreeTableDeserializer::createValueDeserializer);
-                    Object obj = valueDeserializer.deserialize(p, ctxt);
-                    table.setInnerV((Object[][]) obj);
-                }
-                break;
-                case "bits": {
-                    long[] bits = (long[]) bitsDeserializer.deserialize(p, ctxt);
-                    table.setBits(bits);
+                case "rowIndex":
+                    rowKeys = _readIndex(p, ctxt, table.getRowClass());
+                    break;
+                case "columnIndex":
+                    columnKeys = _readIndex(p, ctxt, table.getColumnClass());
+                    break;
+                case "innerV":
+                    innerV = _readInnerV(p, ctxt, table.getValueClass(), columnKeys == null ? 0 : columnKeys.size);
+                    break;
+                case "bits":
+                    table.setBits(_readBits(p));
+                    break;
+                case "rowKeys":
+                    rowKeys = _readKeys(p, ctxt, table.getRowClass());
+                    break;
+                case "columnKeys":
+                    columnKeys = _readKeys(p, ctxt, table.getColumnClass());
+                    break;
+                case "cells": {
+                    if(rowKeys == null || columnKeys == null)
+                        throw new JsonMappingException(p, "cells需要在rowKeys以及columnKeys之后");
+                    //存在位在初始化时由非null的值得出,不再按 行数 * 列数 分配整体的位图
+                    innerV = _readCells(p, ctxt, table.getValueClass(), rowKeys.size, columnKeys.size);
+                    table.setBits(null);
                 }
                 break;
                 default:
+                    p.skipChildren();
                     break;
             }
         }
 
+        if(rowKeys != null || columnKeys != null || innerV != null) {
+            if(rowKeys == null)
+                rowKeys = new Keys(_newArray(table.getRowClass(), 0), 0);
+            if(columnKeys == null)
+                columnKeys = new Keys(_newArray(table.getColumnClass(), 0), 0);
+            if(innerV == null)
+                innerV = _newRows(table.getValueClass(), 0);
+            table.load(rowKeys.keys, rowKeys.size, columnKeys.keys, columnKeys.size, innerV);
+        }
+
         return table;
     }
+
+    /** 按下标排列的key以及实际的数量 */
+    private static class Keys {
+        private Object[] keys;
+        private int size;
+
+        Keys(Object[] keys, int size) {
+            this.keys = keys;
+            this.size = size;
+        }
+
+        void set(int idx, Object key) {
+            if(idx >= keys.length)
+                keys = Arrays.copyOf(keys, Math.max(idx + 1, keys.length * 2));
+            keys[idx] = key;
+            size = Math.max(size, idx + 1);
+        }
+    }
+
+    private static Object[] _newArray(Class<?> clazz, int length) {
+        return (Object[]) Array.newInstance(Primitives.wrap(clazz), length);
+    }
+
+    private static Object[][] _newRows(Class<?> valueClass, int length) {
+        return (Object[][]) Array.newInstance(_newArray(valueClass, 0).getClass(), length);
+    }
+
+    /** 读取原有格式中的 key:下标 映射,key直接放入相应下标的位置 */
+    private static Keys _readIndex(JsonParser p, DeserializationContext ctxt, Class<?> keyClass) throws IOException {
+        KeyDeserializer deserializer = keyDeserializerMap.computeIfAbsent(keyClass, ArrayTreeTableDeserializer::createKeyDeserializer);
+        Keys keys = new Keys(_newArray(keyClass, 16), 0);
+        for(JsonToken t = p.nextToken(); t != JsonToken.END_OBJECT; t = p.nextToken()) {
+            Object key = deserializer.deserializeKey(p.getCurrentName(), ctxt);
+            p.nextToken();
+            keys.set(p.getIntValue(), key);
+        }
+
+        return keys;
+    }
+
+    /** 读取紧凑格式中有序的key数组,数组中的位置即为下标 */
+    private static Keys _readKeys(JsonParser p, DeserializationContext ctxt, Class<?> keyClass) throws IOException {
+        JsonDeserializer deserializer = valueDeserializerMap.computeIfAbsent(keyClass, ArrayTreeTableDeserializer::createValueDeserializer);
+        Keys keys = new Keys(_newArray(keyClass, 16), 0);
+        for(JsonToken t = p.nextToken(); t != JsonToken.END_ARRAY; t = p.nextToken())
+            keys.set(keys.size, deserializer.deserialize(p, ctxt));
+
+        return keys;
+    }
+
+    /** 读取原有格式中的值,在已知列数时每一行直接按列数分配 */
+    private static Object[][] _readInnerV(JsonParser p, DeserializationContext ctxt, Class<?> valueClass, int columnSize) throws IOException {
+        JsonDeserializer deserializer = valueDeserializerMap.computeIfAbsent(valueClass, ArrayTreeTableDeserializer::createValueDeserializer);
+        Object[] empty = _newArray(valueClass, 0);
+        Object[][] innerV = _newRows(valueClass, 16);
+        int rowSize = 0;
+        for(JsonToken t = p.nextToken(); t != JsonToken.END_ARRAY; t = p.nextToken()) {
+            Object[] vv = columnSize == 0 ? empty : _newArray(valueClass, columnSize);
+            int length = 0;
+            for(t = p.nextToken(); t != JsonToken.END_ARRAY; t = p.nextToken(), length++) {
+                if(length == vv.length)
+                    vv = Arrays.copyOf(vv, Math.max(8, length * 2));
+                vv[length] = t == JsonToken.VALUE_NULL ? null : deserializer.deserialize(p, ctxt);
+            }
+
+            if(rowSize == innerV.length)
+                innerV = Arrays.copyOf(innerV, rowSize * 2);
+            innerV[rowSize++] = vv;
+        }
+
+        return Arrays.copyOf(innerV, rowSize);
+    }
+
+    private static long[] _readBits(JsonParser p) throws IOException {
+        long[] bits = new long[16];
+        int size = 0;
+        for(JsonToken t = p.nextToken(); t != JsonToken.END_ARRAY; t = p.nextToken()) {
+            if(size == bits.length)
+                bits = Arrays.copyOf(bits, size * 2);
+            bits[size++] = p.getLongValue();
+        }
+
+        return Arrays.copyOf(bits, size);
+    }
+
+    /**
+     * 读取紧凑格式中的各个段,每一段为 [行下标,起始列下标,值...],直接放入相应的位置
+     * 每一行只分配到其最后一个有值的列,没有值的行共用同一个空数组
+     */
+    private static Object[][] _readCells(JsonParser p, DeserializationContext ctxt, Class<?> valueClass, int rowSize, int columnSize)
+            throws IOException {
+        JsonDeserializer deserializer = valueDeserializerMap.computeIfAbsent(valueClass, ArrayTreeTableDeserializer::createValueDeserializer);
+        Object[] empty = _newArray(valueClass, 0);
+        Object[][] innerV = _newRows(valueClass, rowSize);
+        Arrays.fill(innerV, empty);
+        //每一行实际使用的长度,即最后一个有值的列下标 + 1
+        int[] rowLength = new int[rowSize];
+        for(JsonToken t = p.nextToken(); t != JsonToken.END_ARRAY; t = p.nextToken()) {
+            p.nextToken();
+            int rowIdx = p.getIntValue();
+            p.nextToken();
+            int columnIdx = p.getIntValue();
+            if(rowIdx < 0 || rowIdx >= rowSize || columnIdx < 0)
+                throw new JsonMappingException(p, "cells中的下标超出范围:[" + rowIdx + "," + columnIdx + "]");
+
+            Object[] vv = innerV[rowIdx];
+            for(t = p.nextToken(); t != JsonToken.END_ARRAY; t = p.nextToken(), columnIdx++) {
+                if(columnIdx >= columnSize)
+                    throw new JsonMappingException(p, "cells中的列下标超出范围:" + columnIdx);
+                if(columnIdx >= vv.length)
+                    innerV[rowIdx] = vv = Arrays.copyOf(vv, Math.min(columnSize, Math.max(columnIdx + 1, vv.length * 2)));
+                vv[columnIdx] = deserializer.deserialize(p, ctxt);
+            }
+            rowLength[rowIdx] = Math.max(rowLength[rowIdx], columnIdx);
+        }
+
+        for(int i = 0; i < rowSize; i++) {
+            if(innerV[i].length > rowLength[i])
+                innerV[i] = Arrays.copyOf(innerV[i], rowLength[i]);
+        }
+
+        return innerV;
+    }
 }
@@ -0,0 +1,16 @@
+package com.iflym.table.jackson;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.iflym.table.ArrayTreeTable;
+
+/**
+ * 启用ArrayTreeTable紧凑格式序列化的模块,通过objectMapper.registerModule注册
+ * 不注册时仍按bean的方式写出,ArrayTreeTableDeserializer对两种格式均可读取
+ */
+public class ArrayTreeTableModule extends SimpleModule {
+
+    public ArrayTreeTableModule() {
+        super("ArrayTreeTableModule");
+        addSerializer(ArrayTreeTable.class, new ArrayTreeTableSerializer());
+    }
+}
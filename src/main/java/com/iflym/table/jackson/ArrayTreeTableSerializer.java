@@ -0,0 +1,96 @@
+package com.iflym.table.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.iflym.table.ArrayTreeTable;
+import com.iflym.table.util.ComparatorUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 用于实现在jackson环境下ArrayTreeTable的紧凑序列化
+ * 行,列key按顺序写为数组,只写入有值的格子,同一行内连续的格子合并为一段,每一段写为 [行下标,起始列下标,值...]
+ * 格式如下:
+ * {"rowClass":..,"columnClass":..,"valueClass":..,"rowComparatorClass":..,"columnComparatorClass":..,
+ * "rowKeys":[..],"columnKeys":[..],"cells":[[0,0,v,v],[0,5,v],[2,1,v]]}
+ * 由ArrayTreeTableDeserializer按相同的格式读取
+ * 该序列化器不会自动生效,默认仍按bean的方式写出,需要紧凑格式时注册ArrayTreeTableModule
+ */
+public class ArrayTreeTableSerializer extends StdSerializer<ArrayTreeTable> {
+
+    public ArrayTreeTableSerializer() {
+        super(ArrayTreeTable.class);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void serialize(ArrayTreeTable value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        ArrayTreeTable<Object, Object, Object> table = value;
+        if(!ComparatorUtils.isRecreatable(table.getRowComparatorClass()) || !ComparatorUtils.isRecreatable(table.getColumnComparatorClass()))
+            throw JsonMappingException.from(gen, "lambda等运行时生成的比较器不能按类名重新创建,不支持序列化:"
+                    + table.getRowComparatorClass().getName() + "," + table.getColumnComparatorClass().getName());
+
+        gen.writeStartObject();
+        gen.writeStringField("rowClass", table.getRowClass().getName());
+        gen.writeStringField("columnClass", table.getColumnClass().getName());
+        gen.writeStringField("valueClass", table.getValueClass().getName());
+        gen.writeStringField("rowComparatorClass", table.getRowComparatorClass().getName());
+        gen.writeStringField("columnComparatorClass", table.getColumnComparatorClass().getName());
+
+        gen.writeArrayFieldStart("rowKeys");
+        JsonSerializer<Object> rowSerializer = provider.findValueSerializer(table.getRowClass());
+        for(Object rowKey : table.rowKeySet())
+            rowSerializer.serialize(rowKey, gen, provider);
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart("columnKeys");
+        JsonSerializer<Object> columnSerializer = provider.findValueSerializer(table.getColumnClass());
+        for(Object columnKey : table.columnKeySet())
+            columnSerializer.serialize(columnKey, gen, provider);
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart("cells");
+        _writeCells(table, gen, provider);
+        gen.writeEndArray();
+
+        gen.writeEndObject();
+    }
+
+    /** 按行,列下标顺序写入各个段,下标直接由表的存在位得出,列下标不连续或换行时开始新的段 */
+    private void _writeCells(ArrayTreeTable<Object, Object, Object> table, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        Class<?> valueClass = table.getValueClass();
+        JsonSerializer<Object> valueSerializer = provider.findValueSerializer(valueClass);
+
+        //上一个写入的格子,用于判断当前格子能否接在当前段之后
+        int[] last = {-1, -1};
+        try{
+            table.forEachCellIndex((rowIdx, columnIdx, v) -> {
+                try{
+                    if(rowIdx != last[0] || columnIdx != last[1] + 1) {
+                        if(last[0] >= 0)
+                            gen.writeEndArray();
+                        gen.writeStartArray();
+                        gen.writeNumber(rowIdx);
+                        gen.writeNumber(columnIdx);
+                    }
+
+                    JsonSerializer<Object> serializer = v.getClass() == valueClass ? valueSerializer : provider.findValueSerializer(v.getClass());
+                    serializer.serialize(v, gen, provider);
+                    last[0] = rowIdx;
+                    last[1] = columnIdx;
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if(last[0] >= 0)
+            gen.writeEndArray();
+    }
+}
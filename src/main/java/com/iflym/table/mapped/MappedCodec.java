@@ -0,0 +1,83 @@
+package com.iflym.table.mapped;
+
+import com.google.common.collect.Maps;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 映射文件中行,列key以及值的编码方式
+ * 基本类型的包装类型为固定宽度,可以直接按下标定位;字符串为变长,在数据之前存放每一项的偏移
+ */
+final class MappedCodec<T> {
+    private static final Map<Class<?>, MappedCodec<?>> codecMap = Maps.newHashMap();
+
+    static {
+        _register(Byte.class, 1, (out, v) -> out.writeByte(v), (file, position, length) -> file.getByte(position));
+        _register(Boolean.class, 1, DataOutput::writeBoolean, (file, position, length) -> file.getByte(position) != 0);
+        _register(Short.class, 2, (out, v) -> out.writeShort(v), (file, position, length) -> file.getShort(position));
+        _register(Character.class, 2, (out, v) -> out.writeChar(v), (file, position, length) -> (char) file.getShort(position));
+        _register(Integer.class, 4, DataOutput::writeInt, (file, position, length) -> file.getInt(position));
+        _register(Float.class, 4, DataOutput::writeFloat, (file, position, length) -> Float.intBitsToFloat(file.getInt(position)));
+        _register(Long.class, 8, DataOutput::writeLong, (file, position, length) -> file.getLong(position));
+        _register(Double.class, 8, DataOutput::writeDouble, (file, position, length) -> file.getDouble(position));
+        _register(String.class, 0, (out, v) -> out.write(v.getBytes(StandardCharsets.UTF_8)),
+                (file, position, length) -> new String(file.getBytes(position, length), StandardCharsets.UTF_8));
+    }
+
+    private interface Writer<T> {
+        void write(DataOutput out, T value) throws IOException;
+    }
+
+    private interface Reader<T> {
+        T read(MappedFile file, long position, int length);
+    }
+
+    /** 固定宽度的字节数,变长时为0 */
+    final int width;
+    private final Writer<T> writer;
+    private final Reader<T> reader;
+
+    private MappedCodec(int width, Writer<T> writer, Reader<T> reader) {
+        this.width = width;
+        this.writer = writer;
+        this.reader = reader;
+    }
+
+    private static <T> void _register(Class<T> clazz, int width, Writer<T> writer, Reader<T> reader) {
+        codecMap.put(clazz, new MappedCodec<>(width, writer, reader));
+    }
+
+    /** 获取指定类型的编码方式,类型需要为包装之后的类型 */
+    @SuppressWarnings("unchecked")
+    static <T> MappedCodec<T> of(Class<T> clazz) {
+        MappedCodec<T> codec = (MappedCodec<T>) codecMap.get(clazz);
+        if(codec == null)
+            throw new IllegalArgumentException("映射文件不支持的类型:" + clazz.getName());
+
+        return codec;
+    }
+
+    /** 编码之后的字节数,null表示没有值,固定宽度时仍占用相应的宽度 */
+    long length(T value) {
+        if(width > 0)
+            return width;
+
+        return value == null ? 0 : ((String) value).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /** 写入值,null表示没有值,固定宽度时写入相应宽度的0 */
+    void write(DataOutput out, T value) throws IOException {
+        if(value != null)
+            writer.write(out, value);
+        else
+            for(int i = 0; i < width; i++)
+                out.writeByte(0);
+    }
+
+    T read(MappedFile file, long position, int length) {
+        return reader.read(file, position, length);
+    }
+}
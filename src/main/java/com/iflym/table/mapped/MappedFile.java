@@ -0,0 +1,100 @@
+package com.iflym.table.mapped;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 只读映射的文件,按大端读取
+ * 单个MappedByteBuffer最多只能映射2G,因此按块分别映射,跨块的读取按字节拼接
+ * 映射时并不读取数据,只有在实际访问时才由操作系统按页加载
+ */
+class MappedFile implements Closeable {
+    /** 默认按1G分块 */
+    static final int DEFAULT_CHUNK_SHIFT = 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final int chunkShift;
+    private final long chunkMask;
+
+    MappedFile(Path path, int chunkShift) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1L << chunkShift) - 1;
+
+        long length = channel.size();
+        long chunkSize = 1L << chunkShift;
+        chunks = new MappedByteBuffer[(int) ((length + chunkSize - 1) >>> chunkShift)];
+        for(int i = 0; i < chunks.length; i++) {
+            long start = (long) i << chunkShift;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize, length - start));
+        }
+    }
+
+    private ByteBuffer _chunk(long position) {
+        return chunks[(int) (position >>> chunkShift)];
+    }
+
+    /** 跨块时按字节拼接读取 */
+    private long _getSlow(long position, int bytes) {
+        long value = 0;
+        for(int i = 0; i < bytes; i++)
+            value = (value << 8) | (getByte(position + i) & 0xFF);
+
+        return value;
+    }
+
+    byte getByte(long position) {
+        return _chunk(position).get((int) (position & chunkMask));
+    }
+
+    short getShort(long position) {
+        ByteBuffer chunk = _chunk(position);
+        int offset = (int) (position & chunkMask);
+        return offset + 2 <= chunk.limit() ? chunk.getShort(offset) : (short) _getSlow(position, 2);
+    }
+
+    int getInt(long position) {
+        ByteBuffer chunk = _chunk(position);
+        int offset = (int) (position & chunkMask);
+        return offset + 4 <= chunk.limit() ? chunk.getInt(offset) : (int) _getSlow(position, 4);
+    }
+
+    long getLong(long position) {
+        ByteBuffer chunk = _chunk(position);
+        int offset = (int) (position & chunkMask);
+        return offset + 8 <= chunk.limit() ? chunk.getLong(offset) : _getSlow(position, 8);
+    }
+
+    double getDouble(long position) {
+        return Double.longBitsToDouble(getLong(position));
+    }
+
+    /** 读取指定长度的字节,可以跨块 */
+    byte[] getBytes(long position, int length) {
+        byte[] result = new byte[length];
+        int done = 0;
+        while(done < length) {
+            long current = position + done;
+            //使用副本读取,不修改共享的位置信息
+            ByteBuffer chunk = _chunk(current).duplicate();
+            chunk.position((int) (current & chunkMask));
+            int count = Math.min(length - done, chunk.remaining());
+            chunk.get(result, done, count);
+            done += count;
+        }
+
+        return result;
+    }
+
+    /** 关闭文件,映射本身在MappedByteBuffer被回收时才会解除 */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,593 @@
+package com.iflym.table.mapped;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+import com.iflym.table.ArrayTreeTable;
+import com.iflym.table.util.ClassUtils;
+import com.iflym.table.util.ComparatorUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * 由MappedTableWriter写入的文件映射而来的只读表
+ * 打开时只读取头部信息,值直接从映射中按下标读取,不需要反序列化整个表
+ * 行,列key在首次查找时整体解码一次,以便使用比较器进行二分查找
+ * 修改相关的方法均不支持,如果需要修改,可以通过toArrayTreeTable读入为普通的表
+ */
+public class MappedTable<R, C, V> implements Table<R, C, V>, Closeable {
+    private final MappedFile file;
+
+    private final Class<R> rowClass;
+    private final Class<C> columnClass;
+    private final Class<V> valueClass;
+    private final Class<Comparator<R>> rowComparatorClass;
+    private final Class<Comparator<C>> columnComparatorClass;
+
+    private final Comparator<? super R> rowComparator;
+    private final Comparator<? super C> columnComparator;
+    private final MappedCodec<R> rowCodec;
+    private final MappedCodec<C> columnCodec;
+    private final MappedCodec<V> valueCodec;
+
+    private final int rowSize;
+    private final int columnSize;
+    private final int cellSize;
+
+    /** 各个块在文件中的偏移 */
+    private final long rowKeysOffset;
+    private final long columnKeysOffset;
+    private final long bitsOffset;
+    private final long valuesOffset;
+
+    /** 解码之后的行,列key,首次使用时才解码 */
+    private volatile R[] rowKeys;
+    private volatile C[] columnKeys;
+
+    @SuppressWarnings("unchecked")
+    private MappedTable(MappedFile file) throws IOException {
+        this.file = file;
+        if(file.getInt(0) != MappedTableWriter.MAGIC)
+            throw new IOException("不是有效的映射表文件");
+        if(file.getInt(4) != MappedTableWriter.VERSION)
+            throw new IOException("不支持的映射表文件版本:" + file.getInt(4));
+
+        rowSize = file.getInt(MappedTableWriter.SIZE_POSITION);
+        columnSize = file.getInt(MappedTableWriter.SIZE_POSITION + 4);
+        rowKeysOffset = file.getLong(MappedTableWriter.OFFSETS_POSITION);
+        columnKeysOffset = file.getLong(MappedTableWriter.OFFSETS_POSITION + 8);
+        bitsOffset = file.getLong(MappedTableWriter.OFFSETS_POSITION + 16);
+        valuesOffset = file.getLong(MappedTableWriter.OFFSETS_POSITION + 24);
+
+        String[] names = new String[5];
+        long position = MappedTableWriter.NAMES_POSITION;
+        for(int i = 0; i < names.length; i++) {
+            int length = file.getShort(position) & 0xFFFF;
+            names[i] = new DataInputStream(new ByteArrayInputStream(file.getBytes(position, 2 + length))).readUTF();
+            position += 2 + length;
+        }
+        rowClass = ClassUtils.forName(names[0]);
+        columnClass = ClassUtils.forName(names[1]);
+        valueClass = ClassUtils.forName(names[2]);
+        rowComparatorClass = ClassUtils.forName(names[3]);
+        columnComparatorClass = ClassUtils.forName(names[4]);
+
+        rowComparator = ComparatorUtils.get(rowComparatorClass);
+        columnComparator = ComparatorUtils.get(columnComparatorClass);
+        rowCodec = MappedCodec.of(rowClass);
+        columnCodec = MappedCodec.of(columnClass);
+        valueCodec = MappedCodec.of(valueClass);
+
+        int count = 0;
+        for(long i = 0, words = _words(); i < words; i++)
+            count += Long.bitCount(file.getLong(bitsOffset + (i << 3)));
+        cellSize = count;
+    }
+
+    /** 打开指定的映射表文件 */
+    public static <R, C, V> MappedTable<R, C, V> open(Path path) throws IOException {
+        return open(path, MappedFile.DEFAULT_CHUNK_SHIFT);
+    }
+
+    /** 按指定的分块大小打开,用于测试跨块的读取 */
+    static <R, C, V> MappedTable<R, C, V> open(Path path, int chunkShift) throws IOException {
+        MappedFile file = new MappedFile(path, chunkShift);
+        try{
+            return new MappedTable<>(file);
+        } catch(IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    //---------------------------- 内部各种方法 start ------------------------------//
+
+    /** 存在位的字数 */
+    private long _words() {
+        return ((long) rowSize * columnSize + 63) >>> 6;
+    }
+
+    /** 读取块中指定下标的项 */
+    private <T> T _read(MappedCodec<T> codec, long blockOffset, long count, long index) {
+        if(codec.width > 0)
+            return codec.read(file, blockOffset + index * codec.width, codec.width);
+
+        long start = file.getLong(blockOffset + (index << 3));
+        long end = file.getLong(blockOffset + ((index + 1) << 3));
+        return codec.read(file, blockOffset + ((count + 1) << 3) + start, (int) (end - start));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T[] _readKeys(MappedCodec<T> codec, Class<T> clazz, long blockOffset, int count) {
+        T[] keys = (T[]) Array.newInstance(clazz, count);
+        for(int i = 0; i < count; i++)
+            keys[i] = _read(codec, blockOffset, count, i);
+
+        return keys;
+    }
+
+    private R[] _rowKeys() {
+        R[] keys = rowKeys;
+        if(keys == null)
+            rowKeys = keys = _readKeys(rowCodec, rowClass, rowKeysOffset, rowSize);
+
+        return keys;
+    }
+
+    private C[] _columnKeys() {
+        C[] keys = columnKeys;
+        if(keys == null)
+            columnKeys = keys = _readKeys(columnCodec, columnClass, columnKeysOffset, columnSize);
+
+        return keys;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int _rowIdx(Object rowKey) {
+        return rowKey == null ? -1 : Arrays.binarySearch(_rowKeys(), (R) rowKey, rowComparator);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int _columnIdx(Object columnKey) {
+        return columnKey == null ? -1 : Arrays.binarySearch(_columnKeys(), (C) columnKey, columnComparator);
+    }
+
+    /** 指定格是否有值 */
+    private boolean _has(int rowIdx, int columnIdx) {
+        long idx = (long) rowIdx * columnSize + columnIdx;
+        return (file.getLong(bitsOffset + ((idx >>> 6) << 3)) & (1L << idx)) != 0;
+    }
+
+    /** 从指定位(包括)开始,在toBit之前找到下一个有值的位,按字扫描,没有时返回-1 */
+    private long _nextSet(long fromBit, long toBit) {
+        if(fromBit >= toBit)
+            return -1;
+
+        long wordIdx = fromBit >>> 6;
+        long word = file.getLong(bitsOffset + (wordIdx << 3)) & (-1L << fromBit);
+        for(long lastWord = (toBit - 1) >>> 6; ; ) {
+            if(word != 0) {
+                long bit = (wordIdx << 6) + Long.numberOfTrailingZeros(word);
+                return bit < toBit ? bit : -1;
+            }
+            if(++wordIdx > lastWord)
+                return -1;
+            word = file.getLong(bitsOffset + (wordIdx << 3));
+        }
+    }
+
+    private V _value(int rowIdx, int columnIdx) {
+        return _read(valueCodec, valuesOffset, (long) rowSize * columnSize, (long) rowIdx * columnSize + columnIdx);
+    }
+
+    //---------------------------- 内部各种方法 end ------------------------------//
+
+    /** 将全部数据读入为ArrayTreeTable */
+    public ArrayTreeTable<R, C, V> toArrayTreeTable() {
+        ArrayTreeTable<R, C, V> table = new ArrayTreeTable<>(rowClass, columnClass, valueClass, rowComparatorClass, columnComparatorClass,
+                rowSize, columnSize);
+        table.init();
+        table.putAll(this);
+
+        return table;
+    }
+
+    @Override
+    public boolean contains(@Nullable Object rowKey, @Nullable Object columnKey) {
+        int rowIdx = _rowIdx(rowKey);
+        if(rowIdx < 0)
+            return false;
+
+        int columnIdx = _columnIdx(columnKey);
+        return columnIdx >= 0 && _has(rowIdx, columnIdx);
+    }
+
+    @Override
+    public boolean containsRow(@Nullable Object rowKey) {
+        return _rowIdx(rowKey) >= 0;
+    }
+
+    @Override
+    public boolean containsColumn(@Nullable Object columnKey) {
+        return _columnIdx(columnKey) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(@Nullable Object value) {
+        return value != null && values().contains(value);
+    }
+
+    @Override
+    public V get(@Nullable Object rowKey, @Nullable Object columnKey) {
+        int rowIdx = _rowIdx(rowKey);
+        if(rowIdx < 0)
+            return null;
+
+        int columnIdx = _columnIdx(columnKey);
+        if(columnIdx < 0 || !_has(rowIdx, columnIdx))
+            return null;
+
+        return _value(rowIdx, columnIdx);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return cellSize == 0;
+    }
+
+    @Override
+    public int size() {
+        return cellSize;
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("映射表为只读");
+    }
+
+    @Override
+    public V put(@Nonnull R rowKey, @Nonnull C columnKey, @Nonnull V value) {
+        throw new UnsupportedOperationException("映射表为只读");
+    }
+
+    @Override
+    public void putAll(@Nonnull Table<? extends R, ? extends C, ? extends V> table) {
+        throw new UnsupportedOperationException("映射表为只读");
+    }
+
+    @Override
+    public V remove(@Nullable Object rowKey, @Nullable Object columnKey) {
+        throw new UnsupportedOperationException("映射表为只读");
+    }
+
+    @Override
+    public Map<C, V> row(@Nonnull R rowKey) {
+        return new AbstractMap<C, V>() {
+            @Override
+            public V get(Object key) {
+                return MappedTable.this.get(rowKey, key);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return contains(rowKey, key);
+            }
+
+            @Override
+            @Nonnull
+            public Set<Entry<C, V>> entrySet() {
+                int rowIdx = _rowIdx(rowKey);
+                return new CellView<Entry<C, V>>(rowIdx < 0 ? 0 : rowIdx, rowIdx < 0 ? 0 : rowIdx + 1, -1) {
+                    @Override
+                    Entry<C, V> _make(int rowIdx, int columnIdx) {
+                        return Maps.immutableEntry(_columnKeys()[columnIdx], _value(rowIdx, columnIdx));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Map<R, V> column(@Nonnull C columnKey) {
+        return new AbstractMap<R, V>() {
+            @Override
+            public V get(Object key) {
+                return MappedTable.this.get(key, columnKey);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return contains(key, columnKey);
+            }
+
+            @Override
+            @Nonnull
+            public Set<Entry<R, V>> entrySet() {
+                int columnIdx = _columnIdx(columnKey);
+                return new CellView<Entry<R, V>>(0, columnIdx < 0 ? 0 : rowSize, columnIdx < 0 ? -1 : columnIdx) {
+                    @Override
+                    Entry<R, V> _make(int rowIdx, int columnIdx) {
+                        return Maps.immutableEntry(_rowKeys()[rowIdx], _value(rowIdx, columnIdx));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Set<Cell<R, C, V>> cellSet() {
+        return new CellView<Cell<R, C, V>>(0, rowSize, -1) {
+            @Override
+            Cell<R, C, V> _make(int rowIdx, int columnIdx) {
+                return Tables.immutableCell(_rowKeys()[rowIdx], _columnKeys()[columnIdx], _value(rowIdx, columnIdx));
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if(!(o instanceof Cell))
+                    return false;
+
+                Cell<?, ?, ?> cell = (Cell<?, ?, ?>) o;
+                V value = get(cell.getRowKey(), cell.getColumnKey());
+                return value != null && value.equals(cell.getValue());
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            @Nonnull
+            public Iterator<V> iterator() {
+                return new CellIterator<V>(0, rowSize, -1) {
+                    @Override
+                    V _make(int rowIdx, int columnIdx) {
+                        return _value(rowIdx, columnIdx);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return cellSize;
+            }
+        };
+    }
+
+    @Override
+    public Set<R> rowKeySet() {
+        return rowMap().keySet();
+    }
+
+    @Override
+    public Set<C> columnKeySet() {
+        return columnMap().keySet();
+    }
+
+    @Override
+    public Map<R, Map<C, V>> rowMap() {
+        return new KeyMap<R, Map<C, V>>() {
+            @Override
+            R[] _keys() {
+                return _rowKeys();
+            }
+
+            @Override
+            int _idx(Object key) {
+                return _rowIdx(key);
+            }
+
+            @Override
+            Map<C, V> _map(R key) {
+                return row(key);
+            }
+        };
+    }
+
+    @Override
+    public Map<C, Map<R, V>> columnMap() {
+        return new KeyMap<C, Map<R, V>>() {
+            @Override
+            C[] _keys() {
+                return _columnKeys();
+            }
+
+            @Override
+            int _idx(Object key) {
+                return _columnIdx(key);
+            }
+
+            @Override
+            Map<R, V> _map(C key) {
+                return column(key);
+            }
+        };
+    }
+
+    /** 与Table约定一致,单元格集合相同即相等 */
+    @Override
+    public boolean equals(Object o) {
+        if(this == o)
+            return true;
+        if(!(o instanceof Table))
+            return false;
+
+        return cellSet().equals(((Table<?, ?, ?>) o).cellSet());
+    }
+
+    @Override
+    public int hashCode() {
+        return cellSet().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return rowMap().toString();
+    }
+
+    /** 关闭文件,映射本身在被回收时才会解除 */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /** 按存在位遍历指定行范围内的格子,可以限定在某一列内 */
+    private abstract class CellIterator<T> implements Iterator<T> {
+        private final int toRow;
+        /** 限定的列,为-1时表示不限定 */
+        private final int fixedColumnIdx;
+
+        /** 不限定列时,为下一个待检查的位;限定列时,为下一个待检查的行 */
+        private long position;
+        /** 已定位到的格子,没有定位时rowIdx为-1 */
+        private int rowIdx = -1;
+        private int columnIdx;
+
+        CellIterator(int fromRow, int toRow, int fixedColumnIdx) {
+            this.toRow = toRow;
+            this.fixedColumnIdx = fixedColumnIdx;
+            this.position = fixedColumnIdx >= 0 ? fromRow : (long) fromRow * columnSize;
+        }
+
+        abstract T _make(int rowIdx, int columnIdx);
+
+        /** 定位到下一个有值的格子,限定列时每行只需检查一位,否则按字跳过空白 */
+        private boolean _toNext() {
+            if(rowIdx >= 0)
+                return true;
+
+            if(fixedColumnIdx >= 0) {
+                for(; position < toRow; position++) {
+                    if(_has((int) position, fixedColumnIdx)) {
+                        rowIdx = (int) position++;
+                        columnIdx = fixedColumnIdx;
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            long bit = _nextSet(position, (long) toRow * columnSize);
+            if(bit < 0) {
+                position = (long) toRow * columnSize;
+                return false;
+            }
+
+            rowIdx = (int) (bit / columnSize);
+            columnIdx = (int) (bit % columnSize);
+            position = bit + 1;
+            return true;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _toNext();
+        }
+
+        @Override
+        public T next() {
+            if(!_toNext())
+                throw new NoSuchElementException();
+
+            T t = _make(rowIdx, columnIdx);
+            rowIdx = -1;
+            return t;
+        }
+    }
+
+    /** 以集合形式表示的格子视图,用于entrySet及cellSet */
+    private abstract class CellView<T> extends AbstractSet<T> {
+        private final int fromRow;
+        private final int toRow;
+        private final int fixedColumnIdx;
+
+        CellView(int fromRow, int toRow, int fixedColumnIdx) {
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.fixedColumnIdx = fixedColumnIdx;
+        }
+
+        abstract T _make(int rowIdx, int columnIdx);
+
+        @Override
+        @Nonnull
+        public Iterator<T> iterator() {
+            return new CellIterator<T>(fromRow, toRow, fixedColumnIdx) {
+                @Override
+                T _make(int rowIdx, int columnIdx) {
+                    return CellView.this._make(rowIdx, columnIdx);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            if(fromRow == 0 && toRow == rowSize && fixedColumnIdx < 0)
+                return cellSize;
+
+            int count = 0;
+            for(Iterator<T> it = iterator(); it.hasNext(); it.next())
+                count++;
+
+            return count;
+        }
+    }
+
+    /** 按key有序排列的行(列)映射 */
+    private abstract class KeyMap<K, M> extends AbstractMap<K, M> {
+        abstract K[] _keys();
+
+        abstract int _idx(Object key);
+
+        abstract M _map(K key);
+
+        @Override
+        public boolean containsKey(Object key) {
+            return _idx(key) >= 0;
+        }
+
+        @Override
+        public M get(Object key) {
+            int idx = _idx(key);
+            return idx < 0 ? null : _map(_keys()[idx]);
+        }
+
+        @Override
+        @Nonnull
+        public Set<Entry<K, M>> entrySet() {
+            return new AbstractSet<Entry<K, M>>() {
+                @Override
+                @Nonnull
+                public Iterator<Entry<K, M>> iterator() {
+                    Iterator<K> it = Arrays.asList(_keys()).iterator();
+                    return new Iterator<Entry<K, M>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Entry<K, M> next() {
+                            K key = it.next();
+                            return Maps.immutableEntry(key, _map(key));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return _keys().length;
+                }
+            };
+        }
+    }
+}
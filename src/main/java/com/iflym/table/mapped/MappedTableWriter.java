@@ -0,0 +1,164 @@
+package com.iflym.table.mapped;
+
+import com.google.common.io.CountingOutputStream;
+import com.iflym.table.ArrayTreeTable;
+import com.iflym.table.util.ComparatorUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 将ArrayTreeTable写为可以直接映射读取的二进制文件,由MappedTable打开
+ * 文件格式(大端,各个块按8字节对齐):
+ * 头部: magic,版本,行数,列数,行key块/列key块/存在位块/值块的偏移,以及行,列,值,行比较器,列比较器的类名
+ * 行key块,列key块: 按下标有序排列的key
+ * 存在位块: 与ArrayTreeTable的bits相同,按 行下标 * 列数 + 列下标 排列
+ * 值块: 按行优先排列的 行数 * 列数 个值,没有值的格子为0(变长时为空)
+ * 固定宽度的块直接按 下标 * 宽度 定位,变长的块在数据之前存放 项数 + 1 个相对于数据开始处的偏移
+ * 注意: 值块是稠密的,大小与 行数 * 列数 成正比,而不是与实际的格子数成正比,以此换取按下标直接定位
+ * 定宽的值每个空格子仍占用相应的宽度(如Long为8字节),变长的值(如String)每个空格子仍占用一个8字节的偏移
+ * 因此该格式只适合较满的表,非常稀疏的表写出的文件会远大于其实际数据
+ */
+public class MappedTableWriter {
+    static final int MAGIC = 0x41545431;
+    static final int VERSION = 1;
+    /** 头部中行数,列数以及各个块偏移的位置 */
+    static final int SIZE_POSITION = 8;
+    static final int OFFSETS_POSITION = 16;
+    static final int NAMES_POSITION = 48;
+
+    /** 将表格写入指定的文件,已存在时覆盖 */
+    public static <R, C, V> void write(ArrayTreeTable<R, C, V> table, Path path) throws IOException {
+        if(!ComparatorUtils.isRecreatable(table.getRowComparatorClass()) || !ComparatorUtils.isRecreatable(table.getColumnComparatorClass()))
+            throw new IllegalArgumentException("lambda等运行时生成的比较器不能按类名重新创建,不支持写出:"
+                    + table.getRowComparatorClass().getName() + "," + table.getColumnComparatorClass().getName());
+
+        MappedCodec<R> rowCodec = MappedCodec.of(table.getRowClass());
+        MappedCodec<C> columnCodec = MappedCodec.of(table.getColumnClass());
+        MappedCodec<V> valueCodec = MappedCodec.of(table.getValueClass());
+
+        List<R> rowKeys = new ArrayList<>(table.rowKeySet());
+        List<C> columnKeys = new ArrayList<>(table.columnKeySet());
+        long[] offsets = new long[4];
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CountingOutputStream counting = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            DataOutputStream out = new DataOutputStream(counting);
+
+            //头部,各个块的偏移最后再回写
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rowKeys.size());
+            out.writeInt(columnKeys.size());
+            for(int i = 0; i < offsets.length; i++)
+                out.writeLong(0);
+            out.writeUTF(table.getRowClass().getName());
+            out.writeUTF(table.getColumnClass().getName());
+            out.writeUTF(table.getValueClass().getName());
+            out.writeUTF(table.getRowComparatorClass().getName());
+            out.writeUTF(table.getColumnComparatorClass().getName());
+
+            offsets[0] = _align(out, counting);
+            _writeBlock(out, rowCodec, rowKeys.size(), rowKeys::iterator);
+
+            offsets[1] = _align(out, counting);
+            _writeBlock(out, columnCodec, columnKeys.size(), columnKeys::iterator);
+
+            offsets[2] = _align(out, counting);
+            for(long word : table.getBits())
+                out.writeLong(word);
+
+            offsets[3] = _align(out, counting);
+            _writeBlock(out, valueCodec, (long) rowKeys.size() * columnKeys.size(), () -> new ValueIterator<>(table, rowKeys, columnKeys));
+            out.flush();
+
+            ByteBuffer buffer = ByteBuffer.allocate(offsets.length * 8);
+            for(long offset : offsets)
+                buffer.putLong(offset);
+            buffer.flip();
+            channel.write(buffer, OFFSETS_POSITION);
+        }
+    }
+
+    /** 补齐至8字节对齐,返回对齐之后的位置 */
+    private static long _align(DataOutputStream out, CountingOutputStream counting) throws IOException {
+        while((counting.getCount() & 7) != 0)
+            out.writeByte(0);
+
+        return counting.getCount();
+    }
+
+    /** 写入一个块,变长时需要遍历两次,先写入偏移再写入数据 */
+    private static <T> void _writeBlock(DataOutputStream out, MappedCodec<T> codec, long count, Supplier<Iterator<T>> items) throws IOException {
+        if(codec.width == 0) {
+            long offset = 0;
+            out.writeLong(offset);
+            for(Iterator<T> it = items.get(); it.hasNext(); ) {
+                offset += codec.length(it.next());
+                out.writeLong(offset);
+            }
+        }
+
+        long written = 0;
+        for(Iterator<T> it = items.get(); it.hasNext(); written++)
+            codec.write(out, it.next());
+
+        if(written != count)
+            throw new IllegalStateException("写入的项数与预期不一致,表格在写入过程中被修改了");
+    }
+
+    /** 按行优先遍历所有的格子,没有值的格子返回null */
+    private static class ValueIterator<R, C, V> implements Iterator<V> {
+        private final ArrayTreeTable<R, C, V> table;
+        private final Iterator<R> rowIterator;
+        private final List<C> columnKeys;
+
+        /** 当前行按列排列的值 */
+        private final List<V> line;
+        private int columnIdx;
+
+        ValueIterator(ArrayTreeTable<R, C, V> table, List<R> rowKeys, List<C> columnKeys) {
+            this.table = table;
+            this.rowIterator = rowKeys.iterator();
+            this.columnKeys = columnKeys;
+            this.line = new ArrayList<>(Collections.nCopies(columnKeys.size(), null));
+            this.columnIdx = columnKeys.size();
+        }
+
+        /** 读取下一行,行内的数据按列有序,因此只需要顺序对齐列下标 */
+        private void _nextLine() {
+            Collections.fill(line, null);
+            Comparator<? super C> comparator = table.getColumnComparator();
+            int k = 0;
+            for(Map.Entry<C, V> entry : table.row(rowIterator.next()).entrySet()) {
+                while(comparator.compare(columnKeys.get(k), entry.getKey()) != 0)
+                    k++;
+                line.set(k, entry.getValue());
+            }
+            columnIdx = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return columnIdx < line.size() || rowIterator.hasNext() && !line.isEmpty();
+        }
+
+        @Override
+        public V next() {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            if(columnIdx == line.size())
+                _nextLine();
+
+            return line.get(columnIdx++);
+        }
+    }
+}
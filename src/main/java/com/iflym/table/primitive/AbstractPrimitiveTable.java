@@ -0,0 +1,926 @@
+package com.iflym.table.primitive;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+import com.iflym.table.util.ArrayUtils;
+import com.iflym.table.util.BitSetUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * 基本类型表的公共实现,与ArrayTreeTable的存储方式一致
+ * 行,列key存放在有序的基本类型数组中(SortedKeys),下标由二分查找得出,值按行存放(RowStore),存在位由每行的位图维护
+ * key以及值在这里统一按long处理,行,列的增减,存取以及Table的各个视图均在这里实现,子类只负责对外的类型转换
+ * 不允许null key和null值
+ */
+public abstract class AbstractPrimitiveTable<R, C, V> implements Table<R, C, V> {
+    /** 有序的行key,只有前rowSize个有效 */
+    final SortedKeys rowKeys;
+    /** 有序的列key,只有前columnSize个有效 */
+    final SortedKeys columnKeys;
+    /** 行的存储方式 */
+    final RowStore rowStore;
+
+    /**
+     * 每行的值,与rowKeys一一对应,具体的存储由rowStore决定
+     * 每一行的长度不一定与列数相同,某一格是否有值以rowBits为准
+     */
+    protected Object[] rows;
+
+    /** 每行的存在位,行移动时整体移动,列增减时在行内移位 */
+    protected long[][] rowBits;
+
+    /** 实际的行数,列数以及单元格数 */
+    protected int rowSize;
+    protected int columnSize;
+    protected int cellSize;
+
+    /** 预分配的列容量,新建的行会直接按列容量分配 */
+    private int columnCapacity;
+
+    //---------------------------- 过程中使用临时对象 start ------------------------------//
+    private Map<R, Map<C, V>> rowMap;
+    private Map<C, Map<R, V>> columnMap;
+    private Set<Cell<R, C, V>> cellSet;
+    private Collection<V> valueCollection;
+
+    //---------------------------- 过程中使用临时对象 end ------------------------------//
+
+    AbstractPrimitiveTable(SortedKeys rowKeys, SortedKeys columnKeys, RowStore rowStore, int rowCapacity, int columnCapacity) {
+        this.rowKeys = rowKeys;
+        this.columnKeys = columnKeys;
+        this.rowStore = rowStore;
+        this.rows = rowStore.newRows(rowCapacity);
+        this.rowBits = new long[rowCapacity][];
+        this.columnCapacity = columnCapacity;
+    }
+
+    //---------------------------- 子类实现 start ------------------------------//
+
+    /** 由存储的64位值得到包装之后的值 */
+    protected abstract V _box(long value);
+
+    /** 将值转换为存储的64位值 */
+    protected abstract long _unbox(V value);
+
+    //---------------------------- 子类实现 end ------------------------------//
+
+    //---------------------------- 基本类型存取 start ------------------------------//
+
+    /** 指定格是否有值 */
+    protected boolean _contains(long rowKey, long columnKey) {
+        int rowIdx = rowKeys.indexOf(rowKey, rowSize);
+        if(rowIdx < 0)
+            return false;
+
+        int columnIdx = columnKeys.indexOf(columnKey, columnSize);
+        return columnIdx >= 0 && _has(rowIdx, columnIdx);
+    }
+
+    /** 获取指定格的值,没有值时返回absent */
+    protected long _get(long rowKey, long columnKey, long absent) {
+        int rowIdx = rowKeys.indexOf(rowKey, rowSize);
+        if(rowIdx < 0)
+            return absent;
+
+        int columnIdx = columnKeys.indexOf(columnKey, columnSize);
+        if(columnIdx < 0 || !_has(rowIdx, columnIdx))
+            return absent;
+
+        return rowStore.get(rows[rowIdx], columnIdx);
+    }
+
+    /** 放入值,返回之前的值,之前没有值时返回absent */
+    protected long _put(long rowKey, long columnKey, long value, long absent) {
+        //不存在时,查找结果即为插入位置
+        int rowIdx = rowKeys.indexOf(rowKey, rowSize);
+        if(rowIdx < 0) {
+            rowIdx = -rowIdx - 1;
+            _incRow(rowIdx, rowKey);
+        }
+
+        int columnIdx = columnKeys.indexOf(columnKey, columnSize);
+        if(columnIdx < 0) {
+            columnIdx = -columnIdx - 1;
+            _incColumn(columnIdx, columnKey);
+        }
+
+        Object row = _row(rowIdx, columnIdx);
+        long old = rowStore.get(row, columnIdx);
+        rowStore.set(row, columnIdx, value);
+
+        return _setExist(rowIdx, columnIdx) ? absent : old;
+    }
+
+    /** 移除指定格,返回之前的值,之前没有值时返回absent */
+    protected long _remove(long rowKey, long columnKey, long absent) {
+        int rowIdx = rowKeys.indexOf(rowKey, rowSize);
+        if(rowIdx < 0)
+            return absent;
+
+        int columnIdx = columnKeys.indexOf(columnKey, columnSize);
+        if(columnIdx < 0 || !_has(rowIdx, columnIdx))
+            return absent;
+
+        long old = rowStore.get(rows[rowIdx], columnIdx);
+        _remove(rowIdx, columnIdx);
+        return old;
+    }
+
+    //---------------------------- 基本类型存取 end ------------------------------//
+
+    //---------------------------- 内部各种方法 start ------------------------------//
+
+    /** 查找行下标,类型不匹配或不存在时返回负数 */
+    private int _rowIdx(Object rowKey) {
+        return rowKeys.accepts(rowKey) ? rowKeys.indexOf(((Number) rowKey).longValue(), rowSize) : -1;
+    }
+
+    /** 查找列下标,类型不匹配或不存在时返回负数 */
+    private int _columnIdx(Object columnKey) {
+        return columnKeys.accepts(columnKey) ? columnKeys.indexOf(((Number) columnKey).longValue(), columnSize) : -1;
+    }
+
+    /** 根据下标获取包装之后的行key */
+    @SuppressWarnings("unchecked")
+    private R _rowKey(int rowIdx) {
+        return (R) rowKeys.box(rowIdx);
+    }
+
+    /** 根据下标获取包装之后的列key */
+    @SuppressWarnings("unchecked")
+    private C _columnKey(int columnIdx) {
+        return (C) columnKeys.box(columnIdx);
+    }
+
+    /** 根据下标获取包装之后的值,由调用方保证此格有值 */
+    private V _value(int rowIdx, int columnIdx) {
+        return _box(rowStore.get(rows[rowIdx], columnIdx));
+    }
+
+    /** 在指定位置增长行,之后的行整体后移 */
+    private void _incRow(int putIndex, long rowKey) {
+        //容量不够时按比例增长,避免每次新增行都重新分配
+        rows = ArrayUtils.insert(rows, rowSize, putIndex);
+        rowBits = ArrayUtils.insert(rowBits, rowSize, putIndex);
+        rowKeys.insert(putIndex, rowSize, rowKey);
+        rowSize++;
+
+        rows[putIndex] = rowStore.newRow(columnCapacity);
+        rowBits[putIndex] = BitSetUtils.EMPTY;
+    }
+
+    /** 减少行,之后的行整体前移 */
+    private void _decRow(int rowIdx) {
+        rowStore.free(rows[rowIdx]);
+
+        ArrayUtils.delete(rows, rowSize, rowIdx);
+        ArrayUtils.delete(rowBits, rowSize, rowIdx);
+        rowKeys.delete(rowIdx, rowSize);
+        rowSize--;
+    }
+
+    /** 在指定位置增长列,之后的列在每行内整体后移 */
+    private void _incColumn(int putIndex, long columnKey) {
+        int needMove = columnSize - putIndex;
+        if(needMove > 0) {
+            for(int i = 0; i < rowSize; i++) {
+                Object vv = rows[i];
+                int length = rowStore.length(vv);
+                //当前行还没有存放到此位置,不需要迁移
+                if(length <= putIndex)
+                    continue;
+
+                //行内还有剩余容量时直接原地后移,否则按比例增长
+                int currentMove = Math.min(length, columnSize) - putIndex;
+                if(length <= columnSize)
+                    rows[i] = vv = rowStore.resize(vv, ArrayUtils.grow(length, columnSize + 1));
+                rowStore.move(vv, putIndex, putIndex + 1, currentMove);
+
+                rowBits[i] = BitSetUtils.insert(rowBits[i], putIndex);
+            }
+        }
+
+        columnKeys.insert(putIndex, columnSize, columnKey);
+        columnSize++;
+    }
+
+    /** 减少列,之后的列在每行内整体前移 */
+    private void _decColumn(int columnIdx) {
+        for(int i = 0; i < rowSize; i++) {
+            Object vv = rows[i];
+            int length = rowStore.length(vv);
+            if(length <= columnIdx)
+                continue;
+
+            int used = Math.min(length, columnSize);
+            rowStore.move(vv, columnIdx + 1, columnIdx, used - columnIdx - 1);
+            BitSetUtils.delete(rowBits[i], columnIdx);
+        }
+
+        columnKeys.delete(columnIdx, columnSize);
+        columnSize--;
+    }
+
+    /** 获取指定行的存储,长度不足以放入指定列时按比例增长 */
+    private Object _row(int rowIdx, int columnIdx) {
+        Object vv = rows[rowIdx];
+        int length = rowStore.length(vv);
+        if(length <= columnIdx)
+            rows[rowIdx] = vv = rowStore.resize(vv, ArrayUtils.grow(length, columnIdx + 1));
+
+        return vv;
+    }
+
+    /** 指定格是否有值 */
+    private boolean _has(int rowIdx, int columnIdx) {
+        return BitSetUtils.get(rowBits[rowIdx], columnIdx);
+    }
+
+    /** 设置存在位,返回此格之前是否没有值 */
+    private boolean _setExist(int rowIdx, int columnIdx) {
+        if(_has(rowIdx, columnIdx))
+            return false;
+
+        rowBits[rowIdx] = BitSetUtils.set(rowBits[rowIdx], columnIdx);
+        cellSize++;
+        return true;
+    }
+
+    /** 指定列是否已经空了 */
+    private boolean _isColumnEmpty(int columnIdx) {
+        for(int i = 0; i < rowSize; i++) {
+            if(BitSetUtils.get(rowBits[i], columnIdx))
+                return false;
+        }
+
+        return true;
+    }
+
+    /** 移除有值的单元格,并在行,列为空时减行,减列 */
+    protected void _remove(int rowIdx, int columnIdx) {
+        BitSetUtils.clear(rowBits[rowIdx], columnIdx);
+        cellSize--;
+
+        if(BitSetUtils.isEmpty(rowBits[rowIdx]))
+            _decRow(rowIdx);
+        if(_isColumnEmpty(columnIdx))
+            _decColumn(columnIdx);
+    }
+
+    /** 移除整行,从后往前减列,以避免减列影响之前的列下标 */
+    private void _removeRow(int rowIdx) {
+        long[] words = rowBits[rowIdx];
+        cellSize -= BitSetUtils.cardinality(words);
+        _decRow(rowIdx);
+
+        for(int k = columnSize - 1; k >= 0; k--) {
+            if(BitSetUtils.get(words, k) && _isColumnEmpty(k))
+                _decColumn(k);
+        }
+    }
+
+    /** 移除整列,从后往前减行,以避免减行影响之前的行下标 */
+    private void _removeColumn(int columnIdx) {
+        for(int i = rowSize - 1; i >= 0; i--) {
+            if(!_has(i, columnIdx))
+                continue;
+
+            BitSetUtils.clear(rowBits[i], columnIdx);
+            cellSize--;
+            if(BitSetUtils.isEmpty(rowBits[i]))
+                _decRow(i);
+        }
+
+        _decColumn(columnIdx);
+    }
+
+    //---------------------------- 内部各种方法 end ------------------------------//
+
+    /**
+     * 移除整行
+     *
+     * @return 被移除的行数据,行不存在时返回null
+     */
+    public Map<C, V> removeRow(Object rowKey) {
+        int rowIdx = _rowIdx(rowKey);
+        if(rowIdx < 0)
+            return null;
+
+        Map<C, V> removed = new LinkedHashMap<>(row(_rowKey(rowIdx)));
+        _removeRow(rowIdx);
+        return removed;
+    }
+
+    /**
+     * 移除整列
+     *
+     * @return 被移除的列数据,列不存在时返回null
+     */
+    public Map<R, V> removeColumn(Object columnKey) {
+        int columnIdx = _columnIdx(columnKey);
+        if(columnIdx < 0)
+            return null;
+
+        Map<R, V> removed = new LinkedHashMap<>(column(_columnKey(columnIdx)));
+        _removeColumn(columnIdx);
+        return removed;
+    }
+
+    @Override
+    public boolean contains(@Nullable Object rowKey, @Nullable Object columnKey) {
+        int rowIdx = _rowIdx(rowKey);
+        if(rowIdx < 0)
+            return false;
+
+        int columnIdx = _columnIdx(columnKey);
+        return columnIdx >= 0 && _has(rowIdx, columnIdx);
+    }
+
+    @Override
+    public boolean containsRow(@Nullable Object rowKey) {
+        return _rowIdx(rowKey) >= 0;
+    }
+
+    @Override
+    public boolean containsColumn(@Nullable Object columnKey) {
+        return _columnIdx(columnKey) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(@Nullable Object value) {
+        return value != null && values().contains(value);
+    }
+
+    @Override
+    public V get(@Nullable Object rowKey, @Nullable Object columnKey) {
+        int rowIdx = _rowIdx(rowKey);
+        if(rowIdx < 0)
+            return null;
+
+        int columnIdx = _columnIdx(columnKey);
+        if(columnIdx < 0 || !_has(rowIdx, columnIdx))
+            return null;
+
+        return _value(rowIdx, columnIdx);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return cellSize == 0;
+    }
+
+    @Override
+    public int size() {
+        return cellSize;
+    }
+
+    @Override
+    public void clear() {
+        for(int i = 0; i < rowSize; i++)
+            rowStore.free(rows[i]);
+
+        //保留已分配的行容量,只清除行引用
+        Arrays.fill(rows, 0, rowSize, null);
+        Arrays.fill(rowBits, 0, rowSize, null);
+        rowSize = 0;
+        columnSize = 0;
+        cellSize = 0;
+    }
+
+    @Override
+    public void putAll(@Nonnull Table<? extends R, ? extends C, ? extends V> table) {
+        for(Cell<? extends R, ? extends C, ? extends V> cell : table.cellSet())
+            put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+    }
+
+    @Override
+    public V put(@Nonnull R rowKey, @Nonnull C columnKey, @Nonnull V value) {
+        Preconditions.checkNotNull(value);
+        V old = get(rowKey, columnKey);
+        _put(((Number) rowKey).longValue(), ((Number) columnKey).longValue(), _unbox(value), 0L);
+
+        return old;
+    }
+
+    @Override
+    public V remove(@Nullable Object rowKey, @Nullable Object columnKey) {
+        int rowIdx = _rowIdx(rowKey);
+        if(rowIdx < 0)
+            return null;
+
+        int columnIdx = _columnIdx(columnKey);
+        if(columnIdx < 0 || !_has(rowIdx, columnIdx))
+            return null;
+
+        V old = _value(rowIdx, columnIdx);
+        _remove(rowIdx, columnIdx);
+        return old;
+    }
+
+    @Override
+    public Map<C, V> row(@Nonnull R rowKey) {
+        return new Row(Preconditions.checkNotNull(rowKey));
+    }
+
+    @Override
+    public Map<R, V> column(@Nonnull C columnKey) {
+        return new Column(Preconditions.checkNotNull(columnKey));
+    }
+
+    @Override
+    public Set<Cell<R, C, V>> cellSet() {
+        if(cellSet == null)
+            cellSet = new CellSet();
+
+        return cellSet;
+    }
+
+    @Override
+    public Set<R> rowKeySet() {
+        return rowMap().keySet();
+    }
+
+    @Override
+    public Set<C> columnKeySet() {
+        return columnMap().keySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        if(valueCollection == null)
+            valueCollection = new ValueCollection();
+
+        return valueCollection;
+    }
+
+    @Override
+    public Map<R, Map<C, V>> rowMap() {
+        if(rowMap == null)
+            rowMap = new RowMap();
+
+        return rowMap;
+    }
+
+    @Override
+    public Map<C, Map<R, V>> columnMap() {
+        if(columnMap == null)
+            columnMap = new ColumnMap();
+
+        return columnMap;
+    }
+
+    /** 与Table约定一致,单元格集合相同即相等 */
+    @Override
+    public boolean equals(Object o) {
+        if(this == o)
+            return true;
+        if(!(o instanceof Table))
+            return false;
+
+        return cellSet().equals(((Table<?, ?, ?>) o).cellSet());
+    }
+
+    @Override
+    public int hashCode() {
+        return cellSet().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return rowMap().toString();
+    }
+
+    /**
+     * 按下标遍历单元格的迭代器,可限定在某一行或某一列内
+     * 移除时可能会同时减行或减列,此时根据减少的情况修正下一次开始查找的位置
+     */
+    private abstract class CellIterator<T> implements Iterator<T> {
+        /** 限定的行,列key,为null时表示不限定 */
+        private final Object rowKey;
+        private final Object columnKey;
+
+        /** 下一次开始查找的行,列下标 */
+        private int rowIdx;
+        private int columnIdx;
+
+        /** 上一次返回的单元格下标,没有返回或已移除时为-1 */
+        private int lastRowIdx = -1;
+        private int lastColumnIdx = -1;
+
+        CellIterator(Object rowKey, Object columnKey) {
+            this.rowKey = rowKey;
+            this.columnKey = columnKey;
+        }
+
+        /** 根据单元格下标生成返回的对象 */
+        abstract T _make(int rowIdx, int columnIdx);
+
+        /** 从当前位置(包括)开始定位到下一个有值的单元格 */
+        private boolean _toNext() {
+            int fixedColumnIdx = -1;
+            if(columnKey != null && (fixedColumnIdx = _columnIdx(columnKey)) < 0)
+                return false;
+            if(rowKey != null && (rowIdx = _rowIdx(rowKey)) < 0)
+                return false;
+
+            while(rowIdx < rowSize) {
+                int k;
+                if(fixedColumnIdx >= 0)
+                    k = columnIdx <= fixedColumnIdx && _has(rowIdx, fixedColumnIdx) ? fixedColumnIdx : -1;
+                else
+                    k = BitSetUtils.nextSetBit(rowBits[rowIdx], columnIdx);
+                if(k >= 0) {
+                    columnIdx = k;
+                    return true;
+                }
+
+                //限定行时只查找当前行
+                if(rowKey != null)
+                    return false;
+                rowIdx++;
+                columnIdx = 0;
+            }
+
+            return false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _toNext();
+        }
+
+        @Override
+        public T next() {
+            if(!_toNext())
+                throw new NoSuchElementException();
+
+            lastRowIdx = rowIdx;
+            lastColumnIdx = columnIdx;
+            T result = _make(rowIdx, columnIdx);
+            columnIdx++;
+
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            if(lastRowIdx == -1)
+                throw new IllegalStateException("必须先调用next");
+
+            int oldRowSize = rowSize;
+            int oldColumnSize = columnSize;
+            _remove(lastRowIdx, lastColumnIdx);
+
+            //减行时后面的行前移到当前位置,从头开始查找;只减列时后面的列前移到当前位置
+            rowIdx = lastRowIdx;
+            if(rowSize < oldRowSize)
+                columnIdx = 0;
+            else if(columnSize < oldColumnSize)
+                columnIdx = lastColumnIdx;
+            lastRowIdx = -1;
+        }
+    }
+
+    /** 视图中的条目,修改值时直接写回表中 */
+    private class WriteThroughEntry<K> extends AbstractMap.SimpleEntry<K, V> {
+        private final R rowKey;
+        private final C columnKey;
+
+        WriteThroughEntry(K key, V value, R rowKey, C columnKey) {
+            super(key, value);
+            this.rowKey = rowKey;
+            this.columnKey = columnKey;
+        }
+
+        @Override
+        public V setValue(V value) {
+            super.setValue(value);
+            return put(rowKey, columnKey, value);
+        }
+    }
+
+    private class Row extends AbstractMap<C, V> {
+        private final R rowKey;
+
+        Row(R rowKey) {
+            this.rowKey = rowKey;
+        }
+
+        @Override
+        public V get(Object key) {
+            return AbstractPrimitiveTable.this.get(rowKey, key);
+        }
+
+        @Override
+        public V put(C key, V value) {
+            return AbstractPrimitiveTable.this.put(rowKey, key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return AbstractPrimitiveTable.this.remove(rowKey, key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return AbstractPrimitiveTable.this.contains(rowKey, key);
+        }
+
+        @Override
+        public void clear() {
+            removeRow(rowKey);
+        }
+
+        @Override
+        @Nonnull
+        public Set<Entry<C, V>> entrySet() {
+            return new AbstractSet<Entry<C, V>>() {
+                @Override
+                @Nonnull
+                public Iterator<Entry<C, V>> iterator() {
+                    return new CellIterator<Entry<C, V>>(rowKey, null) {
+                        @Override
+                        Entry<C, V> _make(int rowIdx, int columnIdx) {
+                            C columnKey = _columnKey(columnIdx);
+                            return new WriteThroughEntry<>(columnKey, _value(rowIdx, columnIdx), rowKey, columnKey);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int rowIdx = _rowIdx(rowKey);
+                    return rowIdx < 0 ? 0 : BitSetUtils.cardinality(rowBits[rowIdx]);
+                }
+            };
+        }
+    }
+
+    private class Column extends AbstractMap<R, V> {
+        private final C columnKey;
+
+        Column(C columnKey) {
+            this.columnKey = columnKey;
+        }
+
+        @Override
+        public V get(Object key) {
+            return AbstractPrimitiveTable.this.get(key, columnKey);
+        }
+
+        @Override
+        public V put(R key, V value) {
+            return AbstractPrimitiveTable.this.put(key, columnKey, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return AbstractPrimitiveTable.this.remove(key, columnKey);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return AbstractPrimitiveTable.this.contains(key, columnKey);
+        }
+
+        @Override
+        public void clear() {
+            removeColumn(columnKey);
+        }
+
+        @Override
+        @Nonnull
+        public Set<Entry<R, V>> entrySet() {
+            return new AbstractSet<Entry<R, V>>() {
+                @Override
+                @Nonnull
+                public Iterator<Entry<R, V>> iterator() {
+                    return new CellIterator<Entry<R, V>>(null, columnKey) {
+                        @Override
+                        Entry<R, V> _make(int rowIdx, int columnIdx) {
+                            R rowKey = _rowKey(rowIdx);
+                            return new WriteThroughEntry<>(rowKey, _value(rowIdx, columnIdx), rowKey, columnKey);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int columnIdx = _columnIdx(columnKey);
+                    if(columnIdx < 0)
+                        return 0;
+
+                    int count = 0;
+                    for(int i = 0; i < rowSize; i++) {
+                        if(_has(i, columnIdx))
+                            count++;
+                    }
+
+                    return count;
+                }
+            };
+        }
+    }
+
+    private class RowMap extends AbstractMap<R, Map<C, V>> {
+        @Override
+        public boolean containsKey(Object key) {
+            return containsRow(key);
+        }
+
+        @Override
+        public Map<C, V> get(Object key) {
+            int rowIdx = _rowIdx(key);
+            return rowIdx < 0 ? null : row(_rowKey(rowIdx));
+        }
+
+        @Override
+        public Map<C, V> remove(Object key) {
+            return removeRow(key);
+        }
+
+        @Override
+        public int size() {
+            return rowSize;
+        }
+
+        @Override
+        @Nonnull
+        public Set<Entry<R, Map<C, V>>> entrySet() {
+            return new AbstractSet<Entry<R, Map<C, V>>>() {
+                @Override
+                @Nonnull
+                public Iterator<Entry<R, Map<C, V>>> iterator() {
+                    return new Iterator<Entry<R, Map<C, V>>>() {
+                        /** 下一个行下标 */
+                        private int index = 0;
+                        private R last;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < rowSize;
+                        }
+
+                        @Override
+                        public Entry<R, Map<C, V>> next() {
+                            if(index >= rowSize)
+                                throw new NoSuchElementException();
+
+                            last = _rowKey(index++);
+                            return Maps.immutableEntry(last, row(last));
+                        }
+
+                        @Override
+                        public void remove() {
+                            if(last == null)
+                                throw new IllegalStateException("必须先调用next");
+
+                            removeRow(last);
+                            index--;//当前行已移除,后面的行前移一位
+                            last = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return rowSize;
+                }
+            };
+        }
+    }
+
+    private class ColumnMap extends AbstractMap<C, Map<R, V>> {
+        @Override
+        public boolean containsKey(Object key) {
+            return containsColumn(key);
+        }
+
+        @Override
+        public Map<R, V> get(Object key) {
+            int columnIdx = _columnIdx(key);
+            return columnIdx < 0 ? null : column(_columnKey(columnIdx));
+        }
+
+        @Override
+        public Map<R, V> remove(Object key) {
+            return removeColumn(key);
+        }
+
+        @Override
+        public int size() {
+            return columnSize;
+        }
+
+        @Override
+        @Nonnull
+        public Set<Entry<C, Map<R, V>>> entrySet() {
+            return new AbstractSet<Entry<C, Map<R, V>>>() {
+                @Override
+                @Nonnull
+                public Iterator<Entry<C, Map<R, V>>> iterator() {
+                    return new Iterator<Entry<C, Map<R, V>>>() {
+                        /** 下一个列下标 */
+                        private int index = 0;
+                        private C last;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < columnSize;
+                        }
+
+                        @Override
+                        public Entry<C, Map<R, V>> next() {
+                            if(index >= columnSize)
+                                throw new NoSuchElementException();
+
+                            last = _columnKey(index++);
+                            return Maps.immutableEntry(last, column(last));
+                        }
+
+                        @Override
+                        public void remove() {
+                            if(last == null)
+                                throw new IllegalStateException("必须先调用next");
+
+                            removeColumn(last);
+                            index--;//当前列已移除,后面的列前移一位
+                            last = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return columnSize;
+                }
+            };
+        }
+    }
+
+    private class CellSet extends AbstractSet<Cell<R, C, V>> {
+        @Override
+        @Nonnull
+        public Iterator<Cell<R, C, V>> iterator() {
+            return new CellIterator<Cell<R, C, V>>(null, null) {
+                @Override
+                Cell<R, C, V> _make(int rowIdx, int columnIdx) {
+                    return Tables.immutableCell(_rowKey(rowIdx), _columnKey(columnIdx), _value(rowIdx, columnIdx));
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if(!(o instanceof Cell))
+                return false;
+
+            Cell<?, ?, ?> cell = (Cell<?, ?, ?>) o;
+            V value = get(cell.getRowKey(), cell.getColumnKey());
+            return value != null && value.equals(cell.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if(!contains(o))
+                return false;
+
+            Cell<?, ?, ?> cell = (Cell<?, ?, ?>) o;
+            AbstractPrimitiveTable.this.remove(cell.getRowKey(), cell.getColumnKey());
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return cellSize;
+        }
+    }
+
+    private class ValueCollection extends AbstractCollection<V> {
+        @Override
+        @Nonnull
+        public Iterator<V> iterator() {
+            return new CellIterator<V>(null, null) {
+                @Override
+                V _make(int rowIdx, int columnIdx) {
+                    return _value(rowIdx, columnIdx);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return cellSize;
+        }
+
+        @Override
+        public void clear() {
+            AbstractPrimitiveTable.this.clear();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.iflym.table.primitive;
+
+/**
+ * 行,列为int,值为double的表,行列均按自然顺序排列
+ * 行列key存放在有序的int数组中,值直接存放在double数组中,适用于数值矩阵
+ * 通过getDouble,putDouble等方法访问时不会产生包装对象,同时也可以作为Table<Integer, Integer, Double>使用
+ */
+public class IntKeyDoubleTable extends AbstractPrimitiveTable<Integer, Integer, Double> {
+
+    public IntKeyDoubleTable() {
+        this(0, 0);
+    }
+
+    /** 预分配容量的构建函数,在行,列数量可预知时使用,以避免增长时的重新分配 */
+    public IntKeyDoubleTable(int rowCapacity, int columnCapacity) {
+        this(RowStore.DOUBLE_ARRAY, rowCapacity, columnCapacity);
+    }
+
+    /** 指定行的存储方式,堆外存储的子类使用 */
+    IntKeyDoubleTable(RowStore rowStore, int rowCapacity, int columnCapacity) {
+        super(SortedKeys.ofInt(rowCapacity), SortedKeys.ofInt(columnCapacity), rowStore, rowCapacity, columnCapacity);
+    }
+
+    @Override
+    protected Double _box(long value) {
+        return Double.longBitsToDouble(value);
+    }
+
+    @Override
+    protected long _unbox(Double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    /** 指定格是否有值 */
+    public boolean contains(int rowKey, int columnKey) {
+        return _contains(rowKey, columnKey);
+    }
+
+    /** 获取指定格的值,没有值时返回默认值 */
+    public double getDouble(int rowKey, int columnKey, double defaultValue) {
+        return Double.longBitsToDouble(_get(rowKey, columnKey, Double.doubleToRawLongBits(defaultValue)));
+    }
+
+    /** 获取指定格的值,没有值时返回0 */
+    public double getDouble(int rowKey, int columnKey) {
+        return getDouble(rowKey, columnKey, 0D);
+    }
+
+    /** 放入值,返回之前的值,之前没有值时返回0 */
+    public double putDouble(int rowKey, int columnKey, double value) {
+        return Double.longBitsToDouble(_put(rowKey, columnKey, Double.doubleToRawLongBits(value), 0L));
+    }
+
+    /** 移除指定格,返回之前的值,之前没有值时返回0 */
+    public double removeDouble(int rowKey, int columnKey) {
+        return Double.longBitsToDouble(_remove(rowKey, columnKey, 0L));
+    }
+}
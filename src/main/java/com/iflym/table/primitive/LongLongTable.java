@@ -0,0 +1,58 @@
+package com.iflym.table.primitive;
+
+/**
+ * 行,列以及值均为long的表,行列均按自然顺序排列
+ * 行列key存放在有序的long数组中,值直接存放在long数组中,适用于计数,id关联等场景
+ * 通过getLong,putLong等方法访问时不会产生包装对象,同时也可以作为Table<Long, Long, Long>使用
+ */
+public class LongLongTable extends AbstractPrimitiveTable<Long, Long, Long> {
+
+    public LongLongTable() {
+        this(0, 0);
+    }
+
+    /** 预分配容量的构建函数,在行,列数量可预知时使用,以避免增长时的重新分配 */
+    public LongLongTable(int rowCapacity, int columnCapacity) {
+        this(RowStore.LONG_ARRAY, rowCapacity, columnCapacity);
+    }
+
+    /** 指定行的存储方式,堆外存储的子类使用 */
+    LongLongTable(RowStore rowStore, int rowCapacity, int columnCapacity) {
+        super(SortedKeys.ofLong(rowCapacity), SortedKeys.ofLong(columnCapacity), rowStore, rowCapacity, columnCapacity);
+    }
+
+    @Override
+    protected Long _box(long value) {
+        return value;
+    }
+
+    @Override
+    protected long _unbox(Long value) {
+        return value;
+    }
+
+    /** 指定格是否有值 */
+    public boolean contains(long rowKey, long columnKey) {
+        return _contains(rowKey, columnKey);
+    }
+
+    /** 获取指定格的值,没有值时返回默认值 */
+    public long getLong(long rowKey, long columnKey, long defaultValue) {
+        return _get(rowKey, columnKey, defaultValue);
+    }
+
+    /** 获取指定格的值,没有值时返回0 */
+    public long getLong(long rowKey, long columnKey) {
+        return _get(rowKey, columnKey, 0L);
+    }
+
+    /** 放入值,返回之前的值,之前没有值时返回0 */
+    public long putLong(long rowKey, long columnKey, long value) {
+        return _put(rowKey, columnKey, value, 0L);
+    }
+
+    /** 移除指定格,返回之前的值,之前没有值时返回0 */
+    public long removeLong(long rowKey, long columnKey) {
+        return _remove(rowKey, columnKey, 0L);
+    }
+}
@@ -0,0 +1,26 @@
+package com.iflym.table.primitive;
+
+import java.io.Closeable;
+
+/**
+ * 值存放在堆外内存中的IntKeyDoubleTable,用于非常大的数值矩阵,避免大量的值数据引起长时间的GC
+ * 每一行对应一块堆外内存,行列key以及存在位仍然在堆内
+ * 使用完之后应调用close释放堆外内存,没有调用时只能在表不可达之后由之后的分配统一回收
+ */
+public class OffHeapIntKeyDoubleTable extends IntKeyDoubleTable implements Closeable {
+
+    public OffHeapIntKeyDoubleTable() {
+        this(0, 0);
+    }
+
+    /** 预分配容量的构建函数,列容量会直接用于每一行的堆外内存分配 */
+    public OffHeapIntKeyDoubleTable(int rowCapacity, int columnCapacity) {
+        super(RowStore.OFF_HEAP, rowCapacity, columnCapacity);
+    }
+
+    /** 释放所有的堆外内存,之后表为空,仍然可以继续使用 */
+    @Override
+    public void close() {
+        clear();
+    }
+}
@@ -0,0 +1,135 @@
+package com.iflym.table.primitive;
+
+import com.iflym.table.util.ArrayUtils;
+import com.iflym.table.util.OffHeapMemory;
+
+/**
+ * 基本类型表每一行值的存储方式,值统一按64位读写,double按其位表示(Double.doubleToRawLongBits)存取
+ * 堆内的行为double[]或long[],堆外的行为一块OffHeapMemory;不同值类型以及堆内堆外的表共用同一份表逻辑
+ * 实现均为无状态的,可以在各个表之间共用
+ */
+abstract class RowStore {
+
+    /** 行为double[] */
+    static final RowStore DOUBLE_ARRAY = new RowStore(new double[0][]) {
+        @Override
+        Object newRow(int length) {
+            return new double[length];
+        }
+
+        @Override
+        int length(Object row) {
+            return ((double[]) row).length;
+        }
+
+        @Override
+        long get(Object row, int idx) {
+            return Double.doubleToRawLongBits(((double[]) row)[idx]);
+        }
+
+        @Override
+        void set(Object row, int idx, long value) {
+            ((double[]) row)[idx] = Double.longBitsToDouble(value);
+        }
+    };
+
+    /** 行为long[] */
+    static final RowStore LONG_ARRAY = new RowStore(new long[0][]) {
+        @Override
+        Object newRow(int length) {
+            return new long[length];
+        }
+
+        @Override
+        int length(Object row) {
+            return ((long[]) row).length;
+        }
+
+        @Override
+        long get(Object row, int idx) {
+            return ((long[]) row)[idx];
+        }
+
+        @Override
+        void set(Object row, int idx, long value) {
+            ((long[]) row)[idx] = value;
+        }
+    };
+
+    /** 每一行为一块堆外内存,每个值占8个字节,行不再使用时立即释放 */
+    static final RowStore OFF_HEAP = new RowStore(new OffHeapMemory[0]) {
+        @Override
+        Object newRow(int length) {
+            return new OffHeapMemory((long) length << 3);
+        }
+
+        @Override
+        int length(Object row) {
+            return (int) (((OffHeapMemory) row).size() >>> 3);
+        }
+
+        @Override
+        Object resize(Object row, int length) {
+            ((OffHeapMemory) row).resize((long) length << 3);
+            return row;
+        }
+
+        @Override
+        void move(Object row, int from, int to, int count) {
+            ((OffHeapMemory) row).copy((long) from << 3, (long) to << 3, (long) count << 3);
+        }
+
+        @Override
+        void free(Object row) {
+            ((OffHeapMemory) row).close();
+        }
+
+        @Override
+        long get(Object row, int idx) {
+            return ((OffHeapMemory) row).getLong((long) idx << 3);
+        }
+
+        @Override
+        void set(Object row, int idx, long value) {
+            ((OffHeapMemory) row).putLong((long) idx << 3, value);
+        }
+    };
+
+    /** 空的行数组,用于确定表中行数组的类型 */
+    private final Object[] emptyRows;
+
+    private RowStore(Object[] emptyRows) {
+        this.emptyRows = emptyRows;
+    }
+
+    /** 指定容量的行数组 */
+    Object[] newRows(int capacity) {
+        return ArrayUtils.copyOf(emptyRows, capacity);
+    }
+
+    /** 创建指定长度的新行 */
+    abstract Object newRow(int length);
+
+    /** 行的长度,即可以存放的列数 */
+    abstract int length(Object row);
+
+    /** 将行调整为指定的长度,保留原来的数据,返回调整之后的行 */
+    Object resize(Object row, int length) {
+        return ArrayUtils.copyOf(row, length);
+    }
+
+    /** 在行内移动数据,源区间和目标区间可以重叠 */
+    void move(Object row, int from, int to, int count) {
+        System.arraycopy(row, from, row, to, count);
+    }
+
+    /** 行不再使用时的释放处理,堆内存储不需要处理 */
+    void free(Object row) {
+    }
+
+    /** 读取行内指定列的值 */
+    abstract long get(Object row, int idx);
+
+    /** 写入行内指定列的值 */
+    abstract void set(Object row, int idx, long value);
+}
@@ -0,0 +1,107 @@
+package com.iflym.table.primitive;
+
+import com.iflym.table.util.ArrayUtils;
+
+import java.util.Arrays;
+
+/**
+ * 基本类型表的行或列key,按自然顺序存放在int[]或long[]中,只有前size个有效,size由表维护
+ * 对外统一按long读写,不同key类型的表共用同一份增减以及查找逻辑
+ */
+abstract class SortedKeys {
+    /** key数组,为int[]或long[],带有预留的容量 */
+    Object keys;
+
+    private SortedKeys(Object keys) {
+        this.keys = keys;
+    }
+
+    /** 存放在int[]中的key,包装类型为Integer */
+    static SortedKeys ofInt(int capacity) {
+        return new SortedKeys(new int[capacity]) {
+            @Override
+            int indexOf(long key, int size) {
+                //超出int范围的key不会存在,插入位置在两端
+                if(key < Integer.MIN_VALUE)
+                    return -1;
+                if(key > Integer.MAX_VALUE)
+                    return -size - 1;
+                return Arrays.binarySearch((int[]) keys, 0, size, (int) key);
+            }
+
+            @Override
+            long get(int idx) {
+                return ((int[]) keys)[idx];
+            }
+
+            @Override
+            void set(int idx, long key) {
+                ((int[]) keys)[idx] = (int) key;
+            }
+
+            @Override
+            boolean accepts(Object key) {
+                return key instanceof Integer;
+            }
+
+            @Override
+            Object box(int idx) {
+                return ((int[]) keys)[idx];
+            }
+        };
+    }
+
+    /** 存放在long[]中的key,包装类型为Long */
+    static SortedKeys ofLong(int capacity) {
+        return new SortedKeys(new long[capacity]) {
+            @Override
+            int indexOf(long key, int size) {
+                return Arrays.binarySearch((long[]) keys, 0, size, key);
+            }
+
+            @Override
+            long get(int idx) {
+                return ((long[]) keys)[idx];
+            }
+
+            @Override
+            void set(int idx, long key) {
+                ((long[]) keys)[idx] = key;
+            }
+
+            @Override
+            boolean accepts(Object key) {
+                return key instanceof Long;
+            }
+
+            @Override
+            Object box(int idx) {
+                return ((long[]) keys)[idx];
+            }
+        };
+    }
+
+    /** 查找key的下标,不存在时返回 -(插入位置) - 1 */
+    abstract int indexOf(long key, int size);
+
+    abstract long get(int idx);
+
+    abstract void set(int idx, long key);
+
+    /** 是否为此类key的包装类型,类型不匹配的key视为不存在 */
+    abstract boolean accepts(Object key);
+
+    /** 指定下标的包装之后的key */
+    abstract Object box(int idx);
+
+    /** 在指定位置插入key,之后的key整体后移 */
+    void insert(int idx, int size, long key) {
+        keys = ArrayUtils.insert(keys, size, idx);
+        set(idx, key);
+    }
+
+    /** 移除指定位置的key,之后的key整体前移 */
+    void delete(int idx, int size) {
+        ArrayUtils.delete(keys, size, idx);
+    }
+}
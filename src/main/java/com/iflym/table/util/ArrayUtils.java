@@ -0,0 +1,41 @@
+package com.iflym.table.util;
+
+import java.lang.reflect.Array;
+
+/**
+ * 按下标维护带预留容量的数组的工具,ArrayTreeTable以及基本类型表的行,列增减共用
+ * 数组只有前size个元素有效,后面为预留的容量;对象数组以及基本类型数组均可使用
+ */
+public class ArrayUtils {
+
+    /** 计算新的容量,按1.5倍增长,并至少满足最小容量 */
+    public static int grow(int capacity, int minCapacity) {
+        int newCapacity = capacity + (capacity >> 1) + 1;
+        return newCapacity < minCapacity ? minCapacity : newCapacity;
+    }
+
+    /** 复制数组至指定长度,保持原数组的类型 */
+    @SuppressWarnings("unchecked")
+    public static <A> A copyOf(A array, int length) {
+        Object result = Array.newInstance(array.getClass().getComponentType(), length);
+        System.arraycopy(array, 0, result, 0, Math.min(Array.getLength(array), length));
+        return (A) result;
+    }
+
+    /**
+     * 在指定位置空出一个元素,之后的元素整体后移,空出的位置由调用方写入
+     * 容量不够时按比例增长,因此返回(可能是新建的)数组
+     */
+    public static <A> A insert(A array, int size, int idx) {
+        A result = size == Array.getLength(array) ? copyOf(array, grow(size, size + 1)) : array;
+        System.arraycopy(result, idx, result, idx + 1, size - idx);
+        return result;
+    }
+
+    /** 移除指定位置的元素,之后的元素整体前移;对象数组同时清除原来最后一个元素的引用 */
+    public static void delete(Object array, int size, int idx) {
+        System.arraycopy(array, idx + 1, array, idx, size - idx - 1);
+        if(array instanceof Object[])
+            ((Object[]) array)[size - 1] = null;
+    }
+}
@@ -1,17 +1,139 @@
 package com.iflym.table.util;
 
-import java.lang.reflect.Field;
-import java.util.BitSet;
+import java.util.Arrays;
 
 /**
- * 用于快速的访问bitSet内部信息
+ * 直接在long数组上按字处理的位图工具,语义与BitSet一致
+ * 与BitSet相比,可以在指定位置插入或删除一位,后面的位整体移动,以支持行内列的增减
+ * 数组在需要时会增长,因此会修改长度的方法均返回新的数组
  * Created by flym on 6/6/2016.
  */
 public class BitSetUtils {
-    private static final Field wordsField = FieldUtils.getDeclaredField(BitSet.class, "words", true);
+    /** 空位图,可共享使用 */
+    public static final long[] EMPTY = new long[0];
 
-    /** 获取内部的long数组 */
-    public static long[] getLongArray(BitSet bitSet) {
-        return (long[]) FieldUtils.getField(wordsField, bitSet);
+    /** 容纳指定位数所需要的字数 */
+    public static int wordsFor(int nbits) {
+        return (nbits + 63) >>> 6;
     }
-}
\ No newline at end of file
+
+    /** 指定位是否已设置 */
+    public static boolean get(long[] words, int idx) {
+        int u = idx >>> 6;
+        return u < words.length && (words[u] & (1L << idx)) != 0;
+    }
+
+    /** 设置指定位,长度不够时按倍数增长 */
+    public static long[] set(long[] words, int idx) {
+        int u = idx >>> 6;
+        if(u >= words.length)
+            words = Arrays.copyOf(words, Math.max(u + 1, words.length << 1));
+        words[u] |= 1L << idx;
+        return words;
+    }
+
+    /** 清除指定位 */
+    public static void clear(long[] words, int idx) {
+        int u = idx >>> 6;
+        if(u < words.length)
+            words[u] &= ~(1L << idx);
+    }
+
+    /** 从指定位置开始(包括)查找下一个设置位,没有时返回-1 */
+    public static int nextSetBit(long[] words, int fromIdx) {
+        int u = fromIdx >>> 6;
+        if(u >= words.length)
+            return -1;
+
+        long word = words[u] & (-1L << fromIdx);
+        while(true) {
+            if(word != 0)
+                return (u << 6) + Long.numberOfTrailingZeros(word);
+            if(++u == words.length)
+                return -1;
+            word = words[u];
+        }
+    }
+
+    /** 最后一个设置位,没有时返回-1 */
+    public static int lastSetBit(long[] words) {
+        for(int u = words.length - 1; u >= 0; u--) {
+            if(words[u] != 0)
+                return (u << 6) + 63 - Long.numberOfLeadingZeros(words[u]);
+        }
+
+        return -1;
+    }
+
+    /** 设置位的个数 */
+    public static int cardinality(long[] words) {
+        int count = 0;
+        for(long word : words)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    /** 指定范围[fromIdx, toIdx)内设置位的个数 */
+    public static int cardinality(long[] words, int fromIdx, int toIdx) {
+        if(fromIdx >= toIdx)
+            return 0;
+
+        int first = fromIdx >>> 6;
+        int last = (toIdx - 1) >>> 6;
+        int count = 0;
+        for(int u = first, n = Math.min(words.length - 1, last); u <= n; u++) {
+            long word = words[u];
+            if(u == first)
+                word &= -1L << fromIdx;
+            if(u == last)
+                word &= -1L >>> -toIdx;
+            count += Long.bitCount(word);
+        }
+
+        return count;
+    }
+
+    /** 是否没有任何设置位 */
+    public static boolean isEmpty(long[] words) {
+        for(long word : words) {
+            if(word != 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    /** 在指定位置插入一个空位,原来在此位置及之后的位整体后移一位 */
+    public static long[] insert(long[] words, int idx) {
+        int u = idx >>> 6;
+        if(u >= words.length)
+            return words;
+
+        //最高位有值时,后移会溢出,需要先增长
+        if(words[words.length - 1] < 0)
+            words = Arrays.copyOf(words, words.length + 1);
+
+        for(int i = words.length - 1; i > u; i--)
+            words[i] = (words[i] << 1) | (words[i - 1] >>> 63);
+
+        long word = words[u];
+        long lowMask = (1L << idx) - 1;
+        words[u] = (word & lowMask) | ((word & ~lowMask) << 1);
+        return words;
+    }
+
+    /** 删除指定位置的位,之后的位整体前移一位 */
+    public static void delete(long[] words, int idx) {
+        int u = idx >>> 6;
+        if(u >= words.length)
+            return;
+
+        long word = words[u];
+        long lowMask = (1L << idx) - 1;
+        words[u] = (word & lowMask) | ((word >>> 1) & ~lowMask);
+        for(int i = u; i < words.length - 1; i++) {
+            words[i] |= words[i + 1] << 63;
+            words[i + 1] >>>= 1;
+        }
+    }
+}
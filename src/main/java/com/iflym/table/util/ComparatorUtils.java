@@ -0,0 +1,47 @@
+package com.iflym.table.util;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * 比较器实例的全局缓存,按比较器类型只通过反射创建一次,之后各个表以及反序列化时共用同一个实例
+ * 因此比较器需要是无状态的;也可以通过register为某个类型指定实例,如为没有无参构造函数的类型
+ * 自然顺序的比较器已预先注册,表在比较Comparable的key时可以据此跳过比较器直接调用compareTo
+ * 注意: 缓存按类型区分,而lambda,方法引用以及Comparator.comparing等创建的比较器,其类型为运行时生成,
+ * 既不能按类名重新加载,不同实例之间也可能共用同一个类型,因此这类比较器只能在内存中使用,不支持序列化
+ * 也因此表之间只按实例(以及自然顺序)判断顺序是否一致,不按类型判断
+ */
+public class ComparatorUtils {
+    private static final Map<Class, Comparator> comparatorMap = Maps.newConcurrentMap();
+
+    static {
+        register(Comparator.naturalOrder().getClass(), Comparator.naturalOrder());
+        register(Ordering.natural().getClass(), Ordering.natural());
+        //表之间按比较器实例判断顺序是否一致,常用的单例比较器同样注册,按类型创建的表与直接使用单例的表视为同一顺序
+        register(String.CASE_INSENSITIVE_ORDER.getClass(), String.CASE_INSENSITIVE_ORDER);
+    }
+
+    /** 为指定类型注册比较器实例,之后get此类型时返回此实例 */
+    public static void register(Class<?> comparatorClass, Comparator<?> comparator) {
+        comparatorMap.put(comparatorClass, comparator);
+    }
+
+    /** 获取指定类型的比较器实例,没有注册时通过无参构造函数创建并缓存 */
+    @SuppressWarnings("unchecked")
+    public static <T> Comparator<T> get(Class<?> comparatorClass) {
+        return comparatorMap.computeIfAbsent(comparatorClass, k -> (Comparator) ClassUtils.newInstanceUseConstructor(k));
+    }
+
+    /** 比较器类型能否按类名重新创建,lambda等运行时生成的类型不能,使用这类比较器的表不能序列化 */
+    public static boolean isRecreatable(Class<?> comparatorClass) {
+        return !comparatorClass.isSynthetic() && !comparatorClass.getName().contains("$$Lambda$");
+    }
+
+    /** 是否为自然顺序的比较器,即直接使用key的compareTo */
+    public static boolean isNaturalOrder(Comparator<?> comparator) {
+        return comparator == Comparator.naturalOrder() || comparator == Ordering.natural();
+    }
+}
@@ -0,0 +1,184 @@
+package com.iflym.table.util;
+
+import java.io.Closeable;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 使用直接缓冲区(ByteBuffer.allocateDirect)分配的一块堆外内存,其中的数据不受GC管理
+ * 使用完之后应调用close释放;没有释放而对象已不可达时,由之后的分配统一回收
+ * 所有的偏移均以字节为单位,单块大小不能超过Integer.MAX_VALUE
+ */
+public class OffHeapMemory implements Closeable {
+    /** 对象已不可达但还没有释放的内存 */
+    private static final ReferenceQueue<OffHeapMemory> QUEUE = new ReferenceQueue<>();
+    /** 所有还没有释放的内存,同时保证相应的回收引用本身可达 */
+    private static final Set<Deallocator> LIVE = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    /** 当前已分配的总字节数 */
+    private static final AtomicLong ALLOCATED = new AtomicLong();
+
+    /**
+     * 直接缓冲区的cleaner方法,用于立即释放内存,不能访问时为null,此时内存在缓冲区被GC时才真正释放
+     * 这里通过反射访问,以避免在编译期引用sun.*下的内部类
+     */
+    private static final Method CLEANER;
+    private static final Method CLEAN;
+
+    static {
+        Method cleaner = null;
+        Method clean = null;
+        try{
+            ByteBuffer probe = ByteBuffer.allocateDirect(1);
+            cleaner = probe.getClass().getMethod("cleaner");
+            cleaner.setAccessible(true);
+            Object c = cleaner.invoke(probe);
+            clean = c.getClass().getMethod("clean");
+            clean.setAccessible(true);
+            clean.invoke(c);
+        } catch(Exception | LinkageError e) {
+            cleaner = null;
+            clean = null;
+        }
+        CLEANER = cleaner;
+        CLEAN = clean;
+    }
+
+    /** 当前的缓冲区,只由持有者线程读写;回收线程只通过deallocator访问 */
+    private ByteBuffer buffer;
+    private final Deallocator deallocator;
+
+    public OffHeapMemory(long size) {
+        _expunge();
+
+        this.buffer = _allocate(size);
+        this.deallocator = new Deallocator(this, buffer);
+        LIVE.add(deallocator);
+    }
+
+    private static ByteBuffer _allocate(long size) {
+        if(size < 0 || size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("堆外内存大小超出范围:" + size);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) size).order(ByteOrder.nativeOrder());
+        ALLOCATED.addAndGet(size);
+        return buffer;
+    }
+
+    /** 释放缓冲区,能访问cleaner时立即释放,否则交由GC */
+    private static void _release(ByteBuffer buffer) {
+        ALLOCATED.addAndGet(-buffer.capacity());
+        if(CLEANER == null)
+            return;
+
+        try{
+            Object cleaner = CLEANER.invoke(buffer);
+            if(cleaner != null)
+                CLEAN.invoke(cleaner);
+        } catch(ReflectiveOperationException e) {
+            //不能立即释放时,由GC回收
+        }
+    }
+
+    /** 回收已不可达但没有显式释放的内存 */
+    private static void _expunge() {
+        Reference<? extends OffHeapMemory> ref;
+        while((ref = QUEUE.poll()) != null) {
+            Deallocator deallocator = (Deallocator) ref;
+            if(LIVE.remove(deallocator))
+                deallocator.free();
+        }
+    }
+
+    /** 当前所有堆外内存已分配的总字节数 */
+    public static long allocatedBytes() {
+        return ALLOCATED.get();
+    }
+
+    public long size() {
+        return buffer == null ? 0 : buffer.capacity();
+    }
+
+    /** 调整为指定的大小,保留原来的数据,新增部分的内容不确定 */
+    public void resize(long newSize) {
+        ByteBuffer newBuffer = _allocate(newSize);
+        ByteBuffer src = buffer.duplicate();
+        src.limit((int) Math.min(src.capacity(), newSize));
+        newBuffer.put(src).clear();
+
+        deallocator.replace(newBuffer);
+        buffer = newBuffer;
+    }
+
+    /** 在内存内复制数据,源区间和目标区间可以重叠,字节数需为8的倍数 */
+    public void copy(long fromOffset, long toOffset, long bytes) {
+        int from = (int) fromOffset;
+        int to = (int) toOffset;
+        int n = (int) bytes;
+        ByteBuffer b = buffer;
+        if(to > from) {
+            for(int i = n - 8; i >= 0; i -= 8)
+                b.putLong(to + i, b.getLong(from + i));
+        } else if(to < from) {
+            for(int i = 0; i < n; i += 8)
+                b.putLong(to + i, b.getLong(from + i));
+        }
+    }
+
+    public double getDouble(long offset) {
+        return buffer.getDouble((int) offset);
+    }
+
+    public void putDouble(long offset, double value) {
+        buffer.putDouble((int) offset, value);
+    }
+
+    public long getLong(long offset) {
+        return buffer.getLong((int) offset);
+    }
+
+    public void putLong(long offset, long value) {
+        buffer.putLong((int) offset, value);
+    }
+
+    /** 释放内存,释放之后不能再读写 */
+    @Override
+    public void close() {
+        if(LIVE.remove(deallocator))
+            deallocator.free();
+
+        buffer = null;
+    }
+
+    /**
+     * 在相应的内存对象不可达之后,负责释放内存,因此只能持有缓冲区,不能引用内存对象本身
+     * resize与close在持有者线程上调用,free可能在其它线程的_expunge中调用,因此对缓冲区的替换和释放都需要同步
+     */
+    private static class Deallocator extends PhantomReference<OffHeapMemory> {
+        private ByteBuffer buffer;
+
+        Deallocator(OffHeapMemory memory, ByteBuffer buffer) {
+            super(memory, QUEUE);
+            this.buffer = buffer;
+        }
+
+        synchronized void replace(ByteBuffer newBuffer) {
+            if(buffer != null)
+                _release(buffer);
+            buffer = newBuffer;
+        }
+
+        synchronized void free() {
+            if(buffer != null)
+                _release(buffer);
+            buffer = null;
+        }
+    }
+}
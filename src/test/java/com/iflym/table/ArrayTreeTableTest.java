@@ -1,5 +1,11 @@
 package com.iflym.table;
 
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+import com.google.common.collect.TreeBasedTable;
+import com.iflym.table.util.ComparatorUtils;
 import com.iflym.table.util.FastJsonUtils;
 import com.iflym.table.util.JacksonUtils;
 import com.iflym.table.util.TableUtils;
@@ -7,7 +13,8 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
-import java.util.Comparator;
+import java.util.*;
+import java.util.function.Function;
 
 /**
  * 对table的相应测试
@@ -76,6 +83,50 @@ public class ArrayTreeTableTest {
         Assert.assertEquals(table, deTable);
     }
 
+    /** 测试预分配容量之后能正常工作,并且与未预分配的表相等 */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCapacity() {
+        ArrayTreeTable<String, String, String> table = createTable();
+        ArrayTreeTable<String, String, String> presized = new ArrayTreeTable<>(String.class, String.class, String.class,
+                (Class) String.CASE_INSENSITIVE_ORDER.getClass(), (Class) String.CASE_INSENSITIVE_ORDER.getClass(), 30, 30);
+        presized.init();
+
+        TableUtils.fillManyRandom(table);
+        TableUtils.fillManyRandom(presized);
+        Assert.assertEquals(presized, table);
+        Assert.assertEquals(presized.hashCode(), table.hashCode());
+
+        //扩容之后数据不变
+        table.ensureCapacity(100, 100);
+        Assert.assertEquals(table, presized);
+
+        TableUtils.cleanRandom(table, 600);
+        Assert.assertEquals(table.size(), TableUtils.sizeUsingValue(table));
+    }
+
+    /** 测试乱序写入之后行列仍按比较器有序,并且迭代中移除行列之后位置正确 */
+    @Test
+    public void testKeyOrder() {
+        ArrayTreeTable<Integer, Integer, Integer> table = createIntTable();
+        List<Integer> keys = new ArrayList<>();
+        for(int i = 0; i < 1000; i++)
+            keys.add(i);
+        Collections.shuffle(keys, new Random(1));
+        for(Integer key : keys)
+            table.put(key, key % 10, key);
+
+        Assert.assertEquals(new ArrayList<>(table.rowKeySet()), new ArrayList<>(new TreeSet<>(keys)));
+        Assert.assertEquals(new ArrayList<>(table.columnKeySet()), Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+
+        //移除所有偶数行以及最后一列
+        table.rowMap().keySet().removeIf(t -> t % 2 == 0);
+        table.columnMap().keySet().removeIf(t -> t == 9);
+        Assert.assertEquals(table.size(), 400);
+        for(Integer key : keys)
+            Assert.assertEquals(table.get(key, key % 10), key % 2 == 0 || key % 10 == 9 ? null : key);
+    }
+
     /** 测试使用fastjson序列化和反序列化 */
     @Test
     @SuppressWarnings("unchecked")
@@ -112,4 +163,875 @@ public class ArrayTreeTableTest {
             Assert.assertEquals(table, deTable);
         }
     }
+
+    /** 测试jackson的紧凑格式需要注册模块才启用,以及仍能读取原有按bean写出的格式 */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testJacksonCompact() throws IOException {
+        ArrayTreeTable<Integer, Integer, Integer> intTable = createIntTable();
+        TableUtils.fillIntRandom(intTable, 200);
+        Assert.assertTrue(JacksonUtils.toJson(intTable).contains("innerV"));
+        intTable.remove(intTable.rowKeySet().iterator().next(), intTable.columnKeySet().iterator().next());
+        String str = JacksonUtils.toCompactJson(intTable);
+        Assert.assertTrue(str.contains("\"cells\""));
+        Assert.assertFalse(str.contains("innerV"));
+        ArrayTreeTable deTable = JacksonUtils.parse(str);
+        deTable.init();
+        Assert.assertEquals(intTable, deTable);
+
+        //原有格式的数据
+        ArrayTreeTable<String, String, String> table = createTable();
+        TableUtils.fillRandom(table, 200);
+        str = FastJsonUtils.toJson(table);
+        Assert.assertTrue(str.contains("innerV"));
+        deTable = JacksonUtils.parse(str);
+        deTable.init();
+        Assert.assertEquals(table, deTable);
+
+        //行数 * 列数超出int范围的稀疏表,读取时只按实际的格子分配
+        ArrayTreeTable<Integer, Integer, Integer> sparse = createIntTable();
+        List<Table.Cell<Integer, Integer, Integer>> cells = new ArrayList<>();
+        for(int i = 0; i < 50000; i++) {
+            cells.add(Tables.immutableCell(0, i, i));
+            cells.add(Tables.immutableCell(i, i % 100, -i));
+        }
+        sparse.putAllBulk(cells);
+        ArrayTreeTable<Integer, Integer, Integer> sparseDe = JacksonUtils.parse(JacksonUtils.toCompactJson(sparse));
+        sparseDe.init();
+        Assert.assertEquals(sparseDe.size(), sparse.size());
+        sparse.forEachCell((r, c, v) -> Assert.assertEquals(sparseDe.get(r, c), v));
+    }
+
+    /** 测试快照不受之后修改的影响,并且为只读 */
+    @Test
+    public void testSnapshot() {
+        ArrayTreeTable<Integer, Integer, Integer> table = createIntTable();
+        TableUtils.fillIntRandom(table, 200);
+        Random random = new Random(1);
+
+        for(int round = 0; round < 20; round++) {
+            ArrayTreeTable<Integer, Integer, Integer> snapshot = table.snapshot();
+            ArrayTreeTable<Integer, Integer, Integer> expected = createIntTable();
+            expected.putAll(table);
+
+            for(int i = 0; i < 50; i++) {
+                int row = random.nextInt(25);
+                int column = 45 + random.nextInt(30);
+                int op = random.nextInt(10);
+                if(op < 5)
+                    table.put(row, column, random.nextInt());
+                else if(op < 8)
+                    table.remove(row, column);
+                else if(op == 8)
+                    table.removeRow(row);
+                else
+                    table.removeColumn(column);
+            }
+            //通过视图修改
+            for(Map.Entry<Integer, Integer> entry : table.row(table.rowKeySet().iterator().next()).entrySet())
+                entry.setValue(-1);
+
+            Assert.assertEquals(snapshot, expected);
+            int count = 0;
+            for(Table.Cell<Integer, Integer, Integer> cell : snapshot.cellSet()) {
+                Assert.assertEquals(cell.getValue(), expected.get(cell.getRowKey(), cell.getColumnKey()));
+                count++;
+            }
+            Assert.assertEquals(count, expected.size());
+            Assert.assertEquals(snapshot.size(), expected.size());
+            Assert.assertEquals(table.size(), TableUtils.sizeUsingValue(table));
+        }
+
+        try{
+            table.snapshot().put(1, 1, 1);
+            Assert.fail("快照应为只读");
+        } catch(UnsupportedOperationException ignore) {
+        }
+    }
+
+    /** 测试通过各个迭代器移除之后仍能正确遍历,以及迭代过程中的其它修改会快速失败 */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIteratorRemove() {
+        Random random = new Random(1);
+        for(int round = 0; round < 50; round++) {
+            ArrayTreeTable<Integer, Integer, Integer> table = createIntTable();
+            TreeBasedTable<Integer, Integer, Integer> expected = TreeBasedTable.create();
+            for(int i = 0; i < 100; i++) {
+                int row = random.nextInt(15);
+                int column = random.nextInt(15);
+                table.put(row, column, i);
+                expected.put(row, column, i);
+            }
+
+            Iterator<?> it;
+            Function<Object, Table.Cell<Integer, Integer, Integer>> toCell;
+            switch(round % 4) {
+                case 0:
+                    it = table.cellSet().iterator();
+                    toCell = t -> (Table.Cell<Integer, Integer, Integer>) t;
+                    break;
+                case 1: {
+                    List<Table.Cell<Integer, Integer, Integer>> cells = new ArrayList<>(expected.cellSet());
+                    Iterator<Table.Cell<Integer, Integer, Integer>> cellIt = cells.iterator();
+                    it = table.values().iterator();
+                    toCell = t -> cellIt.next();
+                }
+                break;
+                case 2: {
+                    int row = expected.rowKeySet().first();
+                    it = table.row(row).entrySet().iterator();
+                    toCell = t -> Tables.immutableCell(row, ((Map.Entry<Integer, Integer>) t).getKey(), ((Map.Entry<Integer, Integer>) t).getValue());
+                }
+                break;
+                default: {
+                    int column = expected.columnKeySet().iterator().next();
+                    it = table.column(column).entrySet().iterator();
+                    toCell = t -> Tables.immutableCell(((Map.Entry<Integer, Integer>) t).getKey(), column, ((Map.Entry<Integer, Integer>) t).getValue());
+                }
+                break;
+            }
+
+            List<Table.Cell<Integer, Integer, Integer>> visited = new ArrayList<>();
+            while(it.hasNext()) {
+                Table.Cell<Integer, Integer, Integer> cell = toCell.apply(it.next());
+                visited.add(Tables.immutableCell(cell.getRowKey(), cell.getColumnKey(), cell.getValue()));
+                if(random.nextInt(3) > 0) {
+                    it.hasNext();//提前定位之后再移除
+                    it.remove();
+                    expected.remove(cell.getRowKey(), cell.getColumnKey());
+                }
+            }
+
+            Assert.assertEquals(table.size(), expected.size());
+            Assert.assertEquals(new ArrayList<>(table.rowKeySet()), new ArrayList<>(expected.rowKeySet()));
+            Assert.assertEquals(new ArrayList<>(table.columnKeySet()), new ArrayList<>(expected.columnKeySet()));
+            for(Table.Cell<Integer, Integer, Integer> cell : expected.cellSet())
+                Assert.assertEquals(table.get(cell.getRowKey(), cell.getColumnKey()), cell.getValue());
+            Assert.assertEquals(new HashSet<>(visited).size(), visited.size());
+        }
+
+        ArrayTreeTable<Integer, Integer, Integer> table = createIntTable();
+        table.put(1, 1, 1);
+        table.put(2, 2, 2);
+        Iterator<Integer> it = table.values().iterator();
+        it.next();
+        table.put(3, 3, 3);
+        try{
+            it.next();
+            Assert.fail("迭代过程中的修改应快速失败");
+        } catch(ConcurrentModificationException ignore) {
+        }
+    }
+
+    /** 并行流的结果应与顺序遍历一致,拆分之后的大小是准确的 */
+    @Test
+    public void testSpliterator() {
+        Random random = new Random(2);
+        ArrayTreeTable<Integer, Integer, Integer> table = createIntTable();
+        for(int i = 0; i < 2000; i++)
+            table.put(random.nextInt(200), random.nextInt(50), i);
+
+        long sum = 0;
+        for(Integer v : table.values())
+            sum += v;
+        Assert.assertEquals(table.values().parallelStream().mapToLong(Integer::longValue).sum(), sum);
+        Assert.assertEquals(table.cellSet().parallelStream().count(), table.size());
+        Assert.assertEquals(table.cellSet().parallelStream().map(Table.Cell::getRowKey).distinct().count(), table.rowKeySet().size());
+        Assert.assertEquals(table.rowMap().entrySet().parallelStream().mapToInt(e -> e.getValue().size()).sum(), table.size());
+        Assert.assertEquals(table.columnMap().entrySet().parallelStream().mapToInt(e -> e.getValue().size()).sum(), table.size());
+
+        List<Table.Cell<Integer, Integer, Integer>> cells = new ArrayList<>();
+        Spliterator<Table.Cell<Integer, Integer, Integer>> suffix = table.cellSet().spliterator();
+        suffix.tryAdvance(cells::add);
+        Spliterator<Table.Cell<Integer, Integer, Integer>> prefix = suffix.trySplit();
+        Assert.assertEquals(prefix.estimateSize() + suffix.estimateSize(), table.size() - 1);
+        Assert.assertTrue(prefix.hasCharacteristics(Spliterator.SUBSIZED));
+        prefix.forEachRemaining(cells::add);
+        suffix.forEachRemaining(cells::add);
+        Assert.assertEquals(cells.size(), table.size());
+        Iterator<Table.Cell<Integer, Integer, Integer>> it = table.cellSet().iterator();
+        for(Table.Cell<Integer, Integer, Integer> cell : cells) {
+            Table.Cell<Integer, Integer, Integer> expected = it.next();
+            Assert.assertEquals(cell.getRowKey(), expected.getRowKey());
+            Assert.assertEquals(cell.getColumnKey(), expected.getColumnKey());
+        }
+    }
+
+    /** 批量插入的结果应与逐个put一致 */
+    @Test
+    public void testPutAllBulk() {
+        Random random = new Random(3);
+        for(int round = 0; round < 20; round++) {
+            ArrayTreeTable<Integer, Integer, Integer> table = createIntTable();
+            TreeBasedTable<Integer, Integer, Integer> expected = TreeBasedTable.create();
+            for(int i = 0; i < random.nextInt(50); i++) {
+                int row = random.nextInt(30);
+                int column = random.nextInt(100);
+                table.put(row, column, i);
+                expected.put(row, column, i);
+            }
+
+            List<Table.Cell<Integer, Integer, Integer>> cells = new ArrayList<>();
+            for(int i = 0; i < 500; i++)
+                cells.add(Tables.immutableCell(random.nextInt(60), random.nextInt(200), -i));
+            if(round % 2 == 0)
+                table.putAllBulk(cells);
+            else {
+                TreeBasedTable<Integer, Integer, Integer> other = TreeBasedTable.create();
+                for(Table.Cell<Integer, Integer, Integer> cell : cells)
+                    other.put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+                table.putAll(other);
+            }
+            for(Table.Cell<Integer, Integer, Integer> cell : cells)
+                expected.put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+
+            Assert.assertEquals(table.size(), expected.size());
+            Assert.assertEquals(new ArrayList<>(table.rowKeySet()), new ArrayList<>(expected.rowKeySet()));
+            Assert.assertEquals(new ArrayList<>(table.columnKeySet()), new ArrayList<>(expected.columnKeySet()));
+            for(Table.Cell<Integer, Integer, Integer> cell : expected.cellSet())
+                Assert.assertEquals(table.get(cell.getRowKey(), cell.getColumnKey()), cell.getValue());
+
+            //之后仍可以正常修改
+            table.put(1000, 1000, 1);
+            table.remove(cells.get(0).getRowKey(), cells.get(0).getColumnKey());
+            Assert.assertEquals(table.get(1000, 1000), Integer.valueOf(1));
+        }
+    }
+
+    /** 批量移除的结果应与逐个移除一致,快照不受影响 */
+    @Test
+    public void testRemoveIf() {
+        Random random = new Random(4);
+        for(int round = 0; round < 40; round++) {
+            ArrayTreeTable<Integer, Integer, Integer> table = createIntTable();
+            TreeBasedTable<Integer, Integer, Integer> expected = TreeBasedTable.create();
+            for(int i = 0; i < 300; i++) {
+                int row = random.nextInt(40);
+                int column = random.nextInt(40);
+                table.put(row, column, i);
+                expected.put(row, column, i);
+            }
+            ArrayTreeTable<Integer, Integer, Integer> snapshot = table.snapshot();
+            int snapshotSize = snapshot.size();
+
+            int mod = 2 + random.nextInt(3);
+            switch(round % 4) {
+                case 0:
+                    table.removeRowsIf(row -> row % mod == 0);
+                    for(Integer row : new ArrayList<>(expected.rowKeySet()))
+                        if(row % mod == 0)
+                            expected.row(row).clear();
+                    break;
+                case 1:
+                    table.removeColumnsIf(column -> column % mod == 0);
+                    for(Integer column : new ArrayList<>(expected.columnKeySet()))
+                        if(column % mod == 0)
+                            expected.column(column).clear();
+                    break;
+                case 2:
+                    table.removeCellsIf(cell -> cell.getValue() % mod == 0);
+                    for(Table.Cell<Integer, Integer, Integer> cell : new ArrayList<>(expected.cellSet()))
+                        if(cell.getValue() % mod == 0)
+                            expected.remove(cell.getRowKey(), cell.getColumnKey());
+                    break;
+                default: {
+                    Set<Integer> keep = new HashSet<>(Arrays.asList(1, 3, 5, 7, 11, 13));
+                    table.retainColumns(keep);
+                    for(Integer column : new ArrayList<>(expected.columnKeySet()))
+                        if(!keep.contains(column))
+                            expected.column(column).clear();
+                }
+                break;
+            }
+
+            Assert.assertEquals(table.size(), expected.size());
+            Assert.assertEquals(new ArrayList<>(table.rowKeySet()), new ArrayList<>(expected.rowKeySet()));
+            Assert.assertEquals(new ArrayList<>(table.columnKeySet()), new ArrayList<>(expected.columnKeySet()));
+            for(Table.Cell<Integer, Integer, Integer> cell : expected.cellSet())
+                Assert.assertEquals(table.get(cell.getRowKey(), cell.getColumnKey()), cell.getValue());
+            Assert.assertEquals(snapshot.size(), snapshotSize);
+
+            //之后仍可以正常修改
+            table.put(-1, -1, 1);
+            table.put(100, 100, 1);
+            Assert.assertEquals(table.size(), expected.size() + 2);
+        }
+
+        //保留的行,列按表的比较器匹配,而不是按equals
+        ArrayTreeTable<String, String, String> strTable = createTable();
+        strTable.put("a", "x", "1");
+        strTable.put("b", "y", "2");
+        strTable.put("c", "z", "3");
+        Assert.assertTrue(strTable.retainRows(Arrays.asList("A", "B")));
+        Assert.assertTrue(strTable.retainColumns(Collections.singletonList("X")));
+        Assert.assertEquals(strTable.size(), 1);
+        Assert.assertEquals(strTable.get("a", "x"), "1");
+    }
+
+    /** 延迟整理时墓碑行,列对外不可见,整理或序列化之后与逐个移除的结果一致 */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLazyCompaction() throws IOException {
+        Random random = new Random(5);
+        ArrayTreeTable<Integer, Integer, Integer> table = createIntTable();
+        table.setLazyCompaction(true);
+        TreeBasedTable<Integer, Integer, Integer> expected = TreeBasedTable.create();
+        for(int i = 0; i < 3000; i++) {
+            int row = random.nextInt(20);
+            int column = random.nextInt(20);
+            if(random.nextBoolean()) {
+                table.put(row, column, i);
+                expected.put(row, column, i);
+            } else {
+                Assert.assertEquals(table.remove(row, column), expected.remove(row, column));
+            }
+
+            if(i % 100 == 0) {
+                Assert.assertEquals(table.size(), expected.size());
+                Assert.assertEquals(new ArrayList<>(table.rowKeySet()), new ArrayList<>(expected.rowKeySet()));
+                Assert.assertEquals(new ArrayList<>(table.columnKeySet()), new ArrayList<>(expected.columnKeySet()));
+                Assert.assertEquals(table.rowMap().size(), expected.rowMap().size());
+                Assert.assertEquals(table.columnMap().size(), expected.columnMap().size());
+                for(int k = 0; k < 20; k++) {
+                    Assert.assertEquals(table.containsRow(k), expected.containsRow(k));
+                    Assert.assertEquals(table.containsColumn(k), expected.containsColumn(k));
+                }
+            }
+        }
+
+        //墓碑不影响比较以及序列化
+        ArrayTreeTable<Integer, Integer, Integer> other = createIntTable();
+        other.putAll(expected);
+        Assert.assertEquals(table, other);
+        Assert.assertEquals(table.hashCode(), other.hashCode());
+        String json = JacksonUtils.toJson(table);
+        Assert.assertFalse(json.contains("lazyCompaction"), json);
+        ArrayTreeTable<Integer, Integer, Integer> deTable = JacksonUtils.parse(json);
+        deTable.init();
+        Assert.assertEquals(deTable, other);
+        deTable = FastJsonUtils.parse(FastJsonUtils.toJson(table));
+        deTable.init();
+        Assert.assertEquals(deTable, other);
+
+        table.compact();
+        Assert.assertEquals(table, other);
+        table.removeRowsIf(row -> row % 2 == 0);
+        other.removeRowsIf(row -> row % 2 == 0);
+        Assert.assertEquals(table, other);
+    }
+
+    /** 启用值索引之后按值查找的结果应与遍历一致 */
+    @Test
+    public void testValueIndex() throws IOException {
+        Random random = new Random(6);
+        ArrayTreeTable<Integer, Integer, Integer> table = createIntTable();
+        ArrayTreeTable<Integer, Integer, Integer> scanned = createIntTable();
+        table.setValueIndexed(true);
+        table.setLazyCompaction(true);
+        for(int i = 0; i < 3000; i++) {
+            int row = random.nextInt(30);
+            int column = random.nextInt(30);
+            //值有重复,以验证多个位置时的处理
+            int value = random.nextInt(200);
+            switch(random.nextInt(4)) {
+                case 0:
+                case 1:
+                    Assert.assertEquals(table.put(row, column, value), scanned.put(row, column, value));
+                    break;
+                case 2:
+                    Assert.assertEquals(table.removeValue(value), scanned.removeValue(value));
+                    break;
+                default: {
+                    Map<Integer, Integer> tableRow = table.row(row);
+                    if(tableRow != null && !tableRow.isEmpty()) {
+                        Map.Entry<Integer, Integer> entry = tableRow.entrySet().iterator().next();
+                        scanned.put(row, entry.getKey(), value);
+                        entry.setValue(value);
+                    }
+                }
+                break;
+            }
+            if(i == 1500)
+                table.removeRowsIf(r -> r % 7 == 0);
+            if(i == 1500)
+                scanned.removeRowsIf(r -> r % 7 == 0);
+
+            int probe = random.nextInt(200);
+            Assert.assertEquals(table.containsValue(probe), scanned.containsValue(probe));
+            Table.Cell<Integer, Integer, Integer> cell = table.cell(probe);
+            Table.Cell<Integer, Integer, Integer> expected = scanned.cell(probe);
+            if(expected == null)
+                Assert.assertNull(cell);
+            else {
+                Assert.assertEquals(cell.getRowKey(), expected.getRowKey());
+                Assert.assertEquals(cell.getColumnKey(), expected.getColumnKey());
+                Assert.assertEquals(cell.getValue(), expected.getValue());
+            }
+        }
+        Assert.assertEquals(table, scanned);
+
+        //值索引不写入序列化结果,读取之后均不启用
+        String json = JacksonUtils.toJson(table);
+        Assert.assertFalse(json.contains("valueIndexed"), json);
+        Assert.assertFalse(JacksonUtils.parse(json).isValueIndexed());
+        json = FastJsonUtils.toJson(table);
+        Assert.assertFalse(json.contains("valueIndexed"), json);
+        Assert.assertFalse(FastJsonUtils.parse(json).isValueIndexed());
+    }
+
+    @Test
+    public void testRangeView() {
+        Random random = new Random(8);
+        ArrayTreeTable<Integer, Integer, Integer> table = createIntTable();
+        TreeBasedTable<Integer, Integer, Integer> expected = TreeBasedTable.create();
+        for(int i = 0; i < 1500; i++) {
+            int row = random.nextInt(40);
+            int column = random.nextInt(40);
+            table.put(row, column, i);
+            expected.put(row, column, i);
+        }
+
+        for(int i = 0; i < 50; i++) {
+            int fromRow = random.nextInt(45) - 2;
+            int toRow = fromRow + random.nextInt(20);
+            int fromColumn = random.nextInt(45) - 2;
+            int toColumn = fromColumn + random.nextInt(20);
+            ArrayTreeTable<Integer, Integer, Integer>.RangeTable range = table.subTable(fromRow, toRow, fromColumn, toColumn);
+
+            TreeBasedTable<Integer, Integer, Integer> slice = TreeBasedTable.create();
+            for(Table.Cell<Integer, Integer, Integer> cell : expected.cellSet()) {
+                if(cell.getRowKey() >= fromRow && cell.getRowKey() < toRow && cell.getColumnKey() >= fromColumn && cell.getColumnKey() < toColumn)
+                    slice.put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+            }
+
+            Assert.assertEquals(range.size(), slice.size());
+            Assert.assertEquals(range, slice);
+            Assert.assertEquals(range.rowMap(), slice.rowMap());
+            Assert.assertEquals(range.columnMap(), slice.columnMap());
+            Assert.assertEquals(new ArrayList<>(range.rowKeySet()), new ArrayList<>(slice.rowKeySet()));
+            Assert.assertEquals(new ArrayList<>(range.columnKeySet()), new ArrayList<>(slice.columnKeySet()));
+            Assert.assertEquals(new ArrayList<>(range.values()), new ArrayList<>(slice.values()));
+            Assert.assertEquals(range.get(fromRow, fromColumn), slice.get(fromRow, fromColumn));
+            Assert.assertEquals(range.containsRow(toRow), false);
+            if(!slice.isEmpty()) {
+                Assert.assertEquals(range.rowKeySet().first(), slice.rowKeySet().iterator().next());
+                Assert.assertEquals(range.rowKeySet().headSet(toRow - 1), slice.rowMap().headMap(toRow - 1).keySet());
+            }
+
+            //导航方法与TreeSet,TreeMap的结果一致
+            TreeSet<Integer> rows = new TreeSet<>(slice.rowKeySet());
+            NavigableSet<Integer> rowKeys = range.rowKeySet();
+            NavigableMap<Integer, Map<Integer, Integer>> rowMap = range.rowMap();
+            for(int key = fromRow - 1; key <= toRow + 1; key++) {
+                Assert.assertEquals(rowKeys.lower(key), rows.lower(key));
+                Assert.assertEquals(rowKeys.floor(key), rows.floor(key));
+                Assert.assertEquals(rowKeys.ceiling(key), rows.ceiling(key));
+                Assert.assertEquals(rowMap.higherKey(key), rows.higher(key));
+                Assert.assertEquals(new ArrayList<>(rowMap.headMap(key, true).keySet()), new ArrayList<>(rows.headSet(key, true)));
+                Assert.assertEquals(new ArrayList<>(rowKeys.tailSet(key, false)), new ArrayList<>(rows.tailSet(key, false)));
+                Assert.assertEquals(new ArrayList<>(rowKeys.descendingSet().headSet(key, true)),
+                        new ArrayList<>(rows.descendingSet().headSet(key, true)));
+            }
+            Assert.assertEquals(new ArrayList<>(rowMap.descendingMap().keySet()), new ArrayList<>(rows.descendingSet()));
+            Assert.assertEquals(new ArrayList<>(range.columnMap().descendingKeySet()), new ArrayList<>(new TreeSet<>(slice.columnKeySet()).descendingSet()));
+        }
+
+        //通过视图移除以及放入
+        ArrayTreeTable<Integer, Integer, Integer>.RangeTable range = table.subTable(10, 20, 5, 15);
+        for(Iterator<Table.Cell<Integer, Integer, Integer>> it = range.cellSet().iterator(); it.hasNext(); ) {
+            Table.Cell<Integer, Integer, Integer> cell = it.next();
+            if(cell.getValue() % 2 == 0) {
+                it.remove();
+                expected.remove(cell.getRowKey(), cell.getColumnKey());
+            }
+        }
+        range.put(15, 10, -1);
+        expected.put(15, 10, -1);
+        Assert.assertEquals(table.cellSet(), expected.cellSet());
+        try{
+            range.put(20, 10, -1);
+            Assert.fail();
+        } catch(IllegalArgumentException ignore) {
+        }
+
+        table.headRows(5).clear();
+        table.tailColumns(35).clear();
+        for(Table.Cell<Integer, Integer, Integer> cell : new ArrayList<>(expected.cellSet())) {
+            if(cell.getRowKey() < 5 || cell.getColumnKey() >= 35)
+                expected.remove(cell.getRowKey(), cell.getColumnKey());
+        }
+        Assert.assertEquals(table.cellSet(), expected.cellSet());
+        Assert.assertTrue(table.headRows(5).isEmpty());
+
+        //清除行,列均有范围的视图,范围以外以及快照中的数据不变
+        ArrayTreeTable<Integer, Integer, Integer> snapshot = table.snapshot();
+        int snapshotSize = snapshot.size();
+        table.setValueIndexed(true);
+        table.subTable(10, 20, 10, 20).clear();
+        for(Table.Cell<Integer, Integer, Integer> cell : new ArrayList<>(expected.cellSet())) {
+            if(cell.getRowKey() >= 10 && cell.getRowKey() < 20 && cell.getColumnKey() >= 10 && cell.getColumnKey() < 20)
+                expected.remove(cell.getRowKey(), cell.getColumnKey());
+        }
+        Assert.assertEquals(table.cellSet(), expected.cellSet());
+        Assert.assertEquals(new ArrayList<>(table.rowKeySet()), new ArrayList<>(expected.rowKeySet()));
+        Assert.assertEquals(new ArrayList<>(table.columnKeySet()), new ArrayList<>(expected.columnKeySet()));
+        Assert.assertEquals(snapshot.size(), snapshotSize);
+        for(Integer value : expected.values())
+            Assert.assertTrue(table.containsValue(value));
+    }
+
+    @Test
+    public void testAggregate() {
+        Random random = new Random(9);
+        //行数乘以列数超过并行的阈值,以验证拆分之后的合并
+        ArrayTreeTable<Integer, Integer, Integer> table = createIntTable();
+        TreeBasedTable<Integer, Integer, Integer> expected = TreeBasedTable.create();
+        List<Table.Cell<Integer, Integer, Integer>> cells = new ArrayList<>();
+        for(int i = 0; i < 60000; i++)
+            cells.add(Tables.immutableCell(random.nextInt(400), random.nextInt(400), random.nextInt(1000) - 500));
+        table.putAllBulk(cells);
+        for(Table.Cell<Integer, Integer, Integer> cell : cells)
+            expected.put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+
+        DoubleSummaryStatistics statistics = expected.values().stream().mapToDouble(v -> v).summaryStatistics();
+        Assert.assertEquals(table.sum(), statistics.getSum());
+        Assert.assertEquals(table.summarize().getCount(), statistics.getCount());
+        Assert.assertEquals(table.summarize().getMin(), statistics.getMin());
+        Assert.assertEquals(table.summarize().getMax(), statistics.getMax());
+
+        Map<Integer, Double> sumByRow = table.sumByRow();
+        Map<Integer, Double> sumByColumn = table.sumByColumn();
+        Assert.assertEquals(new ArrayList<>(sumByRow.keySet()), new ArrayList<>(expected.rowKeySet()));
+        Assert.assertEquals(new ArrayList<>(sumByColumn.keySet()), new ArrayList<>(expected.columnKeySet()));
+        for(Integer row : expected.rowKeySet()) {
+            double sum = expected.row(row).values().stream().mapToDouble(v -> v).sum();
+            Assert.assertEquals(table.sumRow(row), sum);
+            Assert.assertEquals(sumByRow.get(row), sum);
+            Assert.assertEquals(table.summarizeRow(row).getMax(), expected.row(row).values().stream().mapToDouble(v -> v).max().getAsDouble());
+        }
+        for(Integer column : expected.columnKeySet()) {
+            double sum = expected.column(column).values().stream().mapToDouble(v -> v).sum();
+            Assert.assertEquals(table.sumColumn(column), sum);
+            Assert.assertEquals(sumByColumn.get(column), sum);
+            Assert.assertEquals(table.summarizeColumn(column).getAverage(), expected.column(column).values().stream().mapToDouble(v -> v).average().getAsDouble());
+        }
+        Assert.assertEquals(table.sumRow(-1), 0.0);
+
+        double rangeSum = expected.cellSet().stream()
+                .filter(cell -> cell.getRowKey() >= 100 && cell.getRowKey() < 300 && cell.getColumnKey() >= 50 && cell.getColumnKey() < 150)
+                .mapToDouble(Table.Cell::getValue).sum();
+        Assert.assertEquals(table.subTable(100, 300, 50, 150).sum(), rangeSum);
+
+        ArrayTreeTable<Integer, Integer, String> text = new ArrayTreeTable(int.class, int.class, String.class, IntCmp.class, IntCmp.class);
+        text.init();
+        try{
+            text.sum();
+            Assert.fail();
+        } catch(IllegalStateException ignore) {
+        }
+    }
+
+    @Test
+    public void testForEachCell() {
+        Random random = new Random(10);
+        ArrayTreeTable<Integer, Integer, Integer> table = createIntTable();
+        for(int i = 0; i < 1000; i++)
+            table.put(random.nextInt(40), random.nextInt(40), i);
+        ArrayTreeTable<Integer, Integer, Integer> snapshot = table.snapshot();
+
+        List<Table.Cell<Integer, Integer, Integer>> cells = new ArrayList<>();
+        table.forEachCell((rowKey, columnKey, value) -> cells.add(Tables.immutableCell(rowKey, columnKey, value)));
+        List<Table.Cell<Integer, Integer, Integer>> expected = new ArrayList<>();
+        for(Table.Cell<Integer, Integer, Integer> cell : table.cellSet())
+            expected.add(Tables.immutableCell(cell.getRowKey(), cell.getColumnKey(), cell.getValue()));
+        Assert.assertEquals(cells, expected);
+
+        Map<Integer, Integer> row = new LinkedHashMap<>();
+        table.forEachInRow(3, row::put);
+        Assert.assertEquals(new ArrayList<>(row.entrySet()), new ArrayList<>(new LinkedHashMap<>(table.row(3)).entrySet()));
+        Map<Integer, Integer> column = new LinkedHashMap<>();
+        table.forEachInColumn(5, column::put);
+        Assert.assertEquals(new ArrayList<>(column.entrySet()), new ArrayList<>(new LinkedHashMap<>(table.column(5)).entrySet()));
+        table.forEachInRow(-1, (columnKey, value) -> Assert.fail());
+
+        //游标遍历并修改值,快照不受影响
+        ArrayTreeTable<Integer, Integer, Integer>.Cursor cursor = table.cursor();
+        int count = 0;
+        while(cursor.next()) {
+            Assert.assertEquals(cursor.value(), table.get(cursor.rowKey(), cursor.columnKey()));
+            cursor.setValue(-cursor.value());
+            count++;
+        }
+        Assert.assertEquals(count, table.size());
+        for(Table.Cell<Integer, Integer, Integer> cell : snapshot.cellSet())
+            Assert.assertEquals(table.get(cell.getRowKey(), cell.getColumnKey()), Integer.valueOf(-cell.getValue()));
+
+        cursor.reset();
+        Assert.assertTrue(cursor.next());
+        table.remove(cursor.rowKey(), cursor.columnKey());
+        try{
+            cursor.next();
+            Assert.fail();
+        } catch(ConcurrentModificationException ignore) {
+        }
+    }
+
+    @Test
+    public void testComparatorInstance() throws IOException {
+        Random random = new Random(11);
+        //自然顺序,使用compareTo直接查找
+        ArrayTreeTable<Integer, Integer, Integer> natural = new ArrayTreeTable<>(Integer.class, Integer.class, Integer.class,
+                Comparator.naturalOrder(), Comparator.naturalOrder());
+        natural.init();
+        //lambda比较器,倒序
+        ArrayTreeTable<Integer, Integer, Integer> reversed = new ArrayTreeTable<>(Integer.class, Integer.class, Integer.class,
+                (Comparator<Integer>) (a, b) -> Integer.compare(b, a), Comparator.naturalOrder());
+        reversed.init();
+        TreeBasedTable<Integer, Integer, Integer> expected = TreeBasedTable.create();
+        for(int i = 0; i < 1000; i++) {
+            int row = random.nextInt(50);
+            int column = random.nextInt(50);
+            natural.put(row, column, i);
+            reversed.put(row, column, i);
+            expected.put(row, column, i);
+        }
+
+        Assert.assertEquals(natural.cellSet(), expected.cellSet());
+        Assert.assertEquals(new ArrayList<>(natural.rowKeySet()), new ArrayList<>(expected.rowKeySet()));
+        List<Integer> rows = new ArrayList<>(expected.rowKeySet());
+        Collections.reverse(rows);
+        Assert.assertEquals(new ArrayList<>(reversed.rowKeySet()), rows);
+        Assert.assertEquals(reversed.cellSet(), expected.cellSet());
+
+        //自然顺序的比较器可以按类名反序列化
+        String json = JacksonUtils.toJson(natural);
+        ArrayTreeTable parsed = JacksonUtils.parse(json);
+        parsed.init();
+        Assert.assertEquals(parsed, natural);
+        Assert.assertSame(parsed.getRowComparator(), Comparator.naturalOrder());
+
+        //lambda比较器不能按类名重新创建,不支持序列化
+        Assert.assertFalse(ComparatorUtils.isRecreatable(reversed.getRowComparatorClass()));
+        try{
+            JacksonUtils.toCompactJson(reversed);
+            Assert.fail("lambda比较器不应支持序列化");
+        } catch(JsonMappingException ignore) {
+        }
+    }
+
+    @Test
+    public void testAxisDictionary() throws IOException {
+        List<String> keys = new ArrayList<>();
+        for(int i = 0; i < 30; i++)
+            keys.add("key" + i);
+        AxisDictionary<String> dictionary = new AxisDictionary<>(keys, String.CASE_INSENSITIVE_ORDER);
+        Assert.assertEquals(dictionary.keys(), new ArrayList<>(ImmutableSortedSet.copyOf(String.CASE_INSENSITIVE_ORDER, keys)));
+
+        //两个表使用内容相同但不同实例的key,绑定字典之后共用字典中的实例
+        ArrayTreeTable<String, String, String> first = createTable();
+        first.setColumnDictionary(dictionary);
+        ArrayTreeTable<String, String, String> second = createTable();
+        for(int i = 0; i < 30; i += 2)
+            second.put("row", new String("key" + i), "v" + i);
+        second.setColumnDictionary(dictionary);
+        List<Table.Cell<String, String, String>> cells = new ArrayList<>();
+        for(int i = 0; i < 30; i += 3)
+            cells.add(Tables.immutableCell("row" + i, new String("key" + i), "v" + i));
+        first.putAllBulk(cells);
+        first.put("other", new String("key1"), "v");
+
+        for(String key : first.columnKeySet())
+            Assert.assertSame(key, dictionary.intern(key));
+        for(String key : second.columnKeySet())
+            Assert.assertSame(key, dictionary.intern(key));
+        Assert.assertSame(first.columnKeySet().iterator().next(), dictionary.key(0));
+
+        //不在字典中的key不能放入,表不变
+        int size = first.size();
+        try{
+            first.put("row", "missing", "v");
+            Assert.fail();
+        } catch(IllegalArgumentException ignore) {
+        }
+        Assert.assertEquals(first.size(), size);
+        Assert.assertFalse(first.containsRow("row"));
+        //大小写不同的key由字典比较器找到
+        Assert.assertEquals(first.get("ROW3", "KEY3"), "v3");
+
+        //绑定字典时按序号存储,字典中只有偶数,奇数的查找以及区间边界落在两个序号之间
+        ArrayTreeTable<Integer, Integer, Integer> table = createIntTable();
+        List<Integer> evens = new ArrayList<>();
+        for(int i = 0; i < 200; i += 2)
+            evens.add(i);
+        AxisDictionary<Integer> rowDictionary = new AxisDictionary<>(evens, table.getRowComparator());
+        AxisDictionary<Integer> columnDictionary = new AxisDictionary<>(evens, table.getColumnComparator());
+        table.setRowDictionary(rowDictionary);
+        table.setColumnDictionary(columnDictionary);
+        TreeBasedTable<Integer, Integer, Integer> expected = TreeBasedTable.create();
+        Random random = new Random(24);
+        for(int i = 0; i < 2000; i++) {
+            int row = random.nextInt(100) * 2;
+            int column = random.nextInt(100) * 2;
+            if(random.nextInt(4) == 0) {
+                Assert.assertEquals(table.remove(row, column), expected.remove(row, column));
+            } else
+                Assert.assertEquals(table.put(row, column, i), expected.put(row, column, i));
+        }
+        ArrayTreeTable<Integer, Integer, Integer> snapshot = table.snapshot();
+        table.put(0, 0, -1);
+        table.clear();
+        table.putAll(snapshot);
+        for(Table.Cell<Integer, Integer, Integer> cell : expected.cellSet())
+            Assert.assertEquals(table.get(cell.getRowKey(), cell.getColumnKey()), cell.getValue());
+        Assert.assertEquals(table.size(), expected.size());
+        Assert.assertEquals(new ArrayList<>(table.rowKeySet()), new ArrayList<>(expected.rowKeySet()));
+        Assert.assertEquals(new ArrayList<>(table.columnKeySet()), new ArrayList<>(expected.columnKeySet()));
+        Assert.assertNull(table.get(41, 40));
+        Assert.assertFalse(table.containsColumn(-1));
+        Assert.assertEquals(new ArrayList<>(table.headRows(101).rowKeySet()), new ArrayList<>(expected.rowKeySet().headSet(101)));
+        Assert.assertEquals(new ArrayList<>(table.tailColumns(199).columnKeySet()), new ArrayList<>(new TreeSet<>(expected.columnKeySet()).tailSet(199)));
+        Assert.assertEquals(new ArrayList<>(table.transpose().rowKeySet()), new ArrayList<>(expected.columnKeySet()));
+
+        //绑定字典的表按bean格式写出,字典不写出,读取之后为未绑定的表,数据不变
+        String json = JacksonUtils.toJson(table);
+        Assert.assertFalse(json.contains("Dictionary"), json);
+        ArrayTreeTable<Integer, Integer, Integer> deTable = JacksonUtils.parse(json);
+        deTable.init();
+        Assert.assertNull(deTable.getRowDictionary());
+        Assert.assertEquals(deTable.cellSet(), expected.cellSet());
+        json = FastJsonUtils.toJson(table);
+        Assert.assertFalse(json.contains("Dictionary"), json);
+        deTable = FastJsonUtils.parse(json);
+        deTable.init();
+        Assert.assertEquals(deTable.cellSet(), expected.cellSet());
+
+        //解除绑定之后key由序号转换回来,可以放入字典以外的key
+        table.setRowDictionary(null);
+        table.put(1, 0, 1);
+        Assert.assertEquals(table.row(0), expected.row(0));
+        Assert.assertEquals(table.get(1, 0), Integer.valueOf(1));
+        try{
+            table.setRowDictionary(rowDictionary);
+            Assert.fail();
+        } catch(IllegalArgumentException ignore) {
+        }
+        Assert.assertEquals(table.get(1, 0), Integer.valueOf(1));
+    }
+
+    @Test
+    public void testTableAlgebra() {
+        Random random = new Random(12);
+        ArrayTreeTable<Integer, Integer, Integer> first = createIntTable();
+        ArrayTreeTable<Integer, Integer, Integer> second = createIntTable();
+        TreeBasedTable<Integer, Integer, Integer> firstExpected = TreeBasedTable.create();
+        TreeBasedTable<Integer, Integer, Integer> secondExpected = TreeBasedTable.create();
+        for(int i = 0; i < 800; i++) {
+            int row = random.nextInt(40);
+            int column = random.nextInt(40);
+            first.put(row, column, i);
+            firstExpected.put(row, column, i);
+            row = random.nextInt(40) + 20;
+            column = random.nextInt(40) + 20;
+            second.put(row, column, -i);
+            secondExpected.put(row, column, -i);
+        }
+        //墓碑不参与运算
+        first.setLazyCompaction(true);
+        for(Integer column : new ArrayList<>(first.row(0).keySet()))
+            first.remove(0, column);
+        firstExpected.row(0).clear();
+
+        Assert.assertEquals(first.transpose().cellSet(), Tables.transpose(firstExpected).cellSet());
+        Assert.assertEquals(new ArrayList<>(first.transpose().rowKeySet()), new ArrayList<>(firstExpected.columnKeySet()));
+
+        //按行连接,两边都有的行
+        TreeBasedTable<Integer, Integer, Integer> joined = TreeBasedTable.create();
+        for(Integer row : firstExpected.rowKeySet()) {
+            if(secondExpected.containsRow(row)) {
+                joined.row(row).putAll(firstExpected.row(row));
+                for(Map.Entry<Integer, Integer> entry : secondExpected.row(row).entrySet())
+                    joined.row(row).merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+        }
+        ArrayTreeTable<Integer, Integer, Integer> join = first.joinOnRows(second, Integer::sum);
+        Assert.assertEquals(join.cellSet(), joined.cellSet());
+        Assert.assertEquals(new ArrayList<>(join.columnKeySet()), new ArrayList<>(joined.columnKeySet()));
+
+        //合并,合并结果为0时移除
+        for(Table.Cell<Integer, Integer, Integer> cell : secondExpected.cellSet())
+            firstExpected.row(cell.getRowKey()).merge(cell.getColumnKey(), cell.getValue(), (a, b) -> a == -b ? null : a + b);
+        ArrayTreeTable<Integer, Integer, Integer> snapshot = first.snapshot();
+        int snapshotSize = snapshot.size();
+        first.mergeWith(second, (a, b) -> a == -b ? null : a + b);
+        Assert.assertEquals(first.cellSet(), firstExpected.cellSet());
+        Assert.assertEquals(new ArrayList<>(first.rowKeySet()), new ArrayList<>(firstExpected.rowKeySet()));
+        Assert.assertEquals(new ArrayList<>(first.columnKeySet()), new ArrayList<>(firstExpected.columnKeySet()));
+        Assert.assertEquals(snapshot.size(), snapshotSize);
+
+        //putAll相同顺序的表时按归并处理,另一个表的值覆盖
+        ArrayTreeTable<Integer, Integer, Integer> target = createIntTable();
+        target.put(25, 25, 1);
+        target.putAll(second);
+        TreeBasedTable<Integer, Integer, Integer> putAllExpected = TreeBasedTable.create();
+        putAllExpected.put(25, 25, 1);
+        putAllExpected.putAll(secondExpected);
+        Assert.assertEquals(target.cellSet(), putAllExpected.cellSet());
+
+        //由Comparator.comparing创建的比较器类相同但顺序不同,不能按归并处理
+        ArrayTreeTable<Integer, Integer, Integer> ascending = new ArrayTreeTable<>(Integer.class, Integer.class, Integer.class,
+                Comparator.comparing(x -> x), Comparator.naturalOrder());
+        ascending.init();
+        ArrayTreeTable<Integer, Integer, Integer> descending = new ArrayTreeTable<>(Integer.class, Integer.class, Integer.class,
+                Comparator.comparing(x -> -x), Comparator.naturalOrder());
+        descending.init();
+        Assert.assertSame(ascending.getRowComparator().getClass(), descending.getRowComparator().getClass());
+        ascending.put(1, 1, 1);
+        descending.putAll(second);
+        descending.put(1, 1, 1);
+        ascending.putAll(descending);
+        putAllExpected = TreeBasedTable.create(secondExpected);
+        putAllExpected.put(1, 1, 1);
+        Assert.assertEquals(ascending.cellSet(), putAllExpected.cellSet());
+        Assert.assertEquals(new ArrayList<>(ascending.rowKeySet()), new ArrayList<>(putAllExpected.rowKeySet()));
+        try{
+            ascending.mergeWith(descending, (a, b) -> b);
+            Assert.fail();
+        } catch(IllegalArgumentException ignore) {
+        }
+    }
+
+    /** 稀疏的大表做合并以及转置时,每行只分配到最后一个有值的列,不按行数 * 列数分配 */
+    @Test
+    public void testSparseAlgebra() {
+        int n = 20000;
+        List<Table.Cell<Integer, Integer, Integer>> cells = new ArrayList<>();
+        for(int i = 0; i < n; i++) {
+            cells.add(Tables.immutableCell(0, i, i));
+            cells.add(Tables.immutableCell(i, 0, -i));
+        }
+        ArrayTreeTable<Integer, Integer, Integer> source = createIntTable();
+        source.putAllBulk(cells);
+        Assert.assertEquals(source.size(), 2 * n - 1);
+
+        //目标表的数据较少,putAll按mergeWith归并
+        ArrayTreeTable<Integer, Integer, Integer> target = createIntTable();
+        target.put(5, 5, 5);
+        target.putAll(source);
+        Assert.assertEquals(target.size(), 2 * n);
+        Assert.assertEquals(target.get(0, n - 1), Integer.valueOf(n - 1));
+        Assert.assertEquals(target.get(n - 1, 0), Integer.valueOf(1 - n));
+        Assert.assertEquals(target.get(5, 5), Integer.valueOf(5));
+        Assert.assertNull(target.get(n - 1, n - 1));
+
+        ArrayTreeTable<Integer, Integer, Integer> joined = target.joinOnRows(source, Integer::sum);
+        Assert.assertEquals(joined.get(0, 0), Integer.valueOf(0));
+        Assert.assertEquals(joined.get(0, n - 1), Integer.valueOf(2 * (n - 1)));
+
+        ArrayTreeTable<Integer, Integer, Integer> transposed = target.transpose();
+        Assert.assertEquals(transposed.size(), 2 * n);
+        Assert.assertEquals(transposed.get(n - 1, 0), Integer.valueOf(n - 1));
+        Assert.assertEquals(transposed.get(0, n - 1), Integer.valueOf(1 - n));
+        Assert.assertEquals(transposed.get(5, 5), Integer.valueOf(5));
+    }
 }
@@ -0,0 +1,73 @@
+package com.iflym.table;
+
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+import com.google.common.collect.TreeBasedTable;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+/**
+ * 对列优先表的测试,结果应与按行存储的表一致
+ */
+public class ColumnMajorArrayTreeTableTest {
+
+    private static class IntCmp implements Comparator<Integer> {
+        @Override
+        public int compare(Integer o1, Integer o2) {
+            return Integer.compare(o1, o2);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testNormalWork() {
+        ColumnMajorArrayTreeTable<Integer, Integer, Integer> table = new ColumnMajorArrayTreeTable(int.class, int.class, int.class,
+                IntCmp.class, IntCmp.class);
+        TreeBasedTable<Integer, Integer, Integer> expected = TreeBasedTable.create();
+        Random random = new Random(7);
+        for(int i = 0; i < 2000; i++) {
+            int row = random.nextInt(30);
+            int column = random.nextInt(20);
+            if(random.nextInt(4) > 0) {
+                Assert.assertEquals(table.put(row, column, i), expected.put(row, column, i));
+            } else {
+                Assert.assertEquals(table.remove(row, column), expected.remove(row, column));
+            }
+        }
+
+        List<Table.Cell<Integer, Integer, Integer>> cells = new ArrayList<>();
+        for(int i = 0; i < 500; i++)
+            cells.add(Tables.immutableCell(random.nextInt(60), random.nextInt(40), -i));
+        table.putAllBulk(cells);
+        for(Table.Cell<Integer, Integer, Integer> cell : cells)
+            expected.put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+
+        Assert.assertEquals(table.size(), expected.size());
+        Assert.assertEquals(table.cellSet(), expected.cellSet());
+        Assert.assertEquals(table, expected);
+        Assert.assertEquals(new ArrayList<>(table.rowKeySet()), new ArrayList<>(expected.rowKeySet()));
+        Assert.assertEquals(new ArrayList<>(table.columnKeySet()), new ArrayList<>(expected.columnKeySet()));
+        for(Integer column : expected.columnKeySet()) {
+            Assert.assertEquals(table.column(column), expected.column(column));
+            Assert.assertEquals(new ArrayList<>(table.column(column).keySet()), new ArrayList<>(expected.column(column).keySet()));
+        }
+        for(Integer row : expected.rowKeySet())
+            Assert.assertEquals(table.row(row), expected.row(row));
+        for(Integer column : expected.columnKeySet())
+            Assert.assertEquals(table.sumColumn(column), expected.column(column).values().stream().mapToDouble(v -> v).sum());
+        Assert.assertEquals(table.sumByRow().keySet(), expected.rowKeySet());
+
+        //按行,列移除互换之后仍然正确
+        ColumnMajorArrayTreeTable<Integer, Integer, Integer> snapshot = table.snapshot();
+        table.removeRowsIf(row -> row % 3 == 0);
+        table.removeColumnsIf(column -> column % 5 == 0);
+        for(Table.Cell<Integer, Integer, Integer> cell : new ArrayList<>(expected.cellSet())) {
+            if(cell.getRowKey() % 3 == 0 || cell.getColumnKey() % 5 == 0)
+                expected.remove(cell.getRowKey(), cell.getColumnKey());
+        }
+        Assert.assertEquals(table, expected);
+        Assert.assertNotEquals(snapshot.size(), table.size());
+    }
+}
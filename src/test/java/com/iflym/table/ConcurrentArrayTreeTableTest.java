@@ -0,0 +1,111 @@
+package com.iflym.table;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 对并发表的测试,多个线程同时写入,删除以及读取
+ */
+public class ConcurrentArrayTreeTableTest {
+
+    private static class IntCmp implements Comparator<Integer> {
+        @Override
+        public int compare(Integer o1, Integer o2) {
+            return Integer.compare(o1, o2);
+        }
+    }
+
+    /** 每个线程写入各自的列,读取方读到的值只能是写入过的值,最后的数据与各线程最后一次写入一致 */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testConcurrentWork() throws Exception {
+        ConcurrentArrayTreeTable<Integer, Integer, Integer> table = new ConcurrentArrayTreeTable(int.class, int.class, int.class,
+                IntCmp.class, IntCmp.class);
+        int threads = 4;
+        int rows = 200;
+        int rounds = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 2);
+        AtomicBoolean done = new AtomicBoolean();
+        try{
+            List<Future<?>> writers = new ArrayList<>();
+            for(int t = 0; t < threads; t++) {
+                int column = t;
+                writers.add(executor.submit(() -> {
+                    for(int round = 0; round < rounds; round++) {
+                        for(int row = 0; row < rows; row++)
+                            table.put(row, column, round * 1000 + row);
+                        //偶尔删除再重建,以产生结构性修改
+                        if(round % 5 == 0)
+                            table.remove(column * 7 % rows, column);
+                    }
+                    return null;
+                }));
+            }
+
+            List<Future<?>> readers = new ArrayList<>();
+            for(int t = 0; t < 2; t++) {
+                readers.add(executor.submit(() -> {
+                    while(!done.get()) {
+                        for(int row = 0; row < rows; row++) {
+                            Integer value = table.get(row, row % threads);
+                            if(value != null)
+                                Assert.assertEquals(value % 1000, row);
+                        }
+                        Assert.assertTrue(table.size() <= rows * threads);
+                    }
+                    return null;
+                }));
+            }
+
+            for(Future<?> future : writers)
+                future.get();
+            done.set(true);
+            for(Future<?> future : readers)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertEquals(table.size(), rows * threads);
+        for(int row = 0; row < rows; row++) {
+            for(int column = 0; column < threads; column++)
+                Assert.assertEquals(table.get(row, column), Integer.valueOf((rounds - 1) * 1000 + row));
+        }
+        Assert.assertEquals(table.rowKeySet().iterator().next(), Integer.valueOf(0));
+        Assert.assertEquals(table.row(3).size(), threads);
+        Assert.assertEquals(table.removeRow(3).size(), threads);
+        Assert.assertFalse(table.containsRow(3));
+    }
+
+    /** 包装之前已生成快照的表时,先复制共享的存储,之后的写入不影响快照;快照本身不能被包装 */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testWrapShared() {
+        ArrayTreeTable<Integer, Integer, Integer> source = new ArrayTreeTable(int.class, int.class, int.class, IntCmp.class, IntCmp.class);
+        source.init();
+        for(int i = 0; i < 10; i++)
+            source.put(i, i, i);
+        ArrayTreeTable<Integer, Integer, Integer> snapshot = source.snapshot();
+
+        ConcurrentArrayTreeTable<Integer, Integer, Integer> table = new ConcurrentArrayTreeTable<>(source, 4);
+        for(int i = 0; i < 10; i++)
+            table.put(i, i, -i);
+        for(int i = 0; i < 10; i++)
+            Assert.assertEquals(snapshot.get(i, i), Integer.valueOf(i));
+        Assert.assertEquals(table.columnKeySet().size(), 10);
+
+        try{
+            new ConcurrentArrayTreeTable<>(snapshot, 4);
+            Assert.fail("快照不能被包装");
+        } catch(IllegalArgumentException ignore) {
+        }
+    }
+}
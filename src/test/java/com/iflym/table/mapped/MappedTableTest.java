@@ -0,0 +1,94 @@
+package com.iflym.table.mapped;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.iflym.table.ArrayTreeTable;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 对映射表文件的测试,写入之后重新打开并与原表对比
+ * 使用很小的分块打开,以覆盖跨块的读取
+ */
+public class MappedTableTest {
+
+    private static class IntCmp implements Comparator<Integer> {
+        @Override
+        public int compare(Integer o1, Integer o2) {
+            return Integer.compare(o1, o2);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testStringTable() throws Exception {
+        Class<Comparator<String>> comparatorClass = (Class) String.CASE_INSENSITIVE_ORDER.getClass();
+        ArrayTreeTable<String, String, String> table = new ArrayTreeTable<>(String.class, String.class, String.class, comparatorClass, comparatorClass);
+        table.init();
+        Random random = new Random(1);
+        for(int i = 0; i < 500; i++)
+            table.put("r" + random.nextInt(40), "c" + random.nextInt(40), "值" + random.nextInt(1000));
+
+        Path path = Files.createTempFile("mapped", ".att");
+        try{
+            MappedTableWriter.write(table, path);
+            try(MappedTable<String, String, String> mapped = MappedTable.open(path, 6)) {
+                Assert.assertEquals(mapped.size(), table.size());
+                Assert.assertTrue(mapped.equals(table));
+                Assert.assertEquals(mapped.cellSet(), table.cellSet());
+                Assert.assertEquals(mapped.toArrayTreeTable(), table);
+
+                //比较器同样适用于映射表
+                String rowKey = table.rowKeySet().iterator().next();
+                Assert.assertEquals(mapped.row(rowKey.toUpperCase()), table.row(rowKey));
+                Assert.assertEquals(Lists.newArrayList(mapped.rowKeySet()), Lists.newArrayList(table.rowKeySet()));
+                Assert.assertEquals(Lists.newArrayList(mapped.columnKeySet()), Lists.newArrayList(table.columnKeySet()));
+                for(String columnKey : table.columnKeySet())
+                    Assert.assertEquals(mapped.column(columnKey), table.column(columnKey));
+                Assert.assertNull(mapped.get("r-1", "c1"));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testNumberTable() throws Exception {
+        ArrayTreeTable<Integer, Integer, Double> table = new ArrayTreeTable(int.class, int.class, double.class, IntCmp.class, IntCmp.class);
+        table.init();
+        for(int i = 0; i < 50; i++)
+            table.put(i * 3, i % 7, i / 2D);
+        table.removeRow(9);
+
+        Path path = Files.createTempFile("mapped", ".att");
+        try{
+            MappedTableWriter.write(table, path);
+            try(MappedTable<Integer, Integer, Double> mapped = MappedTable.open(path, 5)) {
+                Assert.assertTrue(mapped.equals(table));
+                Assert.assertEquals(mapped.cellSet(), table.cellSet());
+                Assert.assertEquals(mapped.get(3, 1), 0.5D);
+                Assert.assertFalse(mapped.containsRow(9));
+                Assert.assertEquals(mapped.column(0), ImmutableMap.copyOf(table.column(0)));
+                Assert.assertTrue(mapped.containsValue(24.5D));
+                //值可以重复,不应为Set
+                Assert.assertFalse(mapped.values() instanceof Set);
+                Assert.assertEquals(new ArrayList<>(mapped.values()), new ArrayList<>(table.values()));
+                try{
+                    mapped.put(1, 1, 1D);
+                    Assert.fail("映射表应为只读");
+                } catch(UnsupportedOperationException ignore) {
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
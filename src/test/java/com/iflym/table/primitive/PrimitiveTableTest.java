@@ -0,0 +1,157 @@
+package com.iflym.table.primitive;
+
+import com.google.common.collect.Table;
+import com.google.common.collect.TreeBasedTable;
+import com.iflym.table.util.OffHeapMemory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 对基本类型表的测试,随机操作之后与guava的TreeBasedTable对比
+ */
+public class PrimitiveTableTest {
+
+    /** 随机写入,删除以及通过视图删除,并校验与参照表一致 */
+    private <K extends Comparable<K>, V> void randomWork(AbstractPrimitiveTable<K, K, V> table, KeyValue<K, V> kv) {
+        TreeBasedTable<K, K, V> expected = TreeBasedTable.create();
+        Random random = new Random(1);
+
+        for(int i = 0; i < 5000; i++) {
+            K rowKey = kv.key(random.nextInt(30));
+            K columnKey = kv.key(random.nextInt(30));
+            int op = random.nextInt(10);
+            if(op < 6) {
+                V value = kv.value(random.nextInt(1000));
+                Assert.assertEquals(table.put(rowKey, columnKey, value), expected.put(rowKey, columnKey, value));
+            } else if(op < 8) {
+                Assert.assertEquals(table.remove(rowKey, columnKey), expected.remove(rowKey, columnKey));
+            } else if(op == 8) {
+                Map<K, V> expectedRow = expected.containsRow(rowKey) ? new LinkedHashMap<>(expected.row(rowKey)) : null;
+                Assert.assertEquals(table.removeRow(rowKey), expectedRow);
+                expected.row(rowKey).clear();
+            } else {
+                //通过列视图的迭代器移除部分数据
+                Iterator<Map.Entry<K, V>> it = table.column(columnKey).entrySet().iterator();
+                while(it.hasNext()) {
+                    Map.Entry<K, V> entry = it.next();
+                    if(random.nextBoolean()) {
+                        it.remove();
+                        expected.remove(entry.getKey(), columnKey);
+                    }
+                }
+            }
+
+            if(i % 100 == 0)
+                check(table, expected);
+        }
+        check(table, expected);
+
+        //通过单元格迭代器清空
+        table.cellSet().removeIf(t -> true);
+        Assert.assertTrue(table.isEmpty());
+        Assert.assertTrue(table.rowKeySet().isEmpty());
+        Assert.assertTrue(table.columnKeySet().isEmpty());
+    }
+
+    private <K, V> void check(Table<K, K, V> table, Table<K, K, V> expected) {
+        Assert.assertEquals(table.size(), expected.size());
+        Assert.assertEquals(table, expected);
+        Assert.assertEquals(expected, table);
+        Assert.assertEquals(table.hashCode(), expected.hashCode());
+        Assert.assertEquals(new ArrayList<>(table.cellSet()), new ArrayList<>(expected.cellSet()));
+        Assert.assertEquals(new ArrayList<>(table.rowKeySet()), new ArrayList<>(expected.rowKeySet()));
+        Assert.assertEquals(new ArrayList<>(table.columnKeySet()), new ArrayList<>(expected.columnKeySet()));
+        Assert.assertEquals(table.columnMap(), expected.columnMap());
+    }
+
+    private interface KeyValue<K, V> {
+        K key(int i);
+
+        V value(int i);
+    }
+
+    @Test
+    public void testIntKeyDouble() {
+        randomWork(new IntKeyDoubleTable(), new KeyValue<Integer, Double>() {
+            @Override
+            public Integer key(int i) {
+                return i - 10;
+            }
+
+            @Override
+            public Double value(int i) {
+                return i / 4D;
+            }
+        });
+
+        IntKeyDoubleTable table = new IntKeyDoubleTable(4, 4);
+        Assert.assertEquals(table.putDouble(2, 3, 1.5D), 0D);
+        Assert.assertEquals(table.putDouble(2, 3, 2.5D), 1.5D);
+        Assert.assertEquals(table.getDouble(2, 3), 2.5D);
+        Assert.assertEquals(table.getDouble(3, 3, Double.NaN), Double.NaN);
+        Assert.assertEquals(table.removeDouble(2, 3), 2.5D);
+        Assert.assertFalse(table.contains(2, 3));
+        Assert.assertTrue(table.isEmpty());
+    }
+
+    /** 测试堆外存储与堆内存储表现一致,并且移除和close之后会释放相应的堆外内存 */
+    @Test
+    public void testOffHeap() {
+        long allocated = OffHeapMemory.allocatedBytes();
+
+        OffHeapIntKeyDoubleTable doubleTable = new OffHeapIntKeyDoubleTable();
+        randomWork(doubleTable, new KeyValue<Integer, Double>() {
+            @Override
+            public Integer key(int i) {
+                return i;
+            }
+
+            @Override
+            public Double value(int i) {
+                return i / 8D;
+            }
+        });
+        //全部移除之后,所有行已释放
+        Assert.assertEquals(OffHeapMemory.allocatedBytes(), allocated);
+
+        OffHeapLongLongTable longTable = new OffHeapLongLongTable(10, 10);
+        for(long i = 0; i < 100; i++)
+            longTable.putLong(i % 7, i, i * i);
+        Assert.assertEquals(longTable.getLong(3L, 10L), 100L);
+        Assert.assertEquals(longTable.size(), 100);
+        Assert.assertTrue(OffHeapMemory.allocatedBytes() > allocated);
+
+        longTable.close();
+        Assert.assertTrue(longTable.isEmpty());
+        Assert.assertEquals(OffHeapMemory.allocatedBytes(), allocated);
+    }
+
+    @Test
+    public void testLongLong() {
+        randomWork(new LongLongTable(), new KeyValue<Long, Long>() {
+            @Override
+            public Long key(int i) {
+                return (long) i << 33;
+            }
+
+            @Override
+            public Long value(int i) {
+                return (long) i;
+            }
+        });
+
+        LongLongTable table = new LongLongTable();
+        Assert.assertEquals(table.putLong(1L, 2L, 3L), 0L);
+        Assert.assertEquals(table.getLong(1L, 2L), 3L);
+        Assert.assertEquals(table.get(1L, 2L), Long.valueOf(3L));
+        Assert.assertNull(table.get(1, 2));//类型不匹配时视为不存在
+        Assert.assertEquals(table.removeLong(1L, 2L), 3L);
+        Assert.assertTrue(table.isEmpty());
+    }
+}
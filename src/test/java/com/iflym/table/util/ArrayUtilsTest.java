@@ -0,0 +1,55 @@
+package com.iflym.table.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 对数组工具的测试,使用ArrayList作为对照
+ */
+public class ArrayUtilsTest {
+
+    /** 测试随机的插入和删除,对象数组与基本类型数组的结果均与ArrayList一致 */
+    @Test
+    public void testInsertAndDelete() {
+        Random random = new Random(0);
+        String[] objects = new String[0];
+        long[] longs = new long[2];
+        int size = 0;
+        List<Integer> expected = new ArrayList<>();
+        for(int i = 0; i < 2000; i++) {
+            if(size == 0 || random.nextInt(3) > 0) {
+                int idx = random.nextInt(size + 1);
+                objects = ArrayUtils.insert(objects, size, idx);
+                objects[idx] = String.valueOf(i);
+                longs = ArrayUtils.insert(longs, size, idx);
+                longs[idx] = i;
+                expected.add(idx, i);
+                size++;
+            } else {
+                int idx = random.nextInt(size);
+                ArrayUtils.delete(objects, size, idx);
+                ArrayUtils.delete(longs, size, idx);
+                expected.remove(idx);
+                size--;
+                //删除之后不再持有原来最后一个元素的引用
+                Assert.assertNull(objects[size]);
+            }
+
+            Assert.assertEquals(size, expected.size());
+            for(int k = 0; k < size; k++) {
+                Assert.assertEquals(objects[k], String.valueOf(expected.get(k)));
+                Assert.assertEquals(longs[k], (long) expected.get(k));
+            }
+        }
+
+        //增长时保持数组的类型
+        Integer[][] rows = ArrayUtils.insert(new Integer[0][], 0, 0);
+        Assert.assertEquals(rows.getClass(), Integer[][].class);
+        Assert.assertEquals(Arrays.asList(ArrayUtils.copyOf(new Integer[]{1, 2}, 3)), Arrays.asList(1, 2, null));
+    }
+}
@@ -0,0 +1,62 @@
+package com.iflym.table.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * 对位图工具的测试,使用BitSet作为对照
+ */
+public class BitSetUtilsTest {
+
+    /** 将BitSet中从idx开始的位整体移动一位 */
+    private static BitSet shift(BitSet source, int idx, boolean insert) {
+        BitSet result = source.get(0, idx);
+        for(int i = source.nextSetBit(idx); i >= 0; i = source.nextSetBit(i + 1)) {
+            if(insert)
+                result.set(i + 1);
+            else if(i > idx)
+                result.set(i - 1);
+        }
+
+        return result;
+    }
+
+    private static void assertSame(long[] words, BitSet expected) {
+        Assert.assertEquals(BitSetUtils.cardinality(words), expected.cardinality());
+        for(int i = expected.nextSetBit(0), k = BitSetUtils.nextSetBit(words, 0); i >= 0 || k >= 0;
+            i = expected.nextSetBit(i + 1), k = BitSetUtils.nextSetBit(words, k + 1))
+            Assert.assertEquals(k, i);
+    }
+
+    /** 测试随机的插入和删除位,结果与BitSet逐位移动一致 */
+    @Test
+    public void testInsertAndDelete() {
+        Random random = new Random(0);
+        for(int round = 0; round < 200; round++) {
+            int nbits = 1 + random.nextInt(300);
+            long[] words = BitSetUtils.EMPTY;
+            BitSet expected = new BitSet();
+            for(int i = 0; i < nbits / 2; i++) {
+                int idx = random.nextInt(nbits);
+                words = BitSetUtils.set(words, idx);
+                expected.set(idx);
+            }
+
+            for(int i = 0; i < 50; i++) {
+                int idx = random.nextInt(nbits);
+                if(random.nextBoolean()) {
+                    words = BitSetUtils.insert(words, idx);
+                    expected = shift(expected, idx, true);
+                    nbits++;
+                } else {
+                    BitSetUtils.delete(words, idx);
+                    expected = shift(expected, idx, false);
+                }
+                assertSame(words, expected);
+            }
+        }
+    }
+}
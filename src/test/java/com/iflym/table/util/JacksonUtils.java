@@ -3,6 +3,7 @@ package com.iflym.table.util;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.iflym.table.ArrayTreeTable;
+import com.iflym.table.jackson.ArrayTreeTableModule;
 
 import java.io.IOException;
 
@@ -12,17 +13,24 @@ import java.io.IOException;
  */
 public class JacksonUtils {
     private static ObjectMapper objectMapper;
+    /** 注册了紧凑格式序列化模块的mapper */
+    private static ObjectMapper compactMapper;
 
     static {
         //这里需要先注册相应的mapper,以预先初始化必要的信息
         objectMapper = new ObjectMapper();
         com.iflym.table.jackson.ArrayTreeTableDeserializer.setObjectMapper(objectMapper);
+        compactMapper = new ObjectMapper().registerModule(new ArrayTreeTableModule());
     }
 
     public static String toJson(ArrayTreeTable table) throws JsonProcessingException {
         return objectMapper.writeValueAsString(table);
     }
 
+    public static String toCompactJson(ArrayTreeTable table) throws JsonProcessingException {
+        return compactMapper.writeValueAsString(table);
+    }
+
     public static ArrayTreeTable parse(String json) throws IOException {
         return objectMapper.readValue(json, ArrayTreeTable.class);
     }
@@ -30,6 +30,10 @@ public class TableUtils {
 
         int i = 0;
         for(Object[] vv : innerV) {
+            //超过实际行数的预留行为null
+            if(vv == null)
+                continue;
+
             for(Object v : vv)
                 if(v != null)
                     i++;